@@ -0,0 +1,95 @@
+package edu.orca.benchmark;
+
+import edu.orca.algorithm.CsrGraph;
+import edu.orca.io.EdgeListLoader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Input graphs of the benchmarks: the bundled test graphs, read from the directory given by the system property
+ * orca.testGraphs (defaults to the test resources of the main module), and synthetic power-law graphs named
+ * "powerlaw_&lt;nodes&gt;_&lt;average degree&gt;".
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class BenchmarkGraphs {
+    private static final String TEST_GRAPHS = System.getProperty("orca.testGraphs", "../src/test/resources/test_graphs");
+    private static final String POWER_LAW = "powerlaw_";
+    // exponent of the degree distribution of the synthetic graphs, typical for interaction networks
+    private static final double POWER_LAW_EXPONENT = 2.3;
+    private static final long SEED = 42;
+
+    private BenchmarkGraphs() {
+    }
+
+    public static CsrGraph load(String name) throws IOException {
+        if (name.startsWith(POWER_LAW)) {
+            String[ ] parts = name.substring(POWER_LAW.length()).split("_");
+            return powerLaw(parseSize(parts[0]), Integer.parseInt(parts[1]), POWER_LAW_EXPONENT, SEED);
+        }
+        return EdgeListLoader.readText(file(name), 1);
+    }
+
+    public static Path file(String name) {
+        return Paths.get(TEST_GRAPHS, name + ".in");
+    }
+
+    /**
+     * Chung-Lu random graph whose expected degrees follow a power law with the given exponent
+     *
+     * @param n number of nodes
+     * @param averageDegree expected average degree
+     * @param exponent exponent of the degree distribution
+     * @param seed random seed, equal seeds give equal graphs
+     * @return simple graph without isolated node ids beyond n
+     */
+    public static CsrGraph powerLaw(int n, int averageDegree, double exponent, long seed) {
+        double[ ] weights = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = Math.pow(i + 1, -1.0 / (exponent - 1));
+            total += weights[i];
+        }
+        double[ ] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += weights[i] / total;
+            cumulative[i] = sum;
+        }
+
+        long m = (long) n * averageDegree / 2;
+        Random random = new Random(seed);
+        Set<Long> edges = new HashSet<>();
+        int[ ] sources = new int[(int) m];
+        int[ ] targets = new int[(int) m];
+        int e = 0;
+        while (e < m) {
+            int a = sample(cumulative, random.nextDouble());
+            int b = sample(cumulative, random.nextDouble());
+            if (a == b || !edges.add(Math.min(a, b) * (long) n + Math.max(a, b))) continue;
+            sources[e] = a;
+            targets[e++] = b;
+        }
+        return CsrGraph.of(n, sources, targets);
+    }
+
+    private static int sample(double[ ] cumulative, double p) {
+        int lo = 0, hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] < p) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int parseSize(String size) {
+        if (size.endsWith("k")) return Integer.parseInt(size.substring(0, size.length() - 1)) * 1000;
+        return Integer.parseInt(size);
+    }
+}
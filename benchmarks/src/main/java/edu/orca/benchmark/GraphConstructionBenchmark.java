@@ -0,0 +1,92 @@
+package edu.orca.benchmark;
+
+import edu.jgraphtsupport.AbstractEdge;
+import edu.jgraphtsupport.GraphUtils;
+import edu.orca.algorithm.CsrGraph;
+import edu.orca.algorithm.ImmutableOrcaGraph;
+import edu.orca.io.EdgeListLoader;
+import javaslang.Tuple2;
+import javaslang.collection.Array;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of building the graph representations consumed by the counters.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphConstructionBenchmark {
+
+    @Param({"p_05", "graph_10k_60k", "graph_1k_100k"})
+    public String graph;
+
+    private Path file;
+    private int n;
+    private int[ ] sources;
+    private int[ ] targets;
+    private ImmutableOrcaGraph.Builder builder;
+
+    @Setup
+    public void setup() throws IOException {
+        file = BenchmarkGraphs.file(graph);
+        CsrGraph csrGraph = EdgeListLoader.readText(file, 1);
+        n = csrGraph.getNodesCount();
+        sources = csrGraph.getEdgeSources();
+        targets = csrGraph.getEdgeTargets();
+
+        List<String> edgeList = Files.readAllLines(file);
+        edgeList.remove(0);
+        Array<AbstractEdge> edges = Array.ofAll(GraphUtils.convertToGraph(edgeList).edgeSet());
+        builder = ImmutableOrcaGraph.builder()
+                .nodesCount(n)
+                .edgesCount(csrGraph.getEdgesCount())
+                .edges(edges)
+                .nodesDegree(csrGraph.getDegrees());
+    }
+
+    @Benchmark
+    public CsrGraph buildCsrGraph() {
+        return CsrGraph.of(n, sources, targets);
+    }
+
+    @Benchmark
+    public CsrGraph buildCsrGraphFromOrcaGraph() {
+        return builder.build().getCsrGraph();
+    }
+
+    @Benchmark
+    public Tuple2<Integer, Integer>[ ][ ] buildIncidentList() {
+        return builder.build().getIncidentList();
+    }
+
+    @Benchmark
+    public int[ ][ ] buildAdjacencyList() {
+        return builder.build().getAdjacencyList();
+    }
+
+    @Benchmark
+    public CsrGraph loadTextEdgeList() throws IOException {
+        return EdgeListLoader.readText(file, 1);
+    }
+}
@@ -0,0 +1,56 @@
+package edu.orca.benchmark;
+
+import edu.orca.utils.Intersections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of intersecting two sorted neighbour lists of equal length, half of whose values are common. Run with
+ * -jvmArgsAppend -Dorca.vectorize=false to compare against the scalar merge.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntersectionBenchmark {
+
+    @Param({"16", "64", "256", "1024"})
+    public int length;
+
+    private int[ ] a;
+    private int[ ] b;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        a = new int[length];
+        b = new int[length];
+        // each list takes every next value with probability 1/2 until it is full
+        int ai = 0, bi = 0;
+        for (int value = 0; ai < length || bi < length; value++) {
+            if (ai < length && random.nextBoolean()) a[ai++] = value;
+            if (bi < length && random.nextBoolean()) b[bi++] = value;
+        }
+    }
+
+    @Benchmark
+    public int count() {
+        return Intersections.count(a, 0, a.length, b, 0, b.length);
+    }
+}
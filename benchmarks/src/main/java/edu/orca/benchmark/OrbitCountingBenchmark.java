@@ -0,0 +1,85 @@
+package edu.orca.benchmark;
+
+import edu.orca.algorithm.CsrGraph;
+import edu.orca.algorithm.FiveNodeGraphletOrbitCounter;
+import edu.orca.algorithm.FourNodeGraphletOrbitCounter;
+import edu.orca.algorithm.Orca;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the orbit counting hot paths: triangle counting, clique enumeration, common node precomputation
+ * and the full 4- and 5-node counts.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrbitCountingBenchmark {
+
+    @Param({"example", "p_05", "graph_1k_6k", "graph_10k_20k", "powerlaw_1k_4"})
+    public String graph;
+
+    private CsrGraph csrGraph;
+    private FourNodeGraphletOrbitCounter fourNodeCounter;
+    private FiveNodeGraphletOrbitCounter fiveNodeCounter;
+
+    @Setup
+    public void setup() throws IOException {
+        csrGraph = BenchmarkGraphs.load(graph);
+        // the phases below can be repeated on the same counter, which keeps its setup out of the measurement
+        fourNodeCounter = new FourNodeGraphletOrbitCounter(csrGraph);
+        fiveNodeCounter = new FiveNodeGraphletOrbitCounter(csrGraph);
+    }
+
+    @Benchmark
+    public int[ ] countTriangles() {
+        return fourNodeCounter.countTriangles();
+    }
+
+    @Benchmark
+    public long[ ] countFourCliques() {
+        return fourNodeCounter.countFullGraphlets();
+    }
+
+    @Benchmark
+    public long[ ] countFiveCliques() {
+        return fiveNodeCounter.countFullGraphlets();
+    }
+
+    @Benchmark
+    public FiveNodeGraphletOrbitCounter precomputeCommonNodes() {
+        fiveNodeCounter.precomputeCommonNodes();
+        return fiveNodeCounter;
+    }
+
+    @Benchmark
+    public long[ ][ ] countFourNodeOrbits() {
+        Orca orca = new Orca();
+        orca.init(4, csrGraph);
+        return orca.count();
+    }
+
+    @Benchmark
+    public long[ ][ ] countFiveNodeOrbits() {
+        Orca orca = new Orca();
+        orca.init(5, csrGraph);
+        return orca.count();
+    }
+}
@@ -0,0 +1,48 @@
+package edu.orca.algorithm;
+
+/**
+ * Answers whether two nodes of a graph are adjacent. This is the innermost operation of both orbit counters,
+ * so the implementation is picked per graph by {@link #create(CsrGraph, long)}.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public interface AdjacencyIndex {
+
+    /**
+     * default memory budget of an adjacency index in bytes
+     */
+    long DEFAULT_MEMORY_BUDGET = 128L << 20;
+
+    /**
+     * @return true if there is an edge between nodes x and y
+     */
+    boolean adjacent(int x, int y);
+
+    /**
+     * @return approximate number of bytes used on top of the graph itself
+     */
+    long memoryUsage();
+
+    /**
+     * Picks the fastest index fitting into the memory budget: a packed bit matrix when the whole graph fits,
+     * otherwise bitsets for as many of the highest degree nodes as the budget allows, and binary search over
+     * the sorted neighbour lists when no node has a degree worth a bitset.
+     *
+     * @param graph graph to index
+     * @param memoryBudget number of bytes the index may use
+     * @return adjacency index of graph
+     */
+    static AdjacencyIndex create(CsrGraph graph, long memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Incorrect memory budget " + memoryBudget + ". Should not be negative.");
+        }
+        if (BitMatrixAdjacency.memoryRequired(graph.getNodesCount()) <= memoryBudget) {
+            return new BitMatrixAdjacency(graph);
+        }
+        HubBitsetAdjacency hubs = HubBitsetAdjacency.of(graph, memoryBudget);
+        if (hubs != null) {
+            return hubs;
+        }
+        return new BinarySearchAdjacency(graph);
+    }
+}
@@ -0,0 +1,33 @@
+package edu.orca.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency test by binary search in the shorter of the two sorted neighbour lists, needs no extra memory.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class BinarySearchAdjacency implements AdjacencyIndex {
+    private final int[ ] deg;
+    private final int[ ] off;
+    private final int[ ] nbr;
+
+    public BinarySearchAdjacency(CsrGraph graph) {
+        this.deg = graph.getDegrees();
+        this.off = graph.getOffsets();
+        this.nbr = graph.getNeighbors();
+    }
+
+    @Override
+    public boolean adjacent(int x, int y) {
+        if (deg[x] > deg[y]) {
+            return Arrays.binarySearch(nbr, off[y], off[y + 1], x) >= 0;
+        }
+        return Arrays.binarySearch(nbr, off[x], off[x + 1], y) >= 0;
+    }
+
+    @Override
+    public long memoryUsage() {
+        return 0;
+    }
+}
@@ -0,0 +1,48 @@
+package edu.orca.algorithm;
+
+/**
+ * Adjacency test by a lookup in a packed n x n bit matrix, as done by the original ORCA for graphs
+ * small enough to afford it.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class BitMatrixAdjacency implements AdjacencyIndex {
+    private final long n;
+    private final long[ ] bits; // bit x * n + y is set if x and y are adjacent
+
+    public BitMatrixAdjacency(CsrGraph graph) {
+        int nodes = graph.getNodesCount();
+        long words = ((long) nodes * nodes + 63) >>> 6;
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Graph with " + nodes + " nodes is too large for a bit matrix");
+        }
+        this.n = nodes;
+        this.bits = new long[(int) words];
+        int[ ] off = graph.getOffsets();
+        int[ ] nbr = graph.getNeighbors();
+        for (int x = 0; x < nodes; x++) {
+            for (int i = off[x]; i < off[x + 1]; i++) {
+                long bit = x * n + nbr[i];
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes taken by the bit matrix of a graph with given number of nodes
+     */
+    public static long memoryRequired(int nodesCount) {
+        return (((long) nodesCount * nodesCount + 63) >>> 6) * Long.BYTES;
+    }
+
+    @Override
+    public boolean adjacent(int x, int y) {
+        long bit = x * n + y;
+        return (bits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    @Override
+    public long memoryUsage() {
+        return (long) bits.length * Long.BYTES;
+    }
+}
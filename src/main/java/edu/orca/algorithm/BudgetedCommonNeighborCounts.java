@@ -0,0 +1,99 @@
+package edu.orca.algorithm;
+
+import edu.orca.utils.PairCountMap;
+import edu.orca.utils.PairCounts;
+import edu.orca.utils.SpilledTripleCounts;
+import edu.orca.utils.TripleCountMap;
+import edu.orca.utils.TripleCounts;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Common neighbour counts of node pairs and triples split by the degree of the common neighbour. Neighbours of
+ * at most the threshold degree ("light" nodes) are counted by the in-memory tables; the few neighbours above it
+ * (hubs), which would make the tables explode, are counted on demand from the hub neighbours of the looked up
+ * nodes, or for triples read from counts spilled to disk.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+final class BudgetedCommonNeighborCounts implements PairCounts, TripleCounts, Closeable {
+    private final PairCountMap lightPairs;
+    private final TripleCountMap lightTriples;
+    private final SpilledTripleCounts hubTriples; // null counts the hub neighbours of triples on demand
+    private final int[ ] hubOff; // hubNbr[hubOff[a] .. hubOff[a + 1]) - hub neighbours of node a
+    private final int[ ] hubNbr;
+    private final AdjacencyIndex adjacency;
+
+    BudgetedCommonNeighborCounts(PairCountMap lightPairs, TripleCountMap lightTriples, SpilledTripleCounts hubTriples,
+                                 int[ ] hubOff, int[ ] hubNbr, AdjacencyIndex adjacency) {
+        this.lightPairs = lightPairs;
+        this.lightTriples = lightTriples;
+        this.hubTriples = hubTriples;
+        this.hubOff = hubOff;
+        this.hubNbr = hubNbr;
+        this.adjacency = adjacency;
+    }
+
+    /**
+     * @return number of common neighbours of nodes a and b
+     */
+    @Override
+    public int get(int a, int b) {
+        if (hubOff[b + 1] - hubOff[b] < hubOff[a + 1] - hubOff[a]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int count = lightPairs.get(a, b);
+        for (int i = hubOff[a]; i < hubOff[a + 1]; i++) {
+            if (adjacency.adjacent(hubNbr[i], b)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of common neighbours of nodes a, b and c
+     */
+    @Override
+    public int get(int a, int b, int c) {
+        int count = lightTriples.get(a, b, c);
+        if (hubTriples != null) return count + hubTriples.get(a, b, c);
+
+        // scan the shortest hub neighbour list and test the other two nodes
+        int s = a, t = b, u = c;
+        if (hubOff[t + 1] - hubOff[t] < hubOff[s + 1] - hubOff[s]) {
+            s = b;
+            t = a;
+        }
+        if (hubOff[u + 1] - hubOff[u] < hubOff[s + 1] - hubOff[s]) {
+            int tmp = s;
+            s = u;
+            u = tmp;
+        }
+        for (int i = hubOff[s]; i < hubOff[s + 1]; i++) {
+            int w = hubNbr[i];
+            if (adjacency.adjacent(w, t) && adjacency.adjacent(w, u)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of pair and triple entries held in memory or on disk
+     */
+    long pairsSize() {
+        return lightPairs.size();
+    }
+
+    long triplesSize() {
+        return lightTriples.size() + (hubTriples == null ? 0 : hubTriples.size());
+    }
+
+    /**
+     * deletes the spilled hub triples
+     */
+    @Override
+    public void close() throws IOException {
+        if (hubTriples != null) hubTriples.close();
+    }
+}
@@ -0,0 +1,201 @@
+package edu.orca.algorithm;
+
+import edu.orca.io.OrbitMatrixFile;
+import edu.orca.utils.Util;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Supplier;
+
+/**
+ * Completed phases of a count kept in a local directory, so that a count interrupted by a crash or a
+ * preemption resumes where it stopped. The directory holds the fingerprint of the counted graph, one file per
+ * precomputed phase and one {@link OrbitMatrixFile} per completed block of nodes of the equation phase. Every
+ * file is written under a temporary name and renamed once complete.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+final class Checkpoint {
+
+    private static final Logger LOGGER = LogManager.getLogger(Checkpoint.class);
+    private static final String FINGERPRINT_FILE = "fingerprint";
+
+    private final Path directory;
+    private final int blockSize;
+
+    /**
+     * Opens the checkpoint in directory, or starts one if the directory holds none
+     *
+     * @param fingerprint fingerprint of the count, see {@link #fingerprint}
+     * @param blockSize number of nodes of the equation phase stored per file
+     * @throws IllegalStateException if the directory holds the checkpoint of a different count
+     */
+    Checkpoint(Path directory, long fingerprint, int blockSize) {
+        this.directory = directory;
+        this.blockSize = blockSize;
+        Long found = read(FINGERPRINT_FILE, DataInputStream::readLong);
+        if (found == null) {
+            write(FINGERPRINT_FILE, out -> out.writeLong(fingerprint));
+        } else if (found != fingerprint) {
+            throw new IllegalStateException("Checkpoint in " + directory + " belongs to a different graph or count. "
+                    + "Should be resumed with the same graph and settings or started in an empty directory.");
+        }
+    }
+
+    /**
+     * @return hash of everything the counts and their files depend on: graph size and edges in edge id order,
+     * the number of orbits, the counted nodes, the selected orbits and the block size of the equation phase
+     */
+    static long fingerprint(CsrGraph graph, int orbitsCount, int[ ] nodes, OrbitSelection orbitSelection,
+                            int blockSize) {
+        long hash = Util.mix(orbitsCount);
+        hash = Util.mix(hash ^ blockSize);
+        hash = Util.mix(hash ^ graph.getNodesCount());
+        hash = Util.mix(hash ^ graph.getEdgesCount());
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        for (int e = 0; e < graph.getEdgesCount(); e++) {
+            hash = Util.mix(hash ^ (((long) sources[e] << 32) | targets[e]));
+        }
+        hash = Util.mix(hash ^ nodes.length);
+        for (int x : nodes) hash = Util.mix(hash ^ x);
+        if (orbitSelection != null) {
+            for (int o = 0; o < orbitSelection.getOrbitsCount(); o++) {
+                if (orbitSelection.isRequired(o)) hash = Util.mix(hash ^ ~o);
+            }
+        }
+        return hash;
+    }
+
+    int[ ] ints(String name, Supplier<int[ ]> compute) {
+        int[ ] values = read(name, in -> {
+            int[ ] v = new int[in.readInt()];
+            for (int i = 0; i < v.length; i++) v[i] = in.readInt();
+            return v;
+        });
+        if (values != null) return values;
+        int[ ] computed = compute.get();
+        write(name, out -> {
+            out.writeInt(computed.length);
+            for (int v : computed) out.writeInt(v);
+        });
+        return computed;
+    }
+
+    long[ ] longs(String name, Supplier<long[ ]> compute) {
+        long[ ] values = read(name, in -> {
+            long[ ] v = new long[in.readInt()];
+            for (int i = 0; i < v.length; i++) v[i] = in.readLong();
+            return v;
+        });
+        if (values != null) return values;
+        long[ ] computed = compute.get();
+        write(name, out -> {
+            out.writeInt(computed.length);
+            for (long v : computed) out.writeLong(v);
+        });
+        return computed;
+    }
+
+    /**
+     * @return value of phase name read from the checkpoint, or null if the phase has not completed
+     */
+    <T> T read(String name, Reader<T> reader) {
+        Path file = directory.resolve(name);
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            LOGGER.debug("resuming " + name + " from " + file);
+            return reader.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * stores the value of phase name, replacing the file only once it is complete
+     */
+    void write(String name, Writer writer) {
+        Path file = directory.resolve(name);
+        Path temporary = directory.resolve(name + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary),
+                    1 << 16))) {
+                writer.write(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Runs the equation phase in blocks of blockSize nodes. Completed blocks are read back from the checkpoint,
+     * the others are solved by solver and stored once complete. Rows of every block are handed to writer.
+     *
+     * @param nodesCount number of counted nodes
+     * @param orbitsCount number of orbits of a row
+     */
+    void solve(int nodesCount, int orbitsCount, OrbitCounter.RowWriter writer, BlockSolver solver) {
+        long[ ] row = new long[orbitsCount];
+        for (int from = 0; from < nodesCount; from += blockSize) {
+            int to = (int) Math.min(nodesCount, (long) from + blockSize);
+            Path file = directory.resolve("rows-" + from);
+            if (Files.exists(file)) {
+                try (OrbitMatrixFile rows = OrbitMatrixFile.open(file)) {
+                    if (rows.getFirstNode() != from || rows.getNodesCount() != to - from
+                            || rows.getOrbitsCount() != orbitsCount) {
+                        throw new IllegalStateException("Incorrect checkpoint " + file + " of " + rows.getNodesCount()
+                                + " rows from " + rows.getFirstNode() + ". Should hold " + (to - from)
+                                + " rows from " + from + ".");
+                    }
+                    for (int i = from; i < to; i++) {
+                        rows.getRow(i, row);
+                        writer.write(i, row);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot read checkpoint " + file, e);
+                }
+                continue;
+            }
+
+            int first = from;
+            OrbitMatrix rows = OrbitMatrix.onHeap(to - from, orbitsCount);
+            solver.solve(from, to, (i, orbits) -> {
+                rows.setRow(i - first, orbits);
+                writer.write(i, orbits);
+            });
+            Path temporary = directory.resolve("rows-" + from + ".tmp");
+            try {
+                OrbitMatrixFile.write(rows, from, temporary);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write checkpoint " + file, e);
+            }
+        }
+    }
+
+    interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * solves the equations of the nodes with indices from .. to - 1 and hands their rows to writer
+     */
+    interface BlockSolver {
+        void solve(int from, int to, OrbitCounter.RowWriter writer);
+    }
+}
@@ -0,0 +1,60 @@
+package edu.orca.algorithm;
+
+import edu.orca.utils.Intersections;
+import edu.orca.utils.PairCounts;
+import edu.orca.utils.TripleCounts;
+
+/**
+ * Common neighbour counts of node pairs and triples computed on demand from the neighbour lists. Replaces the
+ * common2 / common3 tables when precomputing them for the whole graph costs more than the lookups.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+final class CommonNeighborCounts implements PairCounts, TripleCounts {
+    private final int[ ] deg;
+    private final int[ ] off;
+    private final int[ ] nbr;
+    private final AdjacencyIndex adjacency;
+    private final CountMetrics metrics; // counts the neighbour list intersections of the pair lookups
+
+    CommonNeighborCounts(CsrGraph graph, AdjacencyIndex adjacency, CountMetrics metrics) {
+        this.deg = graph.getDegrees();
+        this.off = graph.getOffsets();
+        this.nbr = graph.getNeighbors();
+        this.adjacency = adjacency;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return number of common neighbours of nodes a and b
+     */
+    @Override
+    public int get(int a, int b) {
+        metrics.addIntersections(1);
+        return Intersections.count(nbr, off[a], off[a + 1], nbr, off[b], off[b + 1]);
+    }
+
+    /**
+     * @return number of common neighbours of nodes a, b and c
+     */
+    @Override
+    public int get(int a, int b, int c) {
+        // scan the shortest neighbour list and test the other two nodes
+        int s = a, t = b, u = c;
+        if (deg[t] < deg[s]) {
+            s = b;
+            t = a;
+        }
+        if (deg[u] < deg[s]) {
+            int tmp = s;
+            s = u;
+            u = tmp;
+        }
+        int count = 0;
+        for (int i = off[s]; i < off[s + 1]; i++) {
+            int w = nbr[i];
+            if (adjacency.adjacent(w, t) && adjacency.adjacent(w, u)) count++;
+        }
+        return count;
+    }
+}
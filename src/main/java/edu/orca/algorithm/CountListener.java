@@ -0,0 +1,29 @@
+package edu.orca.algorithm;
+
+/**
+ * Follows a running count. Phase callbacks come from the counting thread, progress may be reported from any
+ * worker thread but never by two threads at once.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public interface CountListener {
+
+    default void phaseStarted(CountPhase phase) {
+    }
+
+    /**
+     * @param nanos wall clock time the phase took
+     */
+    default void phaseFinished(CountPhase phase, long nanos) {
+    }
+
+    /**
+     * Called about once per second during the equation phase and once after its last node
+     *
+     * @param nodesDone number of nodes solved so far
+     * @param nodesTotal number of nodes to solve
+     * @param etaNanos estimated time until the last node is solved, from the rate so far
+     */
+    default void progress(long nodesDone, long nodesTotal, long etaNanos) {
+    }
+}
@@ -0,0 +1,166 @@
+package edu.orca.algorithm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timers and counters of an orbit count. Values are updated while the count runs and may be read from any
+ * thread at any time, e.g. by a metrics scraper.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class CountMetrics {
+    // minimum time between two progress reports
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(CountPhase.values().length);
+    private final LongAdder intersections = new LongAdder();
+    private final LongAdder nodesDone = new LongAdder();
+    private final AtomicLong lastProgress = new AtomicLong();
+    private volatile long nodesTotal;
+    private volatile long equationsStart;
+    private volatile long commonPairs;
+    private volatile long commonTriples;
+    private volatile CountListener listener;
+
+    /**
+     * @return total wall clock time spent in phase, 0 if it did not run
+     */
+    public long getPhaseNanos(CountPhase phase) {
+        return phaseNanos.get(phase.ordinal());
+    }
+
+    /**
+     * @return number of sorted neighbour list intersections performed, one per edge by the triangle phase and
+     * one per pair lookup of the common neighbours counted on demand
+     */
+    public long getIntersections() {
+        return intersections.sum();
+    }
+
+    /**
+     * @return number of node pairs held by the common neighbour table
+     */
+    public long getCommonPairs() {
+        return commonPairs;
+    }
+
+    /**
+     * @return number of node triples held by the common neighbour table
+     */
+    public long getCommonTriples() {
+        return commonTriples;
+    }
+
+    /**
+     * @return number of nodes whose equations are solved
+     */
+    public long getNodesDone() {
+        return nodesDone.sum();
+    }
+
+    /**
+     * @return number of nodes of the equation phase, 0 before it starts
+     */
+    public long getNodesTotal() {
+        return nodesTotal;
+    }
+
+    /**
+     * @return estimated time until the equation phase ends from its rate so far, -1 if not known yet
+     */
+    public long getEtaNanos() {
+        long done = nodesDone.sum();
+        long total = nodesTotal;
+        if (done == 0 || total == 0) return -1;
+        long elapsed = System.nanoTime() - equationsStart;
+        return (long) ((double) elapsed / done * (total - done));
+    }
+
+    /**
+     * @return every metric by name, phase times in milliseconds, e.g. for exporting to a metrics system
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        for (CountPhase phase : CountPhase.values()) {
+            metrics.put("phase." + phase.name().toLowerCase() + ".millis", getPhaseNanos(phase) / 1_000_000);
+        }
+        metrics.put("intersections", getIntersections());
+        metrics.put("common.pairs", getCommonPairs());
+        metrics.put("common.triples", getCommonTriples());
+        metrics.put("nodes.done", getNodesDone());
+        metrics.put("nodes.total", getNodesTotal());
+        metrics.put("eta.millis", getEtaNanos() < 0 ? -1 : getEtaNanos() / 1_000_000);
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return "CountMetrics" + toMap();
+    }
+
+    public CountListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param listener notified of phases and progress, null for none
+     */
+    public void setListener(CountListener listener) {
+        this.listener = listener;
+    }
+
+    PhaseTimer startPhase(CountPhase phase, int nodes, int edges) {
+        CountListener l = listener;
+        if (l != null) l.phaseStarted(phase);
+        return new PhaseTimer(this, phase, nodes, edges);
+    }
+
+    void finishPhase(CountPhase phase, long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+        CountListener l = listener;
+        if (l != null) l.phaseFinished(phase, nanos);
+    }
+
+    void addIntersections(long count) {
+        intersections.add(count);
+    }
+
+    void setCommonNodes(long pairs, long triples) {
+        commonPairs = pairs;
+        commonTriples = triples;
+    }
+
+    void startEquations(long total) {
+        nodesDone.reset();
+        nodesTotal = total;
+        equationsStart = System.nanoTime();
+        lastProgress.set(equationsStart);
+    }
+
+    /**
+     * counts solved nodes and reports progress if the last report is older than the progress interval
+     */
+    void nodesDone(long count) {
+        nodesDone.add(count);
+        CountListener l = listener;
+        if (l == null) return;
+        long last = lastProgress.get();
+        long now = System.nanoTime();
+        if (now - last >= PROGRESS_INTERVAL_NANOS && lastProgress.compareAndSet(last, now)) {
+            reportProgress(l);
+        }
+    }
+
+    void finishEquations() {
+        CountListener l = listener;
+        if (l != null) reportProgress(l);
+    }
+
+    private synchronized void reportProgress(CountListener l) {
+        l.progress(nodesDone.sum(), nodesTotal, Math.max(0, getEtaNanos()));
+    }
+}
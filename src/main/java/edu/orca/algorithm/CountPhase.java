@@ -0,0 +1,29 @@
+package edu.orca.algorithm;
+
+/**
+ * Phases of an orbit count, in the order they run
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public enum CountPhase {
+    /**
+     * building the index answering adjacency tests
+     */
+    ADJACENCY_INDEX,
+    /**
+     * precomputing the common neighbours of node pairs and triples (5-node graphlets only)
+     */
+    COMMON_NODES,
+    /**
+     * counting the triangles over every edge
+     */
+    TRIANGLES,
+    /**
+     * enumerating the cliques of graphletSize nodes
+     */
+    FULL_GRAPHLETS,
+    /**
+     * setting up and solving the equations of every node
+     */
+    EQUATIONS
+}
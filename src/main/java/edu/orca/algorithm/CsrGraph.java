@@ -0,0 +1,222 @@
+package edu.orca.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Undirected simple graph in compressed sparse row form. The neighbours of node x are
+ * neighbors[offsets[x]] .. neighbors[offsets[x + 1] - 1] in increasing order, and edgeIds holds the id of the
+ * corresponding edge at the same position.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class CsrGraph {
+    private final int nodesCount;
+    private final int edgesCount;
+    private final int[ ] degrees; // degrees[x] - degree of node x
+    private final int[ ] offsets; // offsets[x] - start of the neighbours of node x, offsets[n] = 2m
+    private final int[ ] neighbors; // sorted neighbour lists of all nodes
+    private final int[ ] edgeIds; // edgeIds[i] - id of the edge to neighbors[i]
+    private final int[ ] edgeSources; // edgeSources[e] - first endpoint of edge e
+    private final int[ ] edgeTargets; // edgeTargets[e] - second endpoint of edge e
+
+    private CsrGraph(int nodesCount, int[ ] degrees, int[ ] offsets, int[ ] neighbors, int[ ] edgeIds,
+                     int[ ] edgeSources, int[ ] edgeTargets) {
+        this.nodesCount = nodesCount;
+        this.edgesCount = edgeSources.length;
+        this.degrees = degrees;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.edgeIds = edgeIds;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+    }
+
+    /**
+     * Wraps arrays as returned by the getters of a graph, e.g. read back from a file. Only their lengths are
+     * checked, the neighbour lists have to be sorted and consistent with the edges.
+     *
+     * @return graph backed by the given arrays
+     */
+    public static CsrGraph wrap(int nodesCount, int[ ] offsets, int[ ] neighbors, int[ ] edgeIds, int[ ] sources,
+                                int[ ] targets) {
+        int m = sources.length;
+        if (targets.length != m || offsets.length != nodesCount + 1 || neighbors.length != 2 * m
+                || edgeIds.length != 2 * m || offsets[nodesCount] != 2 * m) {
+            throw new IllegalArgumentException("Incorrect graph arrays. Should describe " + nodesCount + " nodes and "
+                    + m + " edges.");
+        }
+        int[ ] degrees = new int[nodesCount];
+        for (int x = 0; x < nodesCount; x++) {
+            degrees[x] = offsets[x + 1] - offsets[x];
+        }
+        return new CsrGraph(nodesCount, degrees, offsets, neighbors, edgeIds, sources, targets);
+    }
+
+    /**
+     * Builds the graph with two counting sort passes: endpoints are first bucketed by node in edge order and
+     * then transposed, which leaves every neighbour list sorted without any comparison sort.
+     *
+     * @param nodesCount number of nodes, node ids are 0 .. nodesCount - 1
+     * @param sources sources[e] - first endpoint of edge e
+     * @param targets targets[e] - second endpoint of edge e
+     * @return graph with edge ids equal to the positions in sources/targets
+     * @throws IllegalArgumentException if the edges contain loops or multiple edges
+     */
+    public static CsrGraph of(int nodesCount, int[ ] sources, int[ ] targets) {
+        if (sources.length != targets.length) {
+            throw new IllegalArgumentException("Edge sources and targets differ in length");
+        }
+        int m = sources.length;
+        int[ ] degrees = new int[nodesCount];
+        for (int e = 0; e < m; e++) {
+            if (sources[e] == targets[e]) {
+                throw new IllegalArgumentException("Loop on node " + sources[e] + " in edge " + e);
+            }
+            degrees[sources[e]]++;
+            degrees[targets[e]]++;
+        }
+        int[ ] offsets = new int[nodesCount + 1];
+        for (int x = 0; x < nodesCount; x++) {
+            offsets[x + 1] = offsets[x] + degrees[x];
+        }
+
+        // bucket endpoints by node in edge order
+        int[ ] pos = new int[nodesCount];
+        int[ ] bucketNeighbors = new int[2 * m];
+        int[ ] bucketEdgeIds = new int[2 * m];
+        System.arraycopy(offsets, 0, pos, 0, nodesCount);
+        for (int e = 0; e < m; e++) {
+            int a = sources[e], b = targets[e];
+            bucketNeighbors[pos[a]] = b;
+            bucketEdgeIds[pos[a]++] = e;
+            bucketNeighbors[pos[b]] = a;
+            bucketEdgeIds[pos[b]++] = e;
+        }
+
+        // transpose, visiting nodes in increasing order appends them to the neighbour lists in sorted order
+        int[ ] neighbors = new int[2 * m];
+        int[ ] edgeIds = new int[2 * m];
+        System.arraycopy(offsets, 0, pos, 0, nodesCount);
+        for (int x = 0; x < nodesCount; x++) {
+            for (int i = offsets[x]; i < offsets[x + 1]; i++) {
+                int y = bucketNeighbors[i];
+                neighbors[pos[y]] = x;
+                edgeIds[pos[y]++] = bucketEdgeIds[i];
+            }
+        }
+
+        for (int x = 0; x < nodesCount; x++) {
+            for (int i = offsets[x] + 1; i < offsets[x + 1]; i++) {
+                if (neighbors[i] == neighbors[i - 1]) {
+                    throw new IllegalArgumentException("Multiple edges between nodes " + x + " and " + neighbors[i]);
+                }
+            }
+        }
+
+        return new CsrGraph(nodesCount, degrees, offsets, neighbors, edgeIds, sources, targets);
+    }
+
+    public int getNodesCount() {
+        return nodesCount;
+    }
+
+    public int getEdgesCount() {
+        return edgesCount;
+    }
+
+    public int[ ] getDegrees() {
+        return degrees;
+    }
+
+    public int[ ] getOffsets() {
+        return offsets;
+    }
+
+    public int[ ] getNeighbors() {
+        return neighbors;
+    }
+
+    public int[ ] getEdgeIds() {
+        return edgeIds;
+    }
+
+    public int[ ] getEdgeSources() {
+        return edgeSources;
+    }
+
+    public int[ ] getEdgeTargets() {
+        return edgeTargets;
+    }
+
+    public int degree(int x) {
+        return degrees[x];
+    }
+
+    /**
+     * @return true if there is an edge between nodes x and y
+     */
+    public boolean hasEdge(int x, int y) {
+        return Arrays.binarySearch(neighbors, offsets[x], offsets[x + 1], y) >= 0;
+    }
+
+    /**
+     * @param seeds start nodes
+     * @param radius maximum distance from the closest seed
+     * @return sorted nodes within distance radius of any seed, seeds included
+     */
+    public int[ ] neighborhood(int[ ] seeds, int radius) {
+        int[ ] dist = new int[nodesCount];
+        Arrays.fill(dist, -1);
+        int[ ] queue = new int[nodesCount];
+        int head = 0, tail = 0;
+        for (int seed : seeds) {
+            if (dist[seed] < 0) {
+                dist[seed] = 0;
+                queue[tail++] = seed;
+            }
+        }
+        while (head < tail) {
+            int x = queue[head++];
+            if (dist[x] == radius) continue;
+            for (int i = offsets[x]; i < offsets[x + 1]; i++) {
+                int y = neighbors[i];
+                if (dist[y] >= 0) continue;
+                dist[y] = dist[x] + 1;
+                queue[tail++] = y;
+            }
+        }
+        int[ ] nodes = Arrays.copyOf(queue, tail);
+        Arrays.sort(nodes);
+        return nodes;
+    }
+
+    /**
+     * @param nodes distinct nodes of the subgraph
+     * @return subgraph induced by nodes, node i of the subgraph is nodes[i]
+     */
+    public CsrGraph inducedSubgraph(int[ ] nodes) {
+        int[ ] local = new int[nodesCount];
+        Arrays.fill(local, -1);
+        for (int i = 0; i < nodes.length; i++) {
+            local[nodes[i]] = i;
+        }
+        int m = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            for (int j = offsets[nodes[i]]; j < offsets[nodes[i] + 1]; j++) {
+                if (local[neighbors[j]] > i) m++;
+            }
+        }
+        int[ ] sources = new int[m];
+        int[ ] targets = new int[m];
+        int e = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            for (int j = offsets[nodes[i]]; j < offsets[nodes[i] + 1]; j++) {
+                if (local[neighbors[j]] > i) {
+                    sources[e] = i;
+                    targets[e++] = local[neighbors[j]];
+                }
+            }
+        }
+        return of(nodes.length, sources, targets);
+    }
+}
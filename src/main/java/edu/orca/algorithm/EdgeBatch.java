@@ -0,0 +1,78 @@
+package edu.orca.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Batch of edge additions and removals applied at once by {@link IncrementalOrca}
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class EdgeBatch {
+    private int[ ] added = new int[16]; // endpoints of added edges, two per edge
+    private int[ ] removed = new int[16]; // endpoints of removed edges, two per edge
+    private int addedCount;
+    private int removedCount;
+
+    /**
+     * @param a first endpoint of the new edge
+     * @param b second endpoint of the new edge
+     * @return this batch
+     */
+    public EdgeBatch add(int a, int b) {
+        checkEdge(a, b);
+        if (2 * addedCount == added.length) added = Arrays.copyOf(added, 2 * added.length);
+        added[2 * addedCount] = a;
+        added[2 * addedCount + 1] = b;
+        addedCount++;
+        return this;
+    }
+
+    /**
+     * @param a first endpoint of the removed edge
+     * @param b second endpoint of the removed edge
+     * @return this batch
+     */
+    public EdgeBatch remove(int a, int b) {
+        checkEdge(a, b);
+        if (2 * removedCount == removed.length) removed = Arrays.copyOf(removed, 2 * removed.length);
+        removed[2 * removedCount] = a;
+        removed[2 * removedCount + 1] = b;
+        removedCount++;
+        return this;
+    }
+
+    public int getAddedCount() {
+        return addedCount;
+    }
+
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * @return endpoints of the added edges, edge i is (added[2i], added[2i + 1])
+     */
+    public int[ ] getAdded() {
+        return Arrays.copyOf(added, 2 * addedCount);
+    }
+
+    /**
+     * @return endpoints of the removed edges, edge i is (removed[2i], removed[2i + 1])
+     */
+    public int[ ] getRemoved() {
+        return Arrays.copyOf(removed, 2 * removedCount);
+    }
+
+    public boolean isEmpty() {
+        return addedCount == 0 && removedCount == 0;
+    }
+
+    private static void checkEdge(int a, int b) {
+        if (a < 0 || b < 0) {
+            throw new IllegalArgumentException("Incorrect edge (" + a + ", " + b + "). Node ids should not be negative.");
+        }
+        if (a == b) {
+            throw new IllegalArgumentException("Incorrect edge (" + a + ", " + b + "). Loops are not allowed.");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package edu.orca.algorithm;
+
+/**
+ * Numbering of edge orbits, the orbits of the edges of a graphlet under its automorphisms. Edge orbits are
+ * ordered by graphlet and, within a graphlet, by the node orbits of their endpoints, which tell apart the edge
+ * orbits of every graphlet. Graphlets on max 4 nodes have edge orbits 0 - 11 and graphlets on max 5 nodes
+ * 0 - 67; the single edge is left out, as every edge is exactly one.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class EdgeOrbits {
+    public static final int ORBITS_4 = 12;
+    public static final int ORBITS_5 = 68;
+
+    // ENDPOINTS[o] - node orbits of the endpoints of an edge in edge orbit o, smaller first
+    private static final int[ ][ ] ENDPOINTS = {
+            {1, 2}, {3, 3},
+            {4, 5}, {5, 5}, {6, 7}, {8, 8}, {9, 11}, {10, 10}, {10, 11}, {12, 13}, {13, 13}, {14, 14},
+            {15, 16}, {16, 17}, {18, 20}, {19, 21}, {20, 21}, {22, 23}, {24, 26}, {25, 26}, {26, 26}, {27, 28},
+            {28, 30}, {29, 29}, {29, 30}, {31, 33}, {32, 32}, {32, 33}, {34, 34}, {35, 38}, {36, 37}, {37, 38},
+            {39, 42}, {40, 41}, {40, 42}, {41, 42}, {43, 43}, {43, 44}, {45, 47}, {46, 48}, {47, 48}, {48, 48},
+            {49, 50}, {51, 51}, {51, 53}, {52, 53}, {53, 53}, {54, 55}, {55, 55}, {56, 58}, {57, 57}, {57, 58},
+            {59, 60}, {59, 61}, {60, 60}, {60, 61}, {62, 63}, {63, 64}, {64, 64}, {65, 67}, {66, 66}, {66, 67},
+            {67, 67}, {68, 68}, {68, 69}, {70, 71}, {71, 71}, {72, 72}
+    };
+
+    private EdgeOrbits() {
+    }
+
+    /**
+     * @return node orbits of the endpoints of an edge in edge orbit o, smaller first
+     */
+    public static int[ ] getEndpointOrbits(int o) {
+        if (o < 0 || o >= ORBITS_5) {
+            throw new IllegalArgumentException("Incorrect edge orbit " + o + ". Should be between 0 and "
+                    + (ORBITS_5 - 1) + ".");
+        }
+        return ENDPOINTS[o].clone();
+    }
+}
@@ -1,77 +1,505 @@
 package edu.orca.algorithm;
 
-import javaslang.Tuple;
+import edu.orca.utils.PairCountMap;
+import edu.orca.utils.PairCounts;
+import edu.orca.utils.SpilledTripleCounts;
+import edu.orca.utils.TripleCountMap;
+import edu.orca.utils.TripleCounts;
+import edu.orca.utils.Util;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import static edu.orca.utils.Util.adjacent;
-import static edu.orca.utils.Util.createTuple;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 /**
  * Created by KanthKumar on 2/22/17.
  */
 public class FiveNodeGraphletOrbitCounter extends OrbitCounter {
+    private static final int ORBITS = 73;
+
+    // LOOP[o - 15] - orbit (4 - 14) whose enumeration loop accumulates f_o
+    private static final int[ ] LOOP = {
+            4, 4, 5, 4, 6, 6, 7, 6, 7, 9, 10, 11, 4, 9, 10, 11, 9, 10, 11, 4, 4, 8, 8, 8, 9, 12, 13, 13, 10,
+            11, 9, 12, 12, 13, 8, 8, 8, 10, 8, 12, 13, 9, 14, 14, 12, 13, 13, 8, 12, 13, 12, 14, 14, 13, 13, 14, 14
+    };
+
+    // upper limit of the initial size of the common node tables, larger tables grow on demand
+    private static final long INITIAL_TABLE_LIMIT = 1 << 22;
+    // entries of a common node table sized up front, larger tables would exceed the maximum table capacity
+    private static final long MAX_TABLE_ENTRIES = 1 << 29;
+    // bytes of a pair table slot (long key, int count) and of a triple table slot (long and int key, int count)
+    private static final int PAIR_SLOT_BYTES = 12;
+    private static final int TRIPLE_SLOT_BYTES = 16;
+    // bytes of a buffered hub triple (long and int key)
+    private static final int HUB_TRIPLE_BYTES = Long.BYTES + Integer.BYTES;
+    // share of the memory budget reserved for the hub triples buffered between two spilled runs
+    private static final int SPILL_BUFFER_SHARE = 8;
+    // bounds of the number of hub triples buffered in memory between two spilled runs
+    private static final long MIN_SPILL_BUFFER = 1 << 10;
+    private static final long MAX_SPILL_BUFFER = 1 << 24;
 
-    private Map<Tuple, Integer> common2 = new HashMap<>();
-    private Map<Tuple, Integer> common3 = new HashMap<>();
+    private static final int EDGE_ORBITS = EdgeOrbits.ORBITS_5;
+    // bits of the graphlet on 4 nodes x, y, c, d of an edge x - y, one per node pair xy, xc, xd, yc, yd and cd
+    private static final int XC = 1 << 1, XD = 1 << 2, YC = 1 << 3, YD = 1 << 4, CD = 1 << 5;
+    // SHAPES[p - 2] - node pairs of the graphlet whose nodes are named as in countGraphlet when x - y is in edge
+    // orbit p
+    private static final int[ ] SHAPES = {35, 13, 7, 45, 39, 43, 15, 47, 31, 63};
+    // SHAPE[pairs] - 4 * p for the edge orbit p of x - y in the graphlet of node pairs pairs, plus 1 if x and y
+    // and plus 2 if c and d are to be swapped to get SHAPES[p - 2]
+    private static final int[ ] SHAPE = new int[64];
+
+    static {
+        for (int p = 2; p < 12; p++) {
+            for (int swap = 0; swap < 4; swap++) {
+                SHAPE[swapNodes(SHAPES[p - 2], swap)] = 4 * p + swap;
+            }
+        }
+    }
+
+    private PairCounts common2; // common2(a, b) - number of common neighbours of nodes a and b
+    private TripleCounts common3; // common3(a, b, c) - number of common neighbours of connected nodes a, b and c
+    private boolean commonNodesIndexed; // common2 and common3 are taken from a graph index
+    private long commonNodesMemoryBudget = Long.MAX_VALUE;
+    private Path spillDirectory;
 
     public FiveNodeGraphletOrbitCounter(OrcaGraph graph) {
+        this(graph.getCsrGraph());
+    }
+
+    public FiveNodeGraphletOrbitCounter(CsrGraph graph) {
         super(graph);
-        this.orbit = new long[n][73];
+    }
+
+    @Override
+    public int getOrbitsCount() {
+        return ORBITS;
+    }
+
+    @Override
+    public int getEdgeOrbitsCount() {
+        return EDGE_ORBITS;
     }
 
     /**
      * count graphlets on max 5 nodes
      */
     @Override
-    public long[ ][ ] count() {
-        // precompute common nodes
-        for (int x = 0; x < n; x++) {
-            for (int n1 = 0; n1 < deg[x]; n1++) {
-                int a = adj[x][n1];
-                for (int n2 = n1 + 1; n2 < deg[x]; n2++) {
-                    int b = adj[x][n2];
-                    Tuple ab = createTuple(a, b);
-                    common2.put(ab, common2.getOrDefault(ab, 0) + 1);
-                    for (int n3 = n2 + 1; n3 < deg[x]; n3++) {
-                        int c = adj[x][n3];
-                        boolean st = adjacent(adj[a], b) ? (adjacent(adj[a], c) || adjacent(adj[b], c)) :
-                                (adjacent(adj[a], c) && adjacent(adj[b], c));
-                        if (!st) continue;
-                        Tuple abc = createTuple(a, b, c);
-                        common3.put(abc, common3.getOrDefault(abc, 0) + 1);
+    protected void count(int[ ] nodes, RowWriter writer) {
+        Checkpoint checkpoint = openCheckpoint(nodes);
+        boolean[ ] loops = requiredLoops();
+        if (loops[8] || loops[9] || loops[12] || loops[13] || loops[14]) {
+            if (commonNodesIndexed) {
+                buildAdjacencyIndex();
+                reportIndexedCommonNodes();
+            } else if (checkpoint == null) {
+                precomputeCommonNodes(nodes);
+            } else {
+                restoreCommonNodes(nodes, checkpoint);
+            }
+        } else {
+            buildAdjacencyIndex();
+        }
+
+        try {
+            // precompute triangles that span over edges
+            int[ ] tri = checkpoint == null ? countTriangles() : checkpoint.ints("triangles", this::countTriangles);
+
+            // count full graphlets
+            long[ ] C5 = !isRequired(72) ? new long[n] :
+                    checkpoint == null ? countFullGraphlets() : checkpoint.longs("cliques", this::countFullGraphlets);
+
+            // set up a system of equations relating orbit counts
+            solveNodes(nodes, checkpoint, writer, (from, to, blockWriter) ->
+                    parallelFor(to - from, i -> nodeWorkEstimate(nodes[from + i]), scratchFactory(), (i, scratch) -> {
+                        Arrays.fill(scratch.row, 0);
+                        countNode(nodes[from + i], tri, C5, loops, scratch, scratch.row);
+                        blockWriter.write(from + i, scratch.row);
+                    }));
+        } finally {
+            releaseCommonNodes();
+        }
+    }
+
+    /**
+     * deletes common nodes spilled to disk
+     */
+    private void releaseCommonNodes() {
+        if (!(common3 instanceof BudgetedCommonNeighborCounts)) return;
+        try {
+            ((BudgetedCommonNeighborCounts) common3).close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            common2 = null;
+            common3 = null;
+        }
+    }
+
+    /**
+     * reads the common node tables from checkpoint, precomputing and storing them if they are not there yet
+     */
+    private void restoreCommonNodes(int[ ] nodes, Checkpoint checkpoint) {
+        PairCountMap pairs = checkpoint.read("common2", PairCountMap::read);
+        TripleCountMap triples = checkpoint.read("common3", TripleCountMap::read);
+        if (pairs != null && triples != null) {
+            buildAdjacencyIndex();
+            metrics.setCommonNodes(pairs.size(), triples.size());
+            common2 = pairs;
+            common3 = triples;
+            return;
+        }
+        precomputeCommonNodes(nodes);
+        // budgeted common nodes are partly computed on demand and are not checkpointed
+        if (common2 instanceof PairCountMap && common3 instanceof TripleCountMap) {
+            checkpoint.write("common2", ((PairCountMap) common2)::write);
+            checkpoint.write("common3", ((TripleCountMap) common3)::write);
+        }
+    }
+
+    /**
+     * Estimates the orbits of all nodes without enumerating every graphlet. For node x each neighbour a, from
+     * which the graphlets of x are enumerated, is sampled independently with probability
+     * p = min(1, sampleBudget / deg(x)); the sums of the sampled neighbours are scaled by 1 / p (Horvitz-Thompson)
+     * and solved like exact counts, which keeps the estimates unbiased. The variance of every estimate is
+     * estimated from the solved contributions of the sampled neighbours.
+     * <p>
+     * Common node counts are computed on demand instead of being precomputed for the whole graph. Orbits 0 - 3,
+     * triangles and 5-cliques (orbit 72) are exact.
+     *
+     * @param sampleBudget expected number of neighbours sampled per node, nodes of at most this degree are exact
+     * @param seed seed of the sampling, equal seeds give equal estimates regardless of the parallelism
+     * @return estimated orbit counts with their variances
+     */
+    public OrbitEstimates estimate(int sampleBudget, long seed) {
+        if (sampleBudget < 1) {
+            throw new IllegalArgumentException("Incorrect sample budget " + sampleBudget + ". Should be at least 1.");
+        }
+        boolean[ ] loops = requiredLoops();
+        buildAdjacencyIndex();
+        if (commonNodesIndexed) {
+            reportIndexedCommonNodes();
+        } else {
+            CommonNeighborCounts commonNeighbors = new CommonNeighborCounts(graph, adjacency, metrics);
+            common2 = commonNeighbors;
+            common3 = commonNeighbors;
+        }
+        int[ ] tri = countTriangles();
+        long[ ] C5 = countFullGraphlets();
+
+        double[ ][ ] estimates = new double[n][ORBITS];
+        double[ ][ ] variances = new double[n][ORBITS];
+        parallelFor(n, x -> nodeWorkEstimate(x) * Math.min(deg[x], sampleBudget) / Math.max(1, deg[x]), scratchFactory(),
+                (x, scratch) -> estimateNode(x, tri, C5, loops, sampleBudget, seed, scratch, estimates[x], variances[x]));
+        return new OrbitEstimates(estimates, variances);
+    }
+
+    private Supplier<Scratch> scratchFactory() {
+        return reusable(Scratch.class, scratch -> scratch.commonX.length >= n, () -> new Scratch(n));
+    }
+
+    /**
+     * also takes the common neighbour tables of index if it holds them
+     */
+    @Override
+    public void setGraphIndex(GraphIndex index) {
+        super.setGraphIndex(index);
+        if (index.hasCommonNodes()) {
+            common2 = index.getCommonPairs();
+            common3 = index.getCommonTriples();
+            commonNodesIndexed = true;
+        }
+    }
+
+    /**
+     * records the sizes of the common node tables taken from the graph index in the metrics of this count
+     */
+    private void reportIndexedCommonNodes() {
+        metrics.setCommonNodes(getCommonPairs().size(), getCommonTriples().size());
+    }
+
+    public long getCommonNodesMemoryBudget() {
+        return commonNodesMemoryBudget;
+    }
+
+    /**
+     * Limits the memory of the common node tables. If the tables of the whole graph would exceed it, only the
+     * common neighbours up to a degree threshold are tabulated, chosen as high as the budget allows; common
+     * neighbours above it (hubs) are counted on demand or spilled to disk, see {@link #setSpillDirectory}.
+     *
+     * @param commonNodesMemoryBudget number of bytes, Long.MAX_VALUE (default) tabulates all common nodes
+     */
+    public void setCommonNodesMemoryBudget(long commonNodesMemoryBudget) {
+        if (commonNodesMemoryBudget < 0) {
+            throw new IllegalArgumentException("Incorrect memory budget " + commonNodesMemoryBudget + ". Should not be negative.");
+        }
+        this.commonNodesMemoryBudget = commonNodesMemoryBudget;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * @param spillDirectory local directory the common neighbour triples of hubs are spilled to when the common
+     *                       node tables exceed their memory budget, null (default) counts them on demand
+     */
+    public void setSpillDirectory(Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    PairCountMap getCommonPairs() {
+        return (PairCountMap) common2;
+    }
+
+    TripleCountMap getCommonTriples() {
+        return (TripleCountMap) common3;
+    }
+
+    /**
+     * @return loops[o] - the enumeration loop of orbit o (4 - 14) is needed by the selected orbits
+     */
+    private boolean[ ] requiredLoops() {
+        boolean[ ] loops = new boolean[15];
+        for (int o = 4; o < 15; o++) loops[o] = isRequired(o);
+        for (int o = 15; o < 72; o++) {
+            if (isRequired(o)) loops[LOOP[o - 15]] = true;
+        }
+        return loops;
+    }
+
+    /**
+     * precompute common nodes of neighbour pairs (common2) and connected neighbour triples (common3)
+     */
+    public void precomputeCommonNodes() {
+        precomputeCommonNodes(allNodes());
+    }
+
+    /**
+     * Precomputes the common nodes needed by the equations of the given nodes. These only look up pairs and
+     * triples within distance 2 of their node, whose common neighbours lie within distance 3, so a subset of
+     * the nodes keeps only the entries of its 2-hop neighbourhood.
+     */
+    private void precomputeCommonNodes(int[ ] nodes) {
+        buildAdjacencyIndex();
+
+        int[ ] centers = nodes;
+        boolean[ ] keep = null; // keep[a] - entries containing node a are needed, null keeps all of them
+        if (nodes.length < n) {
+            keep = new boolean[n];
+            for (int a : graph.neighborhood(nodes, 2)) keep[a] = true;
+            centers = graph.neighborhood(nodes, 3);
+        }
+
+        // the tables are sized from the number of neighbour pairs and triples
+        long pairs = 0, triples = 0;
+        for (int x : centers) {
+            pairs += pairs(deg[x]);
+            triples += triples(deg[x]);
+        }
+        PhaseTimer timer = startPhase(CountPhase.COMMON_NODES);
+        try {
+            if (commonNodesFit(pairs, triples, commonNodesMemoryBudget)) {
+                PairCountMap common2 = new PairCountMap(Math.min(pairs, INITIAL_TABLE_LIMIT));
+                TripleCountMap common3 = new TripleCountMap(Math.min(triples, INITIAL_TABLE_LIMIT));
+                for (int x : centers) countCommonNodes(x, keep, common2, common3);
+                metrics.setCommonNodes(common2.size(), common3.size());
+                this.common2 = common2;
+                this.common3 = common3;
+            } else {
+                precomputeBudgetedCommonNodes(centers, keep);
+            }
+        } finally {
+            timer.close();
+        }
+    }
+
+    /**
+     * tabulates the common nodes of the centers up to a degree threshold within the memory budget, the hubs
+     * above it are counted on demand or spilled
+     */
+    private void precomputeBudgetedCommonNodes(int[ ] centers, boolean[ ] keep) {
+        // tabulate the common neighbours of at most hubDegree, sized up front as growing doubles the memory
+        int hubDegree = hubDegree(centers);
+        long lightPairs = 0, lightTriples = 0;
+        for (int x : centers) {
+            if (deg[x] > hubDegree) continue;
+            lightPairs += pairs(deg[x]);
+            lightTriples += triples(deg[x]);
+        }
+        PairCountMap common2 = new PairCountMap(lightPairs);
+        TripleCountMap common3 = new TripleCountMap(lightTriples);
+        for (int x : centers) {
+            if (deg[x] <= hubDegree) countCommonNodes(x, keep, common2, common3);
+        }
+
+        // hubOff / hubNbr - hub neighbours of every node
+        int[ ] hubOff = new int[n + 1];
+        for (int a = 0; a < n; a++) {
+            hubOff[a + 1] = hubOff[a];
+            for (int i = off[a]; i < off[a + 1]; i++) {
+                if (deg[nbr[i]] > hubDegree) hubOff[a + 1]++;
+            }
+        }
+        int[ ] hubNbr = new int[hubOff[n]];
+        for (int a = 0, j = 0; a < n; a++) {
+            for (int i = off[a]; i < off[a + 1]; i++) {
+                if (deg[nbr[i]] > hubDegree) hubNbr[j++] = nbr[i];
+            }
+        }
+
+        SpilledTripleCounts hubTriples = spillDirectory == null ? null :
+                spillHubTriples(centers, keep, hubDegree, commonNodesBytes(lightPairs, lightTriples) + 4L * (n + hubNbr.length));
+        BudgetedCommonNeighborCounts commonNeighbors =
+                new BudgetedCommonNeighborCounts(common2, common3, hubTriples, hubOff, hubNbr, adjacency);
+        metrics.setCommonNodes(commonNeighbors.pairsSize(), commonNeighbors.triplesSize());
+        this.common2 = commonNeighbors;
+        this.common3 = commonNeighbors;
+    }
+
+    /**
+     * counts x as common node of its neighbour pairs and connected neighbour triples whose nodes are all kept
+     */
+    private void countCommonNodes(int x, boolean[ ] keep, PairCountMap common2, TripleCountMap common3) {
+        for (int n1 = off[x]; n1 < off[x + 1]; n1++) {
+            int a = nbr[n1];
+            if (keep != null && !keep[a]) continue;
+            for (int n2 = n1 + 1; n2 < off[x + 1]; n2++) {
+                int b = nbr[n2];
+                if (keep != null && !keep[b]) continue;
+                common2.increment(a, b);
+                for (int n3 = n2 + 1; n3 < off[x + 1]; n3++) {
+                    int c = nbr[n3];
+                    if (keep != null && !keep[c]) continue;
+                    if (connected(a, b, c)) common3.increment(a, b, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the connected neighbour triples of the hub centers to sorted runs in the spill directory, buffering
+     * as many triples as the memory left by the tables allows, at least the reserved share of the budget
+     *
+     * @param usedBytes memory taken by the tables and the hub neighbours
+     */
+    private SpilledTripleCounts spillHubTriples(int[ ] centers, boolean[ ] keep, int hubDegree, long usedBytes) {
+        long buffer = Math.max(spillReserve(), commonNodesMemoryBudget - Math.min(usedBytes, commonNodesMemoryBudget)) / HUB_TRIPLE_BYTES;
+        try (SpilledTripleCounts.Builder builder = new SpilledTripleCounts.Builder(spillDirectory,
+                (int) Math.max(MIN_SPILL_BUFFER, Math.min(buffer, MAX_SPILL_BUFFER)))) {
+            for (int x : centers) {
+                if (deg[x] <= hubDegree) continue;
+                for (int n1 = off[x]; n1 < off[x + 1]; n1++) {
+                    int a = nbr[n1];
+                    if (keep != null && !keep[a]) continue;
+                    for (int n2 = n1 + 1; n2 < off[x + 1]; n2++) {
+                        int b = nbr[n2];
+                        if (keep != null && !keep[b]) continue;
+                        for (int n3 = n2 + 1; n3 < off[x + 1]; n3++) {
+                            int c = nbr[n3];
+                            if (keep != null && !keep[c]) continue;
+                            if (connected(a, b, c)) builder.increment(a, b, c);
+                        }
                     }
                 }
             }
+            return builder.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        // precompute triangles that span over edges
-        int[ ] tri = countTriangles();
+    /**
+     * @return bytes of the memory budget kept free of tables for the hub triple buffer, 0 without spilling
+     */
+    private long spillReserve() {
+        if (spillDirectory == null) return 0;
+        return Math.min(commonNodesMemoryBudget / SPILL_BUFFER_SHARE, MAX_SPILL_BUFFER * HUB_TRIPLE_BYTES);
+    }
+
+    /**
+     * @return largest degree whose centers' common node tables fit into the memory budget less the spill
+     * reserve, at least 1
+     */
+    private int hubDegree(int[ ] centers) {
+        long budget = commonNodesMemoryBudget - spillReserve();
+        int[ ] degrees = new int[centers.length];
+        for (int i = 0; i < centers.length; i++) degrees[i] = deg[centers[i]];
+        Arrays.sort(degrees);
+        int hubDegree = 1;
+        long pairs = 0, triples = 0;
+        for (int i = 0; i < degrees.length; i++) {
+            pairs += pairs(degrees[i]);
+            triples += triples(degrees[i]);
+            if (i + 1 < degrees.length && degrees[i + 1] == degrees[i]) continue;
+            if (!commonNodesFit(pairs, triples, budget)) break;
+            hubDegree = Math.max(hubDegree, degrees[i]);
+        }
+        return hubDegree;
+    }
+
+    private static boolean commonNodesFit(long pairs, long triples, long budget) {
+        return pairs <= MAX_TABLE_ENTRIES && triples <= MAX_TABLE_ENTRIES
+                && commonNodesBytes(pairs, triples) <= budget;
+    }
+
+    /**
+     * @return bytes of the common node tables holding up to the given numbers of pairs and triples
+     */
+    private static long commonNodesBytes(long pairs, long triples) {
+        return (long) Util.tableCapacity(pairs, Integer.MAX_VALUE) * PAIR_SLOT_BYTES
+                + (long) Util.tableCapacity(triples, Integer.MAX_VALUE) * TRIPLE_SLOT_BYTES;
+    }
+
+    private static long pairs(long d) {
+        return d * (d - 1) / 2;
+    }
+
+    private static long triples(long d) {
+        return d * (d - 1) * (d - 2) / 6;
+    }
+
+    /**
+     * @return nodes a, b and c induce a connected subgraph
+     */
+    private boolean connected(int a, int b, int c) {
+        return adjacent(a, b) ? (adjacent(a, c) || adjacent(b, c)) : (adjacent(a, c) && adjacent(b, c));
+    }
+
+    /**
+     * Count full graphlets (5-cliques). Every clique is found once from its two highest nodes x > y, the
+     * edges (x, y) are split across the workers.
+     *
+     * @return C5[x] - number of 5-cliques containing node x
+     */
+    public long[ ] countFullGraphlets() {
+        buildAdjacencyIndex();
 
-        // count full graphlets
-        long[ ] C5 = new long[n];
-        int[ ] neigh = new int[n];
-        int[ ] neigh2 = new int[n];
-        int nn, nn2;
-        for (int x = 0; x < n; x++) {
-            for (int nx = 0; nx < deg[x]; nx++) {
-                int y = adj[x][nx];
-                if (y >= x) break;
-                nn = 0;
-                for (int ny = 0; ny < deg[y]; ny++) {
-                    int z = adj[y][ny];
+        NodeCounts C5 = new NodeCounts(n, parallelism);
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        int maxDegree = maxDegree();
+        timePhase(CountPhase.FULL_GRAPHLETS, () -> {
+            parallelFor(m, e -> deg[Math.min(sources[e], targets[e])], reusable(int[ ][ ].class, b -> b[0].length >= maxDegree, () -> new int[2][maxDegree]), (e, buffers) -> {
+                int[ ] neigh = buffers[0];
+                int[ ] neigh2 = buffers[1];
+                int x = Math.max(sources[e], targets[e]);
+                int y = Math.min(sources[e], targets[e]);
+                int nn = 0;
+                for (int ny = off[y]; ny < off[y + 1]; ny++) {
+                    int z = nbr[ny];
                     if (z >= y) break;
-                    if (adjacent(adj[x], z)) {
+                    if (adjacent(x, z)) {
                         neigh[nn++] = z;
                     }
                 }
                 for (int i = 0; i < nn; i++) {
                     int z = neigh[i];
-                    nn2 = 0;
+                    int nn2 = 0;
                     for (int j = i + 1; j < nn; j++) {
                         int zz = neigh[j];
-                        if (adjacent(adj[z], zz)) {
+                        if (adjacent(z, zz)) {
                             neigh2[nn2++] = zz;
                         }
                     }
@@ -79,323 +507,786 @@ public class FiveNodeGraphletOrbitCounter extends OrbitCounter {
                         int zz = neigh2[i2];
                         for (int j2 = i2 + 1; j2 < nn2; j2++) {
                             int zzz = neigh2[j2];
-                            if (adjacent(adj[zz], zzz)) {
-                                C5[x]++;
-                                C5[y]++;
-                                C5[z]++;
-                                C5[zz]++;
-                                C5[zzz]++;
+                            if (adjacent(zz, zzz)) {
+                                C5.increment(x);
+                                C5.increment(y);
+                                C5.increment(z);
+                                C5.increment(zz);
+                                C5.increment(zzz);
                             }
                         }
                     }
                 }
+            });
+        });
+        return C5.toArray();
+    }
+
+    /**
+     * set up and solve the system of equations relating orbit counts of node x
+     */
+    private void countNode(int x, int[ ] tri, long[ ] C5, boolean[ ] loops, Scratch scratch, long[ ] orbit) {
+        countSmallerGraphlets(x, scratch, orbit);
+
+        long[ ] f = scratch.f;
+        Arrays.fill(f, 0);
+        for (int nx1 = off[x]; nx1 < off[x + 1]; nx1++) {
+            countNeighbor(x, nx1, tri, loops, scratch, f);
+        }
+
+        solve(f, C5[x], orbit);
+        clearUnrequired(orbit);
+    }
+
+    /**
+     * estimate orbit counts of node x from a sample of its neighbours, see {@link #estimate(int, long)}
+     */
+    private void estimateNode(int x, int[ ] tri, long[ ] C5, boolean[ ] loops, int sampleBudget, long seed,
+                              Scratch scratch, double[ ] estimate, double[ ] variance) {
+        long[ ] row = scratch.row;
+        Arrays.fill(row, 0);
+        countSmallerGraphlets(x, scratch, row);
+
+        double p = deg[x] <= sampleBudget ? 1 : (double) sampleBudget / deg[x];
+        long[ ] f = scratch.f;
+        double[ ] sum = scratch.sum;
+        double[ ] delta = scratch.delta;
+        double[ ] solved = scratch.solved;
+        Arrays.fill(sum, 0);
+        for (int nx1 = off[x]; nx1 < off[x + 1]; nx1++) {
+            if (p < 1 && uniform(seed, x, nx1 - off[x]) >= p) continue;
+            Arrays.fill(f, 0);
+            countNeighbor(x, nx1, tri, loops, scratch, f);
+            for (int o = 4; o < 72; o++) {
+                delta[o] = f[o];
+                sum[o] += f[o] / p;
+            }
+            if (p < 1) {
+                // variance estimator of Poisson sampling: sum of (1 - p) / p^2 * y^2 over the sampled neighbours
+                OrbitEquations.solve(delta, 0, solved);
+                for (int o = 4; o < 72; o++) {
+                    variance[o] += (1 - p) / (p * p) * solved[o] * solved[o];
+                }
             }
         }
 
-        int[ ] common_x = new int[n];
-        int[ ] common_x_list = new int[n];
+        OrbitEquations.solve(sum, C5[x], estimate);
+        for (int o = 0; o < 4; o++) estimate[o] = row[o];
+        for (int o = 0; o < ORBITS; o++) {
+            if (isRequired(o)) continue;
+            estimate[o] = 0;
+            variance[o] = 0;
+        }
+    }
+
+    /**
+     * @return uniform number in [0, 1) determined by seed, node x and the index of its neighbour
+     */
+    private static double uniform(long seed, int x, int neighbor) {
+        long bits = Util.mix(seed ^ Util.mix(((long) x << 32) | neighbor));
+        return (bits >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * count orbits 0 - 3 of node x and the paths of length 2 from x to every node (common_x)
+     */
+    private void countSmallerGraphlets(int x, Scratch scratch, long[ ] orbit) {
+        int[ ] common_x = scratch.commonX;
+        int[ ] common_x_list = scratch.commonXList;
+        for (int i = 0; i < scratch.ncx; i++) common_x[common_x_list[i]] = 0;
         int ncx = 0;
-        int[ ] common_a = new int[n];
-        int[ ] common_a_list = new int[n];
-        int nca = 0;
 
-        // set up a system of equations relating orbit counts
-        for (int x = 0; x < n; x++) {
-            for (int i = 0; i < ncx; i++) common_x[common_x_list[i]] = 0;
-            ncx = 0;
-
-            // smaller graphlets
-            orbit[x][0] = deg[x];
-            for (int nx1 = 0; nx1 < deg[x]; nx1++) {
-                int a = adj[x][nx1];
-                for (int nx2 = nx1 + 1; nx2 < deg[x]; nx2++) {
-                    int b = adj[x][nx2];
-                    if (adjacent(adj[a], b)) orbit[x][3]++;
-                    else orbit[x][2]++;
+        orbit[0] = deg[x];
+        for (int nx1 = off[x]; nx1 < off[x + 1]; nx1++) {
+            int a = nbr[nx1];
+            for (int nx2 = nx1 + 1; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2];
+                if (adjacent(a, b)) orbit[3]++;
+                else orbit[2]++;
+            }
+            for (int na = off[a]; na < off[a + 1]; na++) {
+                int b = nbr[na];
+                if (b != x && !adjacent(x, b)) {
+                    orbit[1]++;
+                    if (common_x[b] == 0) common_x_list[ncx++] = b;
+                    common_x[b]++;
                 }
-                for (int na = 0; na < deg[a]; na++) {
-                    int b = adj[a][na];
-                    if (b != x && !adjacent(adj[x], b)) {
-                        orbit[x][1]++;
-                        if (common_x[b] == 0) common_x_list[ncx++] = b;
-                        common_x[b]++;
-                    }
+            }
+        }
+        scratch.ncx = ncx;
+    }
+
+    /**
+     * Adds the graphlets of node x whose enumeration starts from its neighbour a = nbr[nx1]: orbits 4 - 14 are
+     * counted in f[4] - f[14], the sums of the equations of orbits 15 - 71 in f[15] - f[71].
+     */
+    private void countNeighbor(int x, int nx1, int[ ] tri, boolean[ ] loops, Scratch scratch, long[ ] f) {
+        int[ ] common_x = scratch.commonX;
+        int[ ] common_a = scratch.commonA;
+        int[ ] common_a_list = scratch.commonAList;
+        int nca = scratch.nca;
+        int a = nbr[nx1], xa = eid[nx1];
+
+        for (int i = 0; i < nca; i++) common_a[common_a_list[i]] = 0;
+        nca = 0;
+        if (loops[4] || loops[8] || loops[10]) {
+            for (int na = off[a]; na < off[a + 1]; na++) {
+                int b = nbr[na];
+                for (int nb = off[b]; nb < off[b + 1]; nb++) {
+                    int c = nbr[nb];
+                    if (c == a || adjacent(a, c)) continue;
+                    if (common_a[c] == 0) common_a_list[nca++] = c;
+                    common_a[c]++;
                 }
             }
+        }
 
-            long f_71 = 0, f_70 = 0, f_67 = 0, f_66 = 0, f_58 = 0, f_57 = 0; // 14
-            long f_69 = 0, f_68 = 0, f_64 = 0, f_61 = 0, f_60 = 0, f_55 = 0, f_48 = 0, f_42 = 0, f_41 = 0; // 13
-            long f_65 = 0, f_63 = 0, f_59 = 0, f_54 = 0, f_47 = 0, f_46 = 0, f_40 = 0; // 12
-            long f_62 = 0, f_53 = 0, f_51 = 0, f_50 = 0, f_49 = 0, f_38 = 0, f_37 = 0, f_36 = 0; // 8
-            long f_44 = 0, f_33 = 0, f_30 = 0, f_26 = 0; // 11
-            long f_52 = 0, f_43 = 0, f_32 = 0, f_29 = 0, f_25 = 0; // 10
-            long f_56 = 0, f_45 = 0, f_39 = 0, f_31 = 0, f_28 = 0, f_24 = 0; // 9
-            long f_35 = 0, f_34 = 0, f_27 = 0, f_18 = 0, f_16 = 0, f_15 = 0; // 4
-            long f_17 = 0; // 5
-            long f_22 = 0, f_20 = 0, f_19 = 0; // 6
-            long f_23 = 0, f_21 = 0; // 7
-
-            for (int nx1 = 0; nx1 < deg[x]; nx1++) {
-                int a = inc[x][nx1]._1, xa = inc[x][nx1]._2;
-
-                for (int i = 0; i < nca; i++) common_a[common_a_list[i]] = 0;
-                nca = 0;
-                for (int na = 0; na < deg[a]; na++) {
-                    int b = adj[a][na];
-                    for (int nb = 0; nb < deg[b]; nb++) {
-                        int c = adj[b][nb];
-                        if (c == a || adjacent(adj[a], c)) continue;
-                        if (common_a[c] == 0) common_a_list[nca++] = c;
-                        common_a[c]++;
-                    }
+        // x = orbit-14 (tetrahedron)
+        if (loops[14]) {
+            for (int nx2 = nx1 + 1; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2], xb = eid[nx2];
+                if (!adjacent(a, b)) continue;
+                for (int nx3 = nx2 + 1; nx3 < off[x + 1]; nx3++) {
+                    int c = nbr[nx3], xc = eid[nx3];
+                    if (!adjacent(a, c) || !adjacent(b, c)) continue;
+                    f[14]++;
+                    f[70] += common3.get(a, b, c) - 1;
+                    f[71] += (tri[xa] > 2 && tri[xb] > 2) ? (common3.get(x, a, b) - 1) : 0;
+                    f[71] += (tri[xa] > 2 && tri[xc] > 2) ? (common3.get(x, a, c) - 1) : 0;
+                    f[71] += (tri[xb] > 2 && tri[xc] > 2) ? (common3.get(x, b, c) - 1) : 0;
+                    f[67] += tri[xa] - 2 + tri[xb] - 2 + tri[xc] - 2;
+                    f[66] += common2.get(a, b) - 2;
+                    f[66] += common2.get(a, c) - 2;
+                    f[66] += common2.get(b, c) - 2;
+                    f[58] += deg[x] - 3;
+                    f[57] += deg[a] - 3 + deg[b] - 3 + deg[c] - 3;
                 }
+            }
+        }
 
-                // x = orbit-14 (tetrahedron)
-                for (int nx2 = nx1 + 1; nx2 < deg[x]; nx2++) {
-                    int b = inc[x][nx2]._1, xb = inc[x][nx2]._2;
-                    if (!adjacent(adj[a], b)) continue;
-                    for (int nx3 = nx2 + 1; nx3 < deg[x]; nx3++) {
-                        int c = inc[x][nx3]._1, xc = inc[x][nx3]._2;
-                        if (!adjacent(adj[a], c) || !adjacent(adj[b], c)) continue;
-                        orbit[x][14]++;
-                        f_70 += common3.getOrDefault(createTuple(a, b, c), 0) - 1;
-                        f_71 += (tri[xa] > 2 && tri[xb] > 2) ? (common3.getOrDefault(createTuple(x, a, b), 0) - 1) : 0;
-                        f_71 += (tri[xa] > 2 && tri[xc] > 2) ? (common3.getOrDefault(createTuple(x, a, c), 0) - 1) : 0;
-                        f_71 += (tri[xb] > 2 && tri[xc] > 2) ? (common3.getOrDefault(createTuple(x, b, c), 0) - 1) : 0;
-                        f_67 += tri[xa] - 2 + tri[xb] - 2 + tri[xc] - 2;
-                        f_66 += common2.getOrDefault(createTuple(a, b), 0) - 2;
-                        f_66 += common2.getOrDefault(createTuple(a, c), 0) - 2;
-                        f_66 += common2.getOrDefault(createTuple(b, c), 0) - 2;
-                        f_58 += deg[x] - 3;
-                        f_57 += deg[a] - 3 + deg[b] - 3 + deg[c] - 3;
-                    }
+        // x = orbit-13 (diamond)
+        if (loops[13]) {
+            for (int nx2 = off[x]; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2], xb = eid[nx2];
+                if (!adjacent(a, b)) continue;
+                for (int nx3 = nx2 + 1; nx3 < off[x + 1]; nx3++) {
+                    int c = nbr[nx3], xc = eid[nx3];
+                    if (!adjacent(a, c) || adjacent(b, c)) continue;
+                    f[13]++;
+                    f[69] += (tri[xb] > 1 && tri[xc] > 1) ? (common3.get(x, b, c) - 1) : 0;
+                    f[68] += common3.get(a, b, c) - 1;
+                    f[64] += common2.get(b, c) - 2;
+                    f[61] += tri[xb] - 1 + tri[xc] - 1;
+                    f[60] += common2.get(a, b) - 1;
+                    f[60] += common2.get(a, c) - 1;
+                    f[55] += tri[xa] - 2;
+                    f[48] += deg[b] - 2 + deg[c] - 2;
+                    f[42] += deg[x] - 3;
+                    f[41] += deg[a] - 3;
                 }
+            }
+        }
 
-                // x = orbit-13 (diamond)
-                for (int nx2 = 0; nx2 < deg[x]; nx2++) {
-                    int b = inc[x][nx2]._1, xb = inc[x][nx2]._2;
-                    if (!adjacent(adj[a], b)) continue;
-                    for (int nx3 = nx2 + 1; nx3 < deg[x]; nx3++) {
-                        int c = inc[x][nx3]._1, xc = inc[x][nx3]._2;
-                        if (!adjacent(adj[a], c) || adjacent(adj[b], c)) continue;
-                        orbit[x][13]++;
-                        f_69 += (tri[xb] > 1 && tri[xc] > 1) ? (common3.getOrDefault(createTuple(x, b, c), 0) - 1) : 0;
-                        f_68 += common3.getOrDefault(createTuple(a, b, c), 0) - 1;
-                        f_64 += common2.getOrDefault(createTuple(b, c), 0) - 2;
-                        f_61 += tri[xb] - 1 + tri[xc] - 1;
-                        f_60 += common2.getOrDefault(createTuple(a, b), 0) - 1;
-                        f_60 += common2.getOrDefault(createTuple(a, c), 0) - 1;
-                        f_55 += tri[xa] - 2;
-                        f_48 += deg[b] - 2 + deg[c] - 2;
-                        f_42 += deg[x] - 3;
-                        f_41 += deg[a] - 3;
-                    }
+        // x = orbit-12 (diamond)
+        if (loops[12]) {
+            for (int nx2 = nx1 + 1; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2], xb = eid[nx2];
+                if (!adjacent(a, b)) continue;
+                for (int na = off[a]; na < off[a + 1]; na++) {
+                    int c = nbr[na], ac = eid[na];
+                    if (c == x || adjacent(x, c) || !adjacent(b, c)) continue;
+                    f[12]++;
+                    f[65] += (tri[ac] > 1) ? common3.get(a, b, c) : 0;
+                    f[63] += common_x[c] - 2;
+                    f[59] += tri[ac] - 1 + common2.get(b, c) - 1;
+                    f[54] += common2.get(a, b) - 2;
+                    f[47] += deg[x] - 2;
+                    f[46] += deg[c] - 2;
+                    f[40] += deg[a] - 3 + deg[b] - 3;
                 }
+            }
+        }
 
-                // x = orbit-12 (diamond)
-                for (int nx2 = nx1 + 1; nx2 < deg[x]; nx2++) {
-                    int b = inc[x][nx2]._1, xb = inc[x][nx2]._2;
-                    if (!adjacent(adj[a], b)) continue;
-                    for (int na = 0; na < deg[a]; na++) {
-                        int c = inc[a][na]._1, ac = inc[a][na]._2;
-                        if (c == x || adjacent(adj[x], c) || !adjacent(adj[b], c)) continue;
-                        orbit[x][12]++;
-                        f_65 += (tri[ac] > 1) ? common3.getOrDefault(createTuple(a, b, c), 0) : 0;
-                        f_63 += common_x[c] - 2;
-                        f_59 += tri[ac] - 1 + common2.getOrDefault(createTuple(b, c), 0) - 1;
-                        f_54 += common2.getOrDefault(createTuple(a, b), 0) - 2;
-                        f_47 += deg[x] - 2;
-                        f_46 += deg[c] - 2;
-                        f_40 += deg[a] - 3 + deg[b] - 3;
-                    }
+        // x = orbit-8 (cycle)
+        if (loops[8]) {
+            for (int nx2 = nx1 + 1; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2], xb = eid[nx2];
+                if (adjacent(a, b)) continue;
+                for (int na = off[a]; na < off[a + 1]; na++) {
+                    int c = nbr[na], ac = eid[na];
+                    if (c == x || adjacent(x, c) || !adjacent(b, c)) continue;
+                    f[8]++;
+                    f[62] += (tri[ac] > 0) ? common3.get(a, b, c) : 0;
+                    f[53] += tri[xa] + tri[xb];
+                    f[51] += tri[ac] + common2.get(c, b);
+                    f[50] += common_x[c] - 2;
+                    f[49] += common_a[b] - 2;
+                    f[38] += deg[x] - 2;
+                    f[37] += deg[a] - 2 + deg[b] - 2;
+                    f[36] += deg[c] - 2;
                 }
+            }
+        }
 
-                // x = orbit-8 (cycle)
-                for (int nx2 = nx1 + 1; nx2 < deg[x]; nx2++) {
-                    int b = inc[x][nx2]._1, xb = inc[x][nx2]._2;
-                    if (adjacent(adj[a], b)) continue;
-                    for (int na = 0; na < deg[a]; na++) {
-                        int c = inc[a][na]._1, ac = inc[a][na]._2;
-                        if (c == x || adjacent(adj[x], c) || !adjacent(adj[b], c)) continue;
-                        orbit[x][8]++;
-                        f_62 += (tri[ac] > 0) ? common3.getOrDefault(createTuple(a, b, c), 0) : 0;
-                        f_53 += tri[xa] + tri[xb];
-                        f_51 += tri[ac] + common2.getOrDefault(createTuple(c, b), 0);
-                        f_50 += common_x[c] - 2;
-                        f_49 += common_a[b] - 2;
-                        f_38 += deg[x] - 2;
-                        f_37 += deg[a] - 2 + deg[b] - 2;
-                        f_36 += deg[c] - 2;
-                    }
+        // x = orbit-11 (paw)
+        if (loops[11]) {
+            for (int nx2 = nx1 + 1; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2], xb = eid[nx2];
+                if (!adjacent(a, b)) continue;
+                for (int nx3 = off[x]; nx3 < off[x + 1]; nx3++) {
+                    int c = nbr[nx3], xc = eid[nx3];
+                    if (c == a || c == b || adjacent(a, c) || adjacent(b, c)) continue;
+                    f[11]++;
+                    f[44] += tri[xc];
+                    f[33] += deg[x] - 3;
+                    f[30] += deg[c] - 1;
+                    f[26] += deg[a] - 2 + deg[b] - 2;
                 }
+            }
+        }
 
-                // x = orbit-11 (paw)
-                for (int nx2 = nx1 + 1; nx2 < deg[x]; nx2++) {
-                    int b = inc[x][nx2]._1, xb = inc[x][nx2]._2;
-                    if (!adjacent(adj[a], b)) continue;
-                    for (int nx3 = 0; nx3 < deg[x]; nx3++) {
-                        int c = inc[x][nx3]._1, xc = inc[x][nx3]._2;
-                        if (c == a || c == b || adjacent(adj[a], c) || adjacent(adj[b], c)) continue;
-                        orbit[x][11]++;
-                        f_44 += tri[xc];
-                        f_33 += deg[x] - 3;
-                        f_30 += deg[c] - 1;
-                        f_26 += deg[a] - 2 + deg[b] - 2;
-                    }
+        // x = orbit-10 (paw)
+        if (loops[10]) {
+            for (int nx2 = off[x]; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2], xb = eid[nx2];
+                if (!adjacent(a, b)) continue;
+                for (int nb = off[b]; nb < off[b + 1]; nb++) {
+                    int c = nbr[nb], bc = eid[nb];
+                    if (c == x || c == a || adjacent(a, c) || adjacent(x, c)) continue;
+                    f[10]++;
+                    f[52] += common_a[c] - 1;
+                    f[43] += tri[bc];
+                    f[32] += deg[b] - 3;
+                    f[29] += deg[c] - 1;
+                    f[25] += deg[a] - 2;
                 }
+            }
+        }
 
-                // x = orbit-10 (paw)
-                for (int nx2 = 0; nx2 < deg[x]; nx2++) {
-                    int b = inc[x][nx2]._1, xb = inc[x][nx2]._2;
-                    if (!adjacent(adj[a], b)) continue;
-                    for (int nb = 0; nb < deg[b]; nb++) {
-                        int c = inc[b][nb]._1, bc = inc[b][nb]._2;
-                        if (c == x || c == a || adjacent(adj[a], c) || adjacent(adj[x], c)) continue;
-                        orbit[x][10]++;
-                        f_52 += common_a[c] - 1;
-                        f_43 += tri[bc];
-                        f_32 += deg[b] - 3;
-                        f_29 += deg[c] - 1;
-                        f_25 += deg[a] - 2;
-                    }
+        // x = orbit-9 (paw)
+        if (loops[9]) {
+            for (int na1 = off[a]; na1 < off[a + 1]; na1++) {
+                int b = nbr[na1], ab = eid[na1];
+                if (b == x || adjacent(x, b)) continue;
+                for (int na2 = na1 + 1; na2 < off[a + 1]; na2++) {
+                    int c = nbr[na2], ac = eid[na2];
+                    if (c == x || !adjacent(b, c) || adjacent(x, c)) continue;
+                    f[9]++;
+                    f[56] += (tri[ab] > 1 && tri[ac] > 1) ? common3.get(a, b, c) : 0;
+                    f[45] += common2.get(b, c) - 1;
+                    f[39] += tri[ab] - 1 + tri[ac] - 1;
+                    f[31] += deg[a] - 3;
+                    f[28] += deg[x] - 1;
+                    f[24] += deg[b] - 2 + deg[c] - 2;
                 }
+            }
+        }
 
-                // x = orbit-9 (paw)
-                for (int na1 = 0; na1 < deg[a]; na1++) {
-                    int b = inc[a][na1]._1, ab = inc[a][na1]._2;
-                    if (b == x || adjacent(adj[x], b)) continue;
-                    for (int na2 = na1 + 1; na2 < deg[a]; na2++) {
-                        int c = inc[a][na2]._1, ac = inc[a][na2]._2;
-                        if (c == x || !adjacent(adj[b], c) || adjacent(adj[x], c)) continue;
-                        orbit[x][9]++;
-                        f_56 += (tri[ab] > 1 && tri[ac] > 1) ? common3.getOrDefault(createTuple(a, b, c), 0) : 0;
-                        f_45 += common2.getOrDefault(createTuple(b, c), 0) - 1;
-                        f_39 += tri[ab] - 1 + tri[ac] - 1;
-                        f_31 += deg[a] - 3;
-                        f_28 += deg[x] - 1;
-                        f_24 += deg[b] - 2 + deg[c] - 2;
-                    }
+        // x = orbit-4 (path)
+        if (loops[4]) {
+            for (int na = off[a]; na < off[a + 1]; na++) {
+                int b = nbr[na], ab = eid[na];
+                if (b == x || adjacent(x, b)) continue;
+                for (int nb = off[b]; nb < off[b + 1]; nb++) {
+                    int c = nbr[nb], bc = eid[nb];
+                    if (c == a || adjacent(a, c) || adjacent(x, c)) continue;
+                    f[4]++;
+                    f[35] += common_a[c] - 1;
+                    f[34] += common_x[c];
+                    f[27] += tri[bc];
+                    f[18] += deg[b] - 2;
+                    f[16] += deg[x] - 1;
+                    f[15] += deg[c] - 1;
                 }
+            }
+        }
 
-                // x = orbit-4 (path)
-                for (int na = 0; na < deg[a]; na++) {
-                    int b = inc[a][na]._1, ab = inc[a][na]._2;
-                    if (b == x || adjacent(adj[x], b)) continue;
-                    for (int nb = 0; nb < deg[b]; nb++) {
-                        int c = inc[b][nb]._1, bc = inc[b][nb]._2;
-                        if (c == a || adjacent(adj[a], c) || adjacent(adj[x], c)) continue;
-                        orbit[x][4]++;
-                        f_35 += common_a[c] - 1;
-                        f_34 += common_x[c];
-                        f_27 += tri[bc];
-                        f_18 += deg[b] - 2;
-                        f_16 += deg[x] - 1;
-                        f_15 += deg[c] - 1;
-                    }
+        // x = orbit-5 (path)
+        if (loops[5]) {
+            for (int nx2 = off[x]; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2], xb = eid[nx2];
+                if (b == a || adjacent(a, b)) continue;
+                for (int nb = off[b]; nb < off[b + 1]; nb++) {
+                    int c = nbr[nb], bc = eid[nb];
+                    if (c == x || adjacent(a, c) || adjacent(x, c)) continue;
+                    f[5]++;
+                    f[17] += deg[a] - 1;
                 }
+            }
+        }
 
-                // x = orbit-5 (path)
-                for (int nx2 = 0; nx2 < deg[x]; nx2++) {
-                    int b = inc[x][nx2]._1, xb = inc[x][nx2]._2;
-                    if (b == a || adjacent(adj[a], b)) continue;
-                    for (int nb = 0; nb < deg[b]; nb++) {
-                        int c = inc[b][nb]._1, bc = inc[b][nb]._2;
-                        if (c == x || adjacent(adj[a], c) || adjacent(adj[x], c)) continue;
-                        orbit[x][5]++;
-                        f_17 += deg[a] - 1;
-                    }
+        // x = orbit-6 (claw)
+        if (loops[6]) {
+            for (int na1 = off[a]; na1 < off[a + 1]; na1++) {
+                int b = nbr[na1], ab = eid[na1];
+                if (b == x || adjacent(x, b)) continue;
+                for (int na2 = na1 + 1; na2 < off[a + 1]; na2++) {
+                    int c = nbr[na2], ac = eid[na2];
+                    if (c == x || adjacent(x, c) || adjacent(b, c)) continue;
+                    f[6]++;
+                    f[22] += deg[a] - 3;
+                    f[20] += deg[x] - 1;
+                    f[19] += deg[b] - 1 + deg[c] - 1;
                 }
+            }
+        }
 
-                // x = orbit-6 (claw)
-                for (int na1 = 0; na1 < deg[a]; na1++) {
-                    int b = inc[a][na1]._1, ab = inc[a][na1]._2;
-                    if (b == x || adjacent(adj[x], b)) continue;
-                    for (int na2 = na1 + 1; na2 < deg[a]; na2++) {
-                        int c = inc[a][na2]._1, ac = inc[a][na2]._2;
-                        if (c == x || adjacent(adj[x], c) || adjacent(adj[b], c)) continue;
-                        orbit[x][6]++;
-                        f_22 += deg[a] - 3;
-                        f_20 += deg[x] - 1;
-                        f_19 += deg[b] - 1 + deg[c] - 1;
-                    }
+        // x = orbit-7 (claw)
+        if (loops[7]) {
+            for (int nx2 = nx1 + 1; nx2 < off[x + 1]; nx2++) {
+                int b = nbr[nx2], xb = eid[nx2];
+                if (adjacent(a, b)) continue;
+                for (int nx3 = nx2 + 1; nx3 < off[x + 1]; nx3++) {
+                    int c = nbr[nx3], xc = eid[nx3];
+                    if (adjacent(a, c) || adjacent(b, c)) continue;
+                    f[7]++;
+                    f[23] += deg[x] - 3;
+                    f[21] += deg[a] - 1 + deg[b] - 1 + deg[c] - 1;
                 }
+            }
+        }
+
+        scratch.nca = nca;
+    }
 
-                // x = orbit-7 (claw)
-                for (int nx2 = nx1 + 1; nx2 < deg[x]; nx2++) {
-                    int b = inc[x][nx2]._1, xb = inc[x][nx2]._2;
-                    if (adjacent(adj[a], b)) continue;
-                    for (int nx3 = nx2 + 1; nx3 < deg[x]; nx3++) {
-                        int c = inc[x][nx3]._1, xc = inc[x][nx3]._2;
-                        if (adjacent(adj[a], c) || adjacent(adj[b], c)) continue;
-                        orbit[x][7]++;
-                        f_23 += deg[x] - 3;
-                        f_21 += deg[a] - 1 + deg[b] - 1 + deg[c] - 1;
+    /**
+     * solve the system of equations relating orbit counts
+     *
+     * @param f f[4] - f[14] counts of orbits 4 - 14, f[15] - f[71] sums of the equations
+     * @param C5 number of 5-cliques containing the node
+     * @param orbit orbit[o] - set to the count of orbit o for o = 4 .. 72
+     */
+    private static void solve(long[ ] f, long C5, long[ ] orbit) {
+        System.arraycopy(f, 4, orbit, 4, 11);
+        orbit[72] = C5;
+        orbit[71] = (f[71] - 12 * orbit[72]) / 2;
+        orbit[70] = (f[70] - 4 * orbit[72]);
+        orbit[69] = (f[69] - 2 * orbit[71]) / 4;
+        orbit[68] = (f[68] - 2 * orbit[71]);
+        orbit[67] = (f[67] - 12 * orbit[72] - 4 * orbit[71]);
+        orbit[66] = (f[66] - 12 * orbit[72] - 2 * orbit[71] - 3 * orbit[70]);
+        orbit[65] = (f[65] - 3 * orbit[70]) / 2;
+        orbit[64] = (f[64] - 2 * orbit[71] - 4 * orbit[69] - 1 * orbit[68]);
+        orbit[63] = (f[63] - 3 * orbit[70] - 2 * orbit[68]);
+        orbit[62] = (f[62] - 1 * orbit[68]) / 2;
+        orbit[61] = (f[61] - 4 * orbit[71] - 8 * orbit[69] - 2 * orbit[67]) / 2;
+        orbit[60] = (f[60] - 4 * orbit[71] - 2 * orbit[68] - 2 * orbit[67]);
+        orbit[59] = (f[59] - 6 * orbit[70] - 2 * orbit[68] - 4 * orbit[65]);
+        orbit[58] = (f[58] - 4 * orbit[72] - 2 * orbit[71] - 1 * orbit[67]);
+        orbit[57] = (f[57] - 12 * orbit[72] - 4 * orbit[71] - 3 * orbit[70] - 1 * orbit[67] - 2 * orbit[66]);
+        orbit[56] = (f[56] - 2 * orbit[65]) / 3;
+        orbit[55] = (f[55] - 2 * orbit[71] - 2 * orbit[67]) / 3;
+        orbit[54] = (f[54] - 3 * orbit[70] - 1 * orbit[66] - 2 * orbit[65]) / 2;
+        orbit[53] = (f[53] - 2 * orbit[68] - 2 * orbit[64] - 2 * orbit[63]);
+        orbit[52] = (f[52] - 2 * orbit[66] - 2 * orbit[64] - 1 * orbit[59]) / 2;
+        orbit[51] = (f[51] - 2 * orbit[68] - 2 * orbit[63] - 4 * orbit[62]);
+        orbit[50] = (f[50] - 1 * orbit[68] - 2 * orbit[63]) / 3;
+        orbit[49] = (f[49] - 1 * orbit[68] - 1 * orbit[64] - 2 * orbit[62]) / 2;
+        orbit[48] = (f[48] - 4 * orbit[71] - 8 * orbit[69] - 2 * orbit[68] - 2 * orbit[67] - 2 * orbit[64] - 2 * orbit[61] - 1 * orbit[60]);
+        orbit[47] = (f[47] - 3 * orbit[70] - 2 * orbit[68] - 1 * orbit[66] - 1 * orbit[63] - 1 * orbit[60]);
+        orbit[46] = (f[46] - 3 * orbit[70] - 2 * orbit[68] - 2 * orbit[65] - 1 * orbit[63] - 1 * orbit[59]);
+        orbit[45] = (f[45] - 2 * orbit[65] - 2 * orbit[62] - 3 * orbit[56]);
+        orbit[44] = (f[44] - 1 * orbit[67] - 2 * orbit[61]) / 4;
+        orbit[43] = (f[43] - 2 * orbit[66] - 1 * orbit[60] - 1 * orbit[59]) / 2;
+        orbit[42] = (f[42] - 2 * orbit[71] - 4 * orbit[69] - 2 * orbit[67] - 2 * orbit[61] - 3 * orbit[55]);
+        orbit[41] = (f[41] - 2 * orbit[71] - 1 * orbit[68] - 2 * orbit[67] - 1 * orbit[60] - 3 * orbit[55]);
+        orbit[40] = (f[40] - 6 * orbit[70] - 2 * orbit[68] - 2 * orbit[66] - 4 * orbit[65] - 1 * orbit[60] - 1 * orbit[59] - 4 * orbit[54]);
+        orbit[39] = (f[39] - 4 * orbit[65] - 1 * orbit[59] - 6 * orbit[56]) / 2;
+        orbit[38] = (f[38] - 1 * orbit[68] - 1 * orbit[64] - 2 * orbit[63] - 1 * orbit[53] - 3 * orbit[50]);
+        orbit[37] = (f[37] - 2 * orbit[68] - 2 * orbit[64] - 2 * orbit[63] - 4 * orbit[62] - 1 * orbit[53] - 1 * orbit[51] - 4 * orbit[49]);
+        orbit[36] = (f[36] - 1 * orbit[68] - 2 * orbit[63] - 2 * orbit[62] - 1 * orbit[51] - 3 * orbit[50]);
+        orbit[35] = (f[35] - 1 * orbit[59] - 2 * orbit[52] - 2 * orbit[45]) / 2;
+        orbit[34] = (f[34] - 1 * orbit[59] - 2 * orbit[52] - 1 * orbit[51]) / 2;
+        orbit[33] = (f[33] - 1 * orbit[67] - 2 * orbit[61] - 3 * orbit[58] - 4 * orbit[44] - 2 * orbit[42]) / 2;
+        orbit[32] = (f[32] - 2 * orbit[66] - 1 * orbit[60] - 1 * orbit[59] - 2 * orbit[57] - 2 * orbit[43] - 2 * orbit[41] - 1 * orbit[40]) / 2;
+        orbit[31] = (f[31] - 2 * orbit[65] - 1 * orbit[59] - 3 * orbit[56] - 1 * orbit[43] - 2 * orbit[39]);
+        orbit[30] = (f[30] - 1 * orbit[67] - 1 * orbit[63] - 2 * orbit[61] - 1 * orbit[53] - 4 * orbit[44]);
+        orbit[29] = (f[29] - 2 * orbit[66] - 2 * orbit[64] - 1 * orbit[60] - 1 * orbit[59] - 1 * orbit[53] - 2 * orbit[52] - 2 * orbit[43]);
+        orbit[28] = (f[28] - 2 * orbit[65] - 2 * orbit[62] - 1 * orbit[59] - 1 * orbit[51] - 1 * orbit[43]);
+        orbit[27] = (f[27] - 1 * orbit[59] - 1 * orbit[51] - 2 * orbit[45]) / 2;
+        orbit[26] = (f[26] - 2 * orbit[67] - 2 * orbit[63] - 2 * orbit[61] - 6 * orbit[58] - 1 * orbit[53] - 2 * orbit[47] - 2 * orbit[42]);
+        orbit[25] = (f[25] - 2 * orbit[66] - 2 * orbit[64] - 1 * orbit[59] - 2 * orbit[57] - 2 * orbit[52] - 1 * orbit[48] - 1 * orbit[40]) / 2;
+        orbit[24] = (f[24] - 4 * orbit[65] - 4 * orbit[62] - 1 * orbit[59] - 6 * orbit[56] - 1 * orbit[51] - 2 * orbit[45] - 2 * orbit[39]);
+        orbit[23] = (f[23] - 1 * orbit[55] - 1 * orbit[42] - 2 * orbit[33]) / 4;
+        orbit[22] = (f[22] - 2 * orbit[54] - 1 * orbit[40] - 1 * orbit[39] - 1 * orbit[32] - 2 * orbit[31]) / 3;
+        orbit[21] = (f[21] - 3 * orbit[55] - 3 * orbit[50] - 2 * orbit[42] - 2 * orbit[38] - 2 * orbit[33]);
+        orbit[20] = (f[20] - 2 * orbit[54] - 2 * orbit[49] - 1 * orbit[40] - 1 * orbit[37] - 1 * orbit[32]);
+        orbit[19] = (f[19] - 4 * orbit[54] - 4 * orbit[49] - 1 * orbit[40] - 2 * orbit[39] - 1 * orbit[37] - 2 * orbit[35] - 2 * orbit[31]);
+        orbit[18] = (f[18] - 1 * orbit[59] - 1 * orbit[51] - 2 * orbit[46] - 2 * orbit[45] - 2 * orbit[36] - 2 * orbit[27] - 1 * orbit[24]) / 2;
+        orbit[17] = (f[17] - 1 * orbit[60] - 1 * orbit[53] - 1 * orbit[51] - 1 * orbit[48] - 1 * orbit[37] - 2 * orbit[34] - 2 * orbit[30]) / 2;
+        orbit[16] = (f[16] - 1 * orbit[59] - 2 * orbit[52] - 1 * orbit[51] - 2 * orbit[46] - 2 * orbit[36] - 2 * orbit[34] - 1 * orbit[29]);
+        orbit[15] = (f[15] - 1 * orbit[59] - 2 * orbit[52] - 1 * orbit[51] - 2 * orbit[45] - 2 * orbit[35] - 2 * orbit[34] - 2 * orbit[27]);
+    }
+
+    /**
+     * count edge orbits of graphlets on max 5 nodes
+     */
+    @Override
+    public long[ ][ ] countEdges() {
+        if (commonNodesIndexed) {
+            buildAdjacencyIndex();
+            reportIndexedCommonNodes();
+        } else {
+            precomputeCommonNodes(allNodes());
+        }
+
+        try {
+            // precompute triangles that span over edges
+            int[ ] tri = countTriangles();
+
+            // count full graphlets over every edge
+            long[ ] C5 = countEdgeFullGraphlets();
+
+            // set up a system of equations relating edge orbit counts
+            long[ ][ ] orbit = new long[m][EDGE_ORBITS];
+            int[ ] sources = graph.getEdgeSources();
+            int[ ] targets = graph.getEdgeTargets();
+            timePhase(CountPhase.EQUATIONS, () -> {
+                parallelFor(m, e -> edgeWorkEstimate(sources[e], targets[e]), reusable(EdgeScratch.class, scratch -> scratch.mark.length >= n, () -> new EdgeScratch(n)), (e, scratch) -> {
+                    long[ ] f = scratch.f;
+                    Arrays.fill(f, 0);
+                    countEdge(e, sources[e], targets[e], tri, scratch, f);
+                    solveEdge(f, C5[e], orbit[e]);
+                });
+            });
+            return orbit;
+        } finally {
+            releaseCommonNodes();
+        }
+    }
+
+    /**
+     * Count full graphlets (5-cliques) over every edge: the cliques containing edge (x, y) are the triangles
+     * among the common neighbours of x and y.
+     *
+     * @return C5[e] - number of 5-cliques containing edge e
+     */
+    public long[ ] countEdgeFullGraphlets() {
+        buildAdjacencyIndex();
+
+        long[ ] C5 = new long[m];
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        int maxDegree = maxDegree();
+        timePhase(CountPhase.FULL_GRAPHLETS, () -> {
+            parallelFor(m, e -> Math.min(deg[sources[e]], deg[targets[e]]), reusable(int[ ][ ].class, b -> b[0].length >= maxDegree, () -> new int[2][maxDegree]), (e, buffers) -> {
+                int[ ] neigh = buffers[0];
+                int[ ] neigh2 = buffers[1];
+                // common neighbours from the endpoint of the smaller degree
+                int x = deg[sources[e]] <= deg[targets[e]] ? sources[e] : targets[e];
+                int y = sources[e] + targets[e] - x;
+                int nn = 0;
+                for (int nx = off[x]; nx < off[x + 1]; nx++) {
+                    int z = nbr[nx];
+                    if (z != y && adjacent(y, z)) neigh[nn++] = z;
+                }
+                long cliques = 0;
+                for (int i = 0; i < nn; i++) {
+                    int z = neigh[i];
+                    int nn2 = 0;
+                    for (int j = i + 1; j < nn; j++) {
+                        int zz = neigh[j];
+                        if (adjacent(z, zz)) neigh2[nn2++] = zz;
+                    }
+                    for (int i2 = 0; i2 < nn2; i2++) {
+                        for (int j2 = i2 + 1; j2 < nn2; j2++) {
+                            if (adjacent(neigh2[i2], neigh2[j2])) cliques++;
+                        }
                     }
                 }
+                C5[e] = cliques;
+            });
+        });
+        return C5;
+    }
+
+    /**
+     * estimated cost of counting the graphlets on 4 nodes of edge (x, y), used to balance the edge equations
+     */
+    private long edgeWorkEstimate(int x, int y) {
+        long near = deg[x] + deg[y];
+        return near * near;
+    }
+
+    /**
+     * Adds the graphlets on 4 nodes containing edge e = (x, y). Every other node of such a graphlet is adjacent
+     * to x or y (near) or to a near node, so they are enumerated as the pairs of near nodes and the near nodes
+     * with a neighbour that is not near. Orbits 0 - 11 are counted in f[0] - f[11], the sums of the equations
+     * of orbits 12 - 66 in f[12] - f[66].
+     */
+    private void countEdge(int e, int x, int y, int[ ] tri, EdgeScratch scratch, long[ ] f) {
+        int[ ] mark = scratch.mark;
+        int[ ] edgeX = scratch.edgeX;
+        int[ ] edgeY = scratch.edgeY;
+        int[ ] near = scratch.near;
+        int nn = 0;
+        for (int nx = off[x]; nx < off[x + 1]; nx++) {
+            int c = nbr[nx];
+            if (c == y) continue;
+            near[nn++] = c;
+            mark[c] = XC;
+            edgeX[c] = eid[nx];
+        }
+        for (int ny = off[y]; ny < off[y + 1]; ny++) {
+            int c = nbr[ny];
+            if (c == x) continue;
+            if (mark[c] == 0) near[nn++] = c;
+            mark[c] |= YC;
+            edgeY[c] = eid[ny];
+        }
+
+        f[0] = deg[x] - 1 - tri[e] + deg[y] - 1 - tri[e];
+        f[1] = tri[e];
+        for (int i = 0; i < nn; i++) {
+            int c = near[i];
+            for (int j = i + 1; j < nn; j++) {
+                int d = near[j];
+                countGraphlet(e, x, y, c, d, adjacent(c, d), tri, scratch, f);
+            }
+            for (int nc = off[c]; nc < off[c + 1]; nc++) {
+                int d = nbr[nc];
+                if (d == x || d == y || mark[d] != 0) continue;
+                countGraphlet(e, x, y, c, d, true, tri, scratch, f);
             }
+        }
+        for (int i = 0; i < nn; i++) mark[near[i]] = 0;
+    }
+
+    /**
+     * Adds the graphlet on nodes x, y, c, d of edge e = (x, y). The nodes are renamed to match the graphlet of
+     * the edge orbit of x - y in SHAPES, every 5-node graphlet extending it by a node adjacent to some of its
+     * nodes is counted by common neighbours of those nodes outside of the graphlet.
+     */
+    private void countGraphlet(int e, int x, int y, int c, int d, boolean cd, int[ ] tri, EdgeScratch scratch, long[ ] f) {
+        int[ ] mark = scratch.mark;
+        int pairs = 1 | mark[c] | (mark[d] & XC) << 1 | (mark[d] & YC) << 1 | (cd ? CD : 0);
+        int shape = SHAPE[pairs];
+        int xc = scratch.edgeX[c], xd = scratch.edgeX[d], yc = scratch.edgeY[c], yd = scratch.edgeY[d];
+        if ((shape & 1) != 0) {
+            int t = x; x = y; y = t;
+            t = xc; xc = yc; yc = t;
+            t = xd; xd = yd; yd = t;
+        }
+        if ((shape & 2) != 0) {
+            int t = c; c = d; d = t;
+            t = xc; xc = xd; xd = t;
+            t = yc; yc = yd; yd = t;
+        }
+        switch (shape >> 2) {
+            case 2: // path y - x - c - d
+                f[2]++;
+                f[12] += deg[d] - 1;
+                f[13] += deg[y] - 1;
+                f[14] += deg[c] - 2;
+                f[15] += deg[x] - 2;
+                f[21] += common2.get(c, d);
+                f[28] += common2.get(y, d);
+                f[29] += common2.get(x, d) - 1;
+                break;
+            case 3: // path d - x - y - c
+                f[3]++;
+                f[16] += deg[x] - 2 + deg[y] - 2;
+                break;
+            case 4: // star of x with y, c and d
+                f[4]++;
+                f[17] += deg[x] - 3;
+                break;
+            case 5: // cycle x - y - c - d - x
+                f[5]++;
+                f[30] += deg[c] - 2 + deg[d] - 2;
+                f[31] += deg[x] - 2 + deg[y] - 2;
+                f[42] += common2.get(x, c) - 2 + common2.get(y, d) - 2;
+                f[43] += common2.get(c, d);
+                f[44] += tri[xd] + tri[yc];
+                f[46] += tri[e];
+                f[56] += common3.get(x, c, d) + common3.get(y, c, d);
+                break;
+            case 6: // triangle x, c, d with tail x - y
+                f[6]++;
+                f[18] += deg[c] - 2 + deg[d] - 2;
+                f[22] += deg[y] - 1;
+                f[25] += deg[x] - 3;
+                f[32] += tri[xc] - 1 + tri[xd] - 1;
+                f[37] += tri[e];
+                f[38] += common2.get(c, d) - 1;
+                f[49] += common3.get(x, c, d);
+                break;
+            case 7: // triangle x, y, c with tail c - d
+                f[7]++;
+                f[19] += deg[x] - 2 + deg[y] - 2;
+                f[23] += deg[d] - 1;
+                f[26] += deg[c] - 3;
+                f[36] += common2.get(c, d);
+                f[45] += common2.get(x, d) - 1 + common2.get(y, d) - 1;
+                break;
+            case 8: // triangle x, y, c with tail x - d
+                f[8]++;
+                f[20] += deg[y] - 2;
+                f[24] += deg[d] - 1;
+                f[27] += deg[x] - 3;
+                break;
+            case 9: // diamond x, y, c, d without y - d
+                f[9]++;
+                f[33] += deg[c] - 3;
+                f[34] += deg[x] - 3;
+                f[39] += deg[d] - 2;
+                f[40] += deg[y] - 2;
+                f[47] += tri[xc] - 2;
+                f[52] += common2.get(c, d) - 1;
+                f[53] += tri[xd] - 1;
+                f[54] += tri[yc] - 1;
+                f[55] += tri[e] - 1;
+                f[57] += common2.get(y, d) - 2;
+                f[59] += common3.get(x, c, d);
+                f[63] += common3.get(y, c, d) - 1;
+                f[64] += common3.get(x, y, d) - 1;
+                break;
+            case 10: // diamond x, y, c, d without c - d
+                f[10]++;
+                f[35] += deg[x] - 3 + deg[y] - 3;
+                f[41] += deg[c] - 2 + deg[d] - 2;
+                f[48] += tri[e] - 2;
+                f[58] += common2.get(c, d) - 2;
+                break;
+            case 11: // clique x, y, c, d
+                f[11]++;
+                f[50] += deg[c] - 3 + deg[d] - 3;
+                f[51] += deg[x] - 3 + deg[y] - 3;
+                f[60] += common2.get(c, d) - 2;
+                f[61] += tri[xc] - 2 + tri[xd] - 2 + tri[yc] - 2 + tri[yd] - 2;
+                f[62] += tri[e] - 2;
+                f[65] += common3.get(x, c, d) - 1 + common3.get(y, c, d) - 1;
+                f[66] += common3.get(x, y, c) - 1 + common3.get(x, y, d) - 1;
+                break;
+        }
+    }
+
+    /**
+     * @return pairs with x and y swapped if swap has bit 1 set, and c and d swapped if swap has bit 2 set
+     */
+    private static int swapNodes(int pairs, int swap) {
+        if ((swap & 1) != 0) {
+            pairs = pairs & ~(XC | XD | YC | YD) | (pairs & (XC | XD)) << 2 | (pairs & (YC | YD)) >> 2;
+        }
+        if ((swap & 2) != 0) {
+            pairs = pairs & ~(XC | XD | YC | YD) | (pairs & (XC | YC)) << 1 | (pairs & (XD | YD)) >> 1;
+        }
+        return pairs;
+    }
+
+    /**
+     * solve the system of equations relating edge orbit counts
+     *
+     * @param f f[0] - f[11] counts of orbits 0 - 11, f[12] - f[66] sums of the equations
+     * @param C5 number of 5-cliques containing the edge
+     * @param orbit orbit[o] - set to the count of edge orbit o
+     */
+    private static void solveEdge(long[ ] f, long C5, long[ ] orbit) {
+        System.arraycopy(f, 0, orbit, 0, 12);
+        orbit[67] = C5;
+        orbit[66] = (f[66] - 6 * orbit[67]) / 2;
+        orbit[65] = (f[65] - 6 * orbit[67]);
+        orbit[64] = (f[64] - 2 * orbit[65]) / 2;
+        orbit[63] = (f[63] - 2 * orbit[65]) / 2;
+        orbit[62] = (f[62] - 3 * orbit[67] - 2 * orbit[66]);
+        orbit[61] = (f[61] - 12 * orbit[67] - 4 * orbit[66] - 2 * orbit[65]);
+        orbit[60] = (f[60] - 3 * orbit[67] - 1 * orbit[65]);
+        orbit[59] = (f[59] - 2 * orbit[65]) / 2;
+        orbit[58] = (f[58] - 1 * orbit[66] - 1 * orbit[64]);
+        orbit[57] = (f[57] - 2 * orbit[65] - 2 * orbit[64] - 2 * orbit[63]);
+        orbit[56] = (f[56] - 2 * orbit[63]) / 2;
+        orbit[55] = (f[55] - 2 * orbit[65] - 2 * orbit[64] - 1 * orbit[61]);
+        orbit[54] = (f[54] - 2 * orbit[65] - 2 * orbit[63] - 1 * orbit[61]) / 2;
+        orbit[53] = (f[53] - 2 * orbit[65] - 2 * orbit[64] - 2 * orbit[59]);
+        orbit[52] = (f[52] - 2 * orbit[65] - 2 * orbit[63] - 2 * orbit[59]);
+        orbit[51] = (f[51] - 6 * orbit[67] - 4 * orbit[66] - 1 * orbit[65] - 2 * orbit[62] - 1 * orbit[61]);
+        orbit[50] = (f[50] - 6 * orbit[67] - 2 * orbit[66] - 2 * orbit[65] - 1 * orbit[61] - 2 * orbit[60]);
+        orbit[49] = (f[49] - 1 * orbit[59]) / 3;
+        orbit[48] = (f[48] - 1 * orbit[66] - 2 * orbit[62]) / 3;
+        orbit[47] = (f[47] - 2 * orbit[65] - 1 * orbit[61] - 2 * orbit[59]) / 2;
+        orbit[46] = (f[46] - 1 * orbit[63] - 1 * orbit[57]);
+        orbit[45] = (f[45] - 4 * orbit[60] - 4 * orbit[58] - 1 * orbit[52]);
+        orbit[44] = (f[44] - 2 * orbit[63] - 1 * orbit[57] - 2 * orbit[56]);
+        orbit[43] = (f[43] - 1 * orbit[63] - 2 * orbit[56]);
+        orbit[42] = (f[42] - 2 * orbit[63] - 1 * orbit[57] - 2 * orbit[56]) / 2;
+        orbit[41] = (f[41] - 2 * orbit[66] - 2 * orbit[64] - 2 * orbit[62] - 2 * orbit[58] - 1 * orbit[55]);
+        orbit[40] = (f[40] - 2 * orbit[65] - 2 * orbit[64] - 2 * orbit[63] - 1 * orbit[61] - 1 * orbit[57] - 1 * orbit[55] - 2 * orbit[54]);
+        orbit[39] = (f[39] - 2 * orbit[65] - 2 * orbit[64] - 2 * orbit[63] - 2 * orbit[59] - 1 * orbit[57] - 1 * orbit[53] - 1 * orbit[52]);
+        orbit[38] = (f[38] - 1 * orbit[59] - 1 * orbit[56] - 3 * orbit[49]);
+        orbit[37] = (f[37] - 1 * orbit[59] - 1 * orbit[53]);
+        orbit[36] = (f[36] - 2 * orbit[60] - 1 * orbit[52]) / 2;
+        orbit[35] = (f[35] - 2 * orbit[66] - 1 * orbit[64] - 4 * orbit[62] - 1 * orbit[55] - 6 * orbit[48]);
+        orbit[34] = (f[34] - 2 * orbit[65] - 2 * orbit[64] - 1 * orbit[61] - 2 * orbit[59] - 1 * orbit[55] - 1 * orbit[53] - 2 * orbit[47]);
+        orbit[33] = (f[33] - 2 * orbit[65] - 2 * orbit[63] - 1 * orbit[61] - 2 * orbit[59] - 2 * orbit[54] - 1 * orbit[52] - 2 * orbit[47]);
+        orbit[32] = (f[32] - 2 * orbit[59] - 1 * orbit[53] - 6 * orbit[49]) / 2;
+        orbit[31] = (f[31] - 2 * orbit[63] - 2 * orbit[57] - 2 * orbit[56] - 2 * orbit[46] - 1 * orbit[44] - 2 * orbit[42]);
+        orbit[30] = (f[30] - 2 * orbit[63] - 1 * orbit[57] - 4 * orbit[56] - 1 * orbit[44] - 2 * orbit[43] - 2 * orbit[42]);
+        orbit[29] = (f[29] - 1 * orbit[52] - 1 * orbit[45] - 2 * orbit[38]) / 2;
+        orbit[28] = (f[28] - 1 * orbit[52] - 1 * orbit[45] - 2 * orbit[43]) / 2;
+        orbit[27] = (f[27] - 1 * orbit[61] - 1 * orbit[55] - 1 * orbit[53] - 2 * orbit[51] - 2 * orbit[37] - 2 * orbit[35] - 1 * orbit[34]) / 2;
+        orbit[26] = (f[26] - 2 * orbit[60] - 1 * orbit[52] - 1 * orbit[50] - 2 * orbit[36] - 1 * orbit[33]) / 2;
+        orbit[25] = (f[25] - 1 * orbit[59] - 1 * orbit[53] - 3 * orbit[49] - 1 * orbit[37] - 2 * orbit[32]);
+        orbit[24] = (f[24] - 1 * orbit[61] - 1 * orbit[57] - 1 * orbit[55] - 1 * orbit[53] - 2 * orbit[46] - 1 * orbit[45] - 2 * orbit[37]);
+        orbit[23] = (f[23] - 2 * orbit[60] - 2 * orbit[58] - 1 * orbit[52] - 1 * orbit[45] - 2 * orbit[36]);
+        orbit[22] = (f[22] - 1 * orbit[59] - 1 * orbit[56] - 1 * orbit[53] - 1 * orbit[44] - 1 * orbit[37]);
+        orbit[21] = (f[21] - 1 * orbit[52] - 2 * orbit[43] - 2 * orbit[38]) / 2;
+        orbit[20] = (f[20] - 1 * orbit[61] - 1 * orbit[57] - 1 * orbit[55] - 2 * orbit[51] - 2 * orbit[46] - 1 * orbit[40] - 2 * orbit[35]) / 2;
+        orbit[19] = (f[19] - 4 * orbit[60] - 4 * orbit[58] - 1 * orbit[52] - 2 * orbit[50] - 1 * orbit[45] - 2 * orbit[41] - 1 * orbit[33]);
+        orbit[18] = (f[18] - 2 * orbit[59] - 2 * orbit[56] - 1 * orbit[53] - 6 * orbit[49] - 1 * orbit[44] - 2 * orbit[38] - 2 * orbit[32]);
+        orbit[17] = (f[17] - 1 * orbit[47] - 1 * orbit[34] - 1 * orbit[32] - 1 * orbit[27] - 2 * orbit[25]) / 3;
+        orbit[16] = (f[16] - 2 * orbit[54] - 1 * orbit[44] - 2 * orbit[40] - 1 * orbit[31] - 2 * orbit[22] - 2 * orbit[20]) / 2;
+        orbit[15] = (f[15] - 1 * orbit[52] - 1 * orbit[45] - 1 * orbit[39] - 2 * orbit[38] - 2 * orbit[29] - 1 * orbit[24] - 1 * orbit[18]);
+        orbit[14] = (f[14] - 1 * orbit[52] - 2 * orbit[43] - 1 * orbit[39] - 2 * orbit[38] - 1 * orbit[30] - 2 * orbit[21] - 1 * orbit[18]) / 2;
+        orbit[13] = (f[13] - 1 * orbit[52] - 1 * orbit[45] - 2 * orbit[43] - 1 * orbit[39] - 1 * orbit[30] - 2 * orbit[28] - 1 * orbit[24]);
+        orbit[12] = (f[12] - 1 * orbit[52] - 1 * orbit[45] - 2 * orbit[43] - 2 * orbit[38] - 2 * orbit[29] - 2 * orbit[28] - 2 * orbit[21]);
+    }
 
-            // solve equations
-            orbit[x][72] = C5[x];
-            orbit[x][71] = (f_71 - 12 * orbit[x][72]) / 2;
-            orbit[x][70] = (f_70 - 4 * orbit[x][72]);
-            orbit[x][69] = (f_69 - 2 * orbit[x][71]) / 4;
-            orbit[x][68] = (f_68 - 2 * orbit[x][71]);
-            orbit[x][67] = (f_67 - 12 * orbit[x][72] - 4 * orbit[x][71]);
-            orbit[x][66] = (f_66 - 12 * orbit[x][72] - 2 * orbit[x][71] - 3 * orbit[x][70]);
-            orbit[x][65] = (f_65 - 3 * orbit[x][70]) / 2;
-            orbit[x][64] = (f_64 - 2 * orbit[x][71] - 4 * orbit[x][69] - 1 * orbit[x][68]);
-            orbit[x][63] = (f_63 - 3 * orbit[x][70] - 2 * orbit[x][68]);
-            orbit[x][62] = (f_62 - 1 * orbit[x][68]) / 2;
-            orbit[x][61] = (f_61 - 4 * orbit[x][71] - 8 * orbit[x][69] - 2 * orbit[x][67]) / 2;
-            orbit[x][60] = (f_60 - 4 * orbit[x][71] - 2 * orbit[x][68] - 2 * orbit[x][67]);
-            orbit[x][59] = (f_59 - 6 * orbit[x][70] - 2 * orbit[x][68] - 4 * orbit[x][65]);
-            orbit[x][58] = (f_58 - 4 * orbit[x][72] - 2 * orbit[x][71] - 1 * orbit[x][67]);
-            orbit[x][57] = (f_57 - 12 * orbit[x][72] - 4 * orbit[x][71] - 3 * orbit[x][70] - 1 * orbit[x][67] - 2 * orbit[x][66]);
-            orbit[x][56] = (f_56 - 2 * orbit[x][65]) / 3;
-            orbit[x][55] = (f_55 - 2 * orbit[x][71] - 2 * orbit[x][67]) / 3;
-            orbit[x][54] = (f_54 - 3 * orbit[x][70] - 1 * orbit[x][66] - 2 * orbit[x][65]) / 2;
-            orbit[x][53] = (f_53 - 2 * orbit[x][68] - 2 * orbit[x][64] - 2 * orbit[x][63]);
-            orbit[x][52] = (f_52 - 2 * orbit[x][66] - 2 * orbit[x][64] - 1 * orbit[x][59]) / 2;
-            orbit[x][51] = (f_51 - 2 * orbit[x][68] - 2 * orbit[x][63] - 4 * orbit[x][62]);
-            orbit[x][50] = (f_50 - 1 * orbit[x][68] - 2 * orbit[x][63]) / 3;
-            orbit[x][49] = (f_49 - 1 * orbit[x][68] - 1 * orbit[x][64] - 2 * orbit[x][62]) / 2;
-            orbit[x][48] = (f_48 - 4 * orbit[x][71] - 8 * orbit[x][69] - 2 * orbit[x][68] - 2 * orbit[x][67] - 2 * orbit[x][64] - 2 * orbit[x][61] - 1 * orbit[x][60]);
-            orbit[x][47] = (f_47 - 3 * orbit[x][70] - 2 * orbit[x][68] - 1 * orbit[x][66] - 1 * orbit[x][63] - 1 * orbit[x][60]);
-            orbit[x][46] = (f_46 - 3 * orbit[x][70] - 2 * orbit[x][68] - 2 * orbit[x][65] - 1 * orbit[x][63] - 1 * orbit[x][59]);
-            orbit[x][45] = (f_45 - 2 * orbit[x][65] - 2 * orbit[x][62] - 3 * orbit[x][56]);
-            orbit[x][44] = (f_44 - 1 * orbit[x][67] - 2 * orbit[x][61]) / 4;
-            orbit[x][43] = (f_43 - 2 * orbit[x][66] - 1 * orbit[x][60] - 1 * orbit[x][59]) / 2;
-            orbit[x][42] = (f_42 - 2 * orbit[x][71] - 4 * orbit[x][69] - 2 * orbit[x][67] - 2 * orbit[x][61] - 3 * orbit[x][55]);
-            orbit[x][41] = (f_41 - 2 * orbit[x][71] - 1 * orbit[x][68] - 2 * orbit[x][67] - 1 * orbit[x][60] - 3 * orbit[x][55]);
-            orbit[x][40] = (f_40 - 6 * orbit[x][70] - 2 * orbit[x][68] - 2 * orbit[x][66] - 4 * orbit[x][65] - 1 * orbit[x][60] - 1 * orbit[x][59] - 4 * orbit[x][54]);
-            orbit[x][39] = (f_39 - 4 * orbit[x][65] - 1 * orbit[x][59] - 6 * orbit[x][56]) / 2;
-            orbit[x][38] = (f_38 - 1 * orbit[x][68] - 1 * orbit[x][64] - 2 * orbit[x][63] - 1 * orbit[x][53] - 3 * orbit[x][50]);
-            orbit[x][37] = (f_37 - 2 * orbit[x][68] - 2 * orbit[x][64] - 2 * orbit[x][63] - 4 * orbit[x][62] - 1 * orbit[x][53] - 1 * orbit[x][51] - 4 * orbit[x][49]);
-            orbit[x][36] = (f_36 - 1 * orbit[x][68] - 2 * orbit[x][63] - 2 * orbit[x][62] - 1 * orbit[x][51] - 3 * orbit[x][50]);
-            orbit[x][35] = (f_35 - 1 * orbit[x][59] - 2 * orbit[x][52] - 2 * orbit[x][45]) / 2;
-            orbit[x][34] = (f_34 - 1 * orbit[x][59] - 2 * orbit[x][52] - 1 * orbit[x][51]) / 2;
-            orbit[x][33] = (f_33 - 1 * orbit[x][67] - 2 * orbit[x][61] - 3 * orbit[x][58] - 4 * orbit[x][44] - 2 * orbit[x][42]) / 2;
-            orbit[x][32] = (f_32 - 2 * orbit[x][66] - 1 * orbit[x][60] - 1 * orbit[x][59] - 2 * orbit[x][57] - 2 * orbit[x][43] - 2 * orbit[x][41] - 1 * orbit[x][40]) / 2;
-            orbit[x][31] = (f_31 - 2 * orbit[x][65] - 1 * orbit[x][59] - 3 * orbit[x][56] - 1 * orbit[x][43] - 2 * orbit[x][39]);
-            orbit[x][30] = (f_30 - 1 * orbit[x][67] - 1 * orbit[x][63] - 2 * orbit[x][61] - 1 * orbit[x][53] - 4 * orbit[x][44]);
-            orbit[x][29] = (f_29 - 2 * orbit[x][66] - 2 * orbit[x][64] - 1 * orbit[x][60] - 1 * orbit[x][59] - 1 * orbit[x][53] - 2 * orbit[x][52] - 2 * orbit[x][43]);
-            orbit[x][28] = (f_28 - 2 * orbit[x][65] - 2 * orbit[x][62] - 1 * orbit[x][59] - 1 * orbit[x][51] - 1 * orbit[x][43]);
-            orbit[x][27] = (f_27 - 1 * orbit[x][59] - 1 * orbit[x][51] - 2 * orbit[x][45]) / 2;
-            orbit[x][26] = (f_26 - 2 * orbit[x][67] - 2 * orbit[x][63] - 2 * orbit[x][61] - 6 * orbit[x][58] - 1 * orbit[x][53] - 2 * orbit[x][47] - 2 * orbit[x][42]);
-            orbit[x][25] = (f_25 - 2 * orbit[x][66] - 2 * orbit[x][64] - 1 * orbit[x][59] - 2 * orbit[x][57] - 2 * orbit[x][52] - 1 * orbit[x][48] - 1 * orbit[x][40]) / 2;
-            orbit[x][24] = (f_24 - 4 * orbit[x][65] - 4 * orbit[x][62] - 1 * orbit[x][59] - 6 * orbit[x][56] - 1 * orbit[x][51] - 2 * orbit[x][45] - 2 * orbit[x][39]);
-            orbit[x][23] = (f_23 - 1 * orbit[x][55] - 1 * orbit[x][42] - 2 * orbit[x][33]) / 4;
-            orbit[x][22] = (f_22 - 2 * orbit[x][54] - 1 * orbit[x][40] - 1 * orbit[x][39] - 1 * orbit[x][32] - 2 * orbit[x][31]) / 3;
-            orbit[x][21] = (f_21 - 3 * orbit[x][55] - 3 * orbit[x][50] - 2 * orbit[x][42] - 2 * orbit[x][38] - 2 * orbit[x][33]);
-            orbit[x][20] = (f_20 - 2 * orbit[x][54] - 2 * orbit[x][49] - 1 * orbit[x][40] - 1 * orbit[x][37] - 1 * orbit[x][32]);
-            orbit[x][19] = (f_19 - 4 * orbit[x][54] - 4 * orbit[x][49] - 1 * orbit[x][40] - 2 * orbit[x][39] - 1 * orbit[x][37] - 2 * orbit[x][35] - 2 * orbit[x][31]);
-            orbit[x][18] = (f_18 - 1 * orbit[x][59] - 1 * orbit[x][51] - 2 * orbit[x][46] - 2 * orbit[x][45] - 2 * orbit[x][36] - 2 * orbit[x][27] - 1 * orbit[x][24]) / 2;
-            orbit[x][17] = (f_17 - 1 * orbit[x][60] - 1 * orbit[x][53] - 1 * orbit[x][51] - 1 * orbit[x][48] - 1 * orbit[x][37] - 2 * orbit[x][34] - 2 * orbit[x][30]) / 2;
-            orbit[x][16] = (f_16 - 1 * orbit[x][59] - 2 * orbit[x][52] - 1 * orbit[x][51] - 2 * orbit[x][46] - 2 * orbit[x][36] - 2 * orbit[x][34] - 1 * orbit[x][29]);
-            orbit[x][15] = (f_15 - 1 * orbit[x][59] - 2 * orbit[x][52] - 1 * orbit[x][51] - 2 * orbit[x][45] - 2 * orbit[x][35] - 2 * orbit[x][34] - 2 * orbit[x][27]);
-        }
-
-        return orbit;
+    /**
+     * per worker buffers of the equation phase
+     */
+    private static final class Scratch {
+        final long[ ] row = new long[ORBITS];
+        final int[ ] commonX;
+        final int[ ] commonXList;
+        int ncx = 0;
+        final int[ ] commonA;
+        final int[ ] commonAList;
+        int nca = 0;
+        final long[ ] f = new long[ORBITS];
+        final double[ ] sum = new double[ORBITS];
+        final double[ ] delta = new double[ORBITS];
+        final double[ ] solved = new double[ORBITS];
+
+        /**
+         * @param capacity number of nodes of the largest graph the scratch is used for
+         */
+        Scratch(int capacity) {
+            commonX = new int[capacity];
+            commonXList = new int[capacity];
+            commonA = new int[capacity];
+            commonAList = new int[capacity];
+        }
+    }
+
+    /**
+     * per worker buffers of the edge equations
+     */
+    private static final class EdgeScratch {
+        final long[ ] f = new long[EDGE_ORBITS];
+        final int[ ] mark; // mark[c] - XC if c is adjacent to x, plus YC if c is adjacent to y
+        final int[ ] edgeX; // edgeX[c] - id of the edge x - c
+        final int[ ] edgeY; // edgeY[c] - id of the edge y - c
+        final int[ ] near; // nodes adjacent to x or y
+
+        /**
+         * @param capacity number of nodes of the largest graph the scratch is used for
+         */
+        EdgeScratch(int capacity) {
+            mark = new int[capacity];
+            edgeX = new int[capacity];
+            edgeY = new int[capacity];
+            near = new int[capacity];
+        }
     }
 
 }
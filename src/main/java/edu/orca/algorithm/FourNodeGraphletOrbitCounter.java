@@ -1,129 +1,354 @@
 package edu.orca.algorithm;
 
-import static edu.orca.utils.Util.adjacent;
+import java.util.Arrays;
 
 /**
  * Created by KanthKumar on 2/22/17.
  */
 public class FourNodeGraphletOrbitCounter extends OrbitCounter {
+    private static final int ORBITS = 15;
+    private static final int EDGE_ORBITS = EdgeOrbits.ORBITS_4;
 
     public FourNodeGraphletOrbitCounter(OrcaGraph graph) {
+        this(graph.getCsrGraph());
+    }
+
+    public FourNodeGraphletOrbitCounter(CsrGraph graph) {
         super(graph);
-        this.orbit = new long[n][15];
+    }
+
+    @Override
+    public int getOrbitsCount() {
+        return ORBITS;
+    }
+
+    @Override
+    public int getEdgeOrbitsCount() {
+        return EDGE_ORBITS;
     }
 
     /**
      * count graphlets on max 4 nodes
      */
     @Override
-    public long[ ][ ] count() {
+    protected void count(int[ ] nodes, RowWriter writer) {
+        Checkpoint checkpoint = openCheckpoint(nodes);
+        buildAdjacencyIndex();
+
         // precompute triangles that span over edges
-        int[ ] tri = countTriangles();
+        int[ ] tri = checkpoint == null ? countTriangles() : checkpoint.ints("triangles", this::countTriangles);
 
         // count full graphlets
-        long[ ] C4 = new long[n];
-        int[ ] neigh = new int[n];
-        int nn;
-        for (int x = 0; x < n; x++) {
-            for (int nx = 0; nx < deg[x]; nx++) {
-                int y = adj[x][nx];
-                if (y >= x) break;
-                nn = 0;
-                for (int ny = 0; ny < deg[y]; ny++) {
-                    int z = adj[y][ny];
+        long[ ] C4 = !isRequired(14) ? new long[n] :
+                checkpoint == null ? countFullGraphlets() : checkpoint.longs("cliques", this::countFullGraphlets);
+
+        // set up a system of equations relating orbits for every node
+        solveNodes(nodes, checkpoint, writer, (from, to, blockWriter) ->
+                parallelFor(to - from, i -> nodeWorkEstimate(nodes[from + i]), reusable(Scratch.class, scratch -> scratch.common.length >= n, () -> new Scratch(n)), (i, scratch) -> {
+                    Arrays.fill(scratch.row, 0);
+                    countNode(nodes[from + i], tri, C4, scratch, scratch.row);
+                    blockWriter.write(from + i, scratch.row);
+                }));
+    }
+
+    /**
+     * Count full graphlets (4-cliques). Every clique is found once from its two highest nodes x > y, the
+     * edges (x, y) are split across the workers.
+     *
+     * @return C4[x] - number of 4-cliques containing node x
+     */
+    public long[ ] countFullGraphlets() {
+        buildAdjacencyIndex();
+
+        NodeCounts C4 = new NodeCounts(n, parallelism);
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        int maxDegree = maxDegree();
+        timePhase(CountPhase.FULL_GRAPHLETS, () -> {
+            parallelFor(m, e -> deg[Math.min(sources[e], targets[e])], reusable(int[ ].class, b -> b.length >= maxDegree, () -> new int[maxDegree]), (e, neigh) -> {
+                int x = Math.max(sources[e], targets[e]);
+                int y = Math.min(sources[e], targets[e]);
+                int nn = 0;
+                for (int ny = off[y]; ny < off[y + 1]; ny++) {
+                    int z = nbr[ny];
                     if (z >= y) break;
-                    if (!adjacent(adj[x], z)) continue;
+                    if (!adjacent(x, z)) continue;
                     neigh[nn++] = z;
                 }
                 for (int i = 0; i < nn; i++) {
                     int z = neigh[i];
                     for (int j = i + 1; j < nn; j++) {
                         int zz = neigh[j];
-                        if (adjacent(adj[z], zz)) {
-                            C4[x]++;
-                            C4[y]++;
-                            C4[z]++;
-                            C4[zz]++;
+                        if (adjacent(z, zz)) {
+                            C4.increment(x);
+                            C4.increment(y);
+                            C4.increment(z);
+                            C4.increment(zz);
                         }
                     }
                 }
-            }
-        }
+            });
+        });
+        return C4.toArray();
+    }
 
-        // set up a system of equations relating orbits for every node
-        int[ ] common = new int[n];
-        int[ ] common_list = new int[n];
+    /**
+     * set up and solve the system of equations relating orbits of node x
+     */
+    private void countNode(int x, int[ ] tri, long[ ] C4, Scratch scratch, long[ ] orbit) {
+        long f_12_14 = 0, f_10_13 = 0;
+        long f_13_14 = 0, f_11_13 = 0;
+        long f_7_11 = 0, f_5_8 = 0;
+        long f_6_9 = 0, f_9_12 = 0, f_4_8 = 0, f_8_12 = 0;
+        long f_14 = C4[x];
+
+        int[ ] common = scratch.common;
+        int[ ] common_list = scratch.commonList;
+        for (int i = 0; i < scratch.nc; i++) common[common_list[i]] = 0;
         int nc = 0;
-        for (int x = 0; x < n; x++) {
-            long f_12_14 = 0, f_10_13 = 0;
-            long f_13_14 = 0, f_11_13 = 0;
-            long f_7_11 = 0, f_5_8 = 0;
-            long f_6_9 = 0, f_9_12 = 0, f_4_8 = 0, f_8_12 = 0;
-            long f_14 = C4[x];
-
-            for (int i = 0; i < nc; i++) common[common_list[i]] = 0;
-            nc = 0;
-
-            orbit[x][0] = deg[x];
-            // x - middle node
-            for (int nx1 = 0; nx1 < deg[x]; nx1++) {
-                int y = inc[x][nx1]._1, ey = inc[x][nx1]._2;
-                for (int ny = 0; ny < deg[y]; ny++) {
-                    int z = inc[y][ny]._1, ez = inc[y][ny]._2;
-                    if (adjacent(adj[x], z)) { // triangle
-                        if (z < y) {
-                            f_12_14 += tri[ez] - 1;
-                            f_10_13 += (deg[y] - 1 - tri[ez]) + (deg[z] - 1 - tri[ez]);
-                        }
-                    } else {
-                        if (common[z] == 0) common_list[nc++] = z;
-                        common[z]++;
+
+        orbit[0] = deg[x];
+        // x - middle node
+        for (int nx1 = off[x]; nx1 < off[x + 1]; nx1++) {
+            int y = nbr[nx1], ey = eid[nx1];
+            for (int ny = off[y]; ny < off[y + 1]; ny++) {
+                int z = nbr[ny], ez = eid[ny];
+                if (adjacent(x, z)) { // triangle
+                    if (z < y) {
+                        f_12_14 += tri[ez] - 1;
+                        f_10_13 += (deg[y] - 1 - tri[ez]) + (deg[z] - 1 - tri[ez]);
                     }
+                } else {
+                    if (common[z] == 0) common_list[nc++] = z;
+                    common[z]++;
                 }
-                for (int nx2 = nx1 + 1; nx2 < deg[x]; nx2++) {
-                    int z = inc[x][nx2]._1, ez = inc[x][nx2]._2;
-                    if (adjacent(adj[y], z)) { // triangle
-                        orbit[x][3]++;
-                        f_13_14 += (tri[ey] - 1) + (tri[ez] - 1);
-                        f_11_13 += (deg[x] - 1 - tri[ey]) + (deg[x] - 1 - tri[ez]);
-                    } else { // path
-                        orbit[x][2]++;
-                        f_7_11 += (deg[x] - 1 - tri[ey] - 1) + (deg[x] - 1 - tri[ez] - 1);
-                        f_5_8 += (deg[y] - 1 - tri[ey]) + (deg[z] - 1 - tri[ez]);
-                    }
+            }
+            for (int nx2 = nx1 + 1; nx2 < off[x + 1]; nx2++) {
+                int z = nbr[nx2], ez = eid[nx2];
+                if (adjacent(y, z)) { // triangle
+                    orbit[3]++;
+                    f_13_14 += (tri[ey] - 1) + (tri[ez] - 1);
+                    f_11_13 += (deg[x] - 1 - tri[ey]) + (deg[x] - 1 - tri[ez]);
+                } else { // path
+                    orbit[2]++;
+                    f_7_11 += (deg[x] - 1 - tri[ey] - 1) + (deg[x] - 1 - tri[ez] - 1);
+                    f_5_8 += (deg[y] - 1 - tri[ey]) + (deg[z] - 1 - tri[ez]);
+                }
+            }
+        }
+        scratch.nc = nc;
+
+        // x - side node
+        for (int nx1 = off[x]; nx1 < off[x + 1]; nx1++) {
+            int y = nbr[nx1], ey = eid[nx1];
+            for (int ny = off[y]; ny < off[y + 1]; ny++) {
+                int z = nbr[ny], ez = eid[ny];
+                if (x == z) continue;
+                if (!adjacent(x, z)) { // path
+                    orbit[1]++;
+                    f_6_9 += (deg[y] - 1 - tri[ey] - 1);
+                    f_9_12 += tri[ez];
+                    f_4_8 += (deg[z] - 1 - tri[ez]);
+                    f_8_12 += (common[z] - 1);
                 }
             }
-            // x - side node
-            for (int nx1 = 0; nx1 < deg[x]; nx1++) {
-                int y = inc[x][nx1]._1, ey = inc[x][nx1]._2;
-                for (int ny = 0; ny < deg[y]; ny++) {
-                    int z = inc[y][ny]._1, ez = inc[y][ny]._2;
-                    if (x == z) continue;
-                    if (!adjacent(adj[x], z)) { // path
-                        orbit[x][1]++;
-                        f_6_9 += (deg[y] - 1 - tri[ey] - 1);
-                        f_9_12 += tri[ez];
-                        f_4_8 += (deg[z] - 1 - tri[ez]);
-                        f_8_12 += (common[z] - 1);
+        }
+
+        // solve system of equations
+        orbit[14] = (f_14);
+        orbit[13] = (f_13_14 - 6 * f_14) / 2;
+        orbit[12] = (f_12_14 - 3 * f_14);
+        orbit[11] = (f_11_13 - f_13_14 + 6 * f_14) / 2;
+        orbit[10] = (f_10_13 - f_13_14 + 6 * f_14);
+        orbit[9]  = (f_9_12 - 2 * f_12_14 + 6 * f_14) / 2;
+        orbit[8]  = (f_8_12 - 2 * f_12_14 + 6 * f_14) / 2;
+        orbit[7]  = (f_13_14 + f_7_11 - f_11_13 - 6 * f_14) / 6;
+        orbit[6]  = (2 * f_12_14 + f_6_9 - f_9_12 - 6 * f_14) / 2;
+        orbit[5]  = (2 * f_12_14 + f_5_8 - f_8_12 - 6 * f_14);
+        orbit[4]  = (2 * f_12_14 + f_4_8 - f_8_12 - 6 * f_14);
+        clearUnrequired(orbit);
+    }
+
+    /**
+     * count edge orbits of graphlets on max 4 nodes
+     */
+    @Override
+    public long[ ][ ] countEdges() {
+        buildAdjacencyIndex();
+
+        // precompute triangles that span over edges
+        int[ ] tri = countTriangles();
+
+        // count full graphlets over every edge
+        long[ ] C4 = countEdgeFullGraphlets();
+
+        // set up a system of equations relating orbits for every edge
+        long[ ][ ] orbit = new long[m][EDGE_ORBITS];
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        timePhase(CountPhase.EQUATIONS, () -> {
+            long[ ] cycles = countEdgeCycles();
+            parallelFor(m, e -> deg[sources[e]] + deg[targets[e]], () -> new long[EDGE_ORBITS], (e, f) -> {
+                Arrays.fill(f, 0);
+                countEdge(e, sources[e], targets[e], tri, f);
+                f[5] = cycles[2 * e] + cycles[2 * e + 1];
+                solveEdge(f, C4[e], orbit[e]);
+            });
+        });
+        return orbit;
+    }
+
+    /**
+     * Count full graphlets (4-cliques) over every edge: the cliques containing edge (x, y) are the edges among
+     * the common neighbours of x and y.
+     *
+     * @return C4[e] - number of 4-cliques containing edge e
+     */
+    public long[ ] countEdgeFullGraphlets() {
+        buildAdjacencyIndex();
+
+        long[ ] C4 = new long[m];
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        int maxDegree = maxDegree();
+        timePhase(CountPhase.FULL_GRAPHLETS, () -> {
+            parallelFor(m, e -> Math.min(deg[sources[e]], deg[targets[e]]), reusable(int[ ].class, b -> b.length >= maxDegree, () -> new int[maxDegree]), (e, neigh) -> {
+                // common neighbours from the endpoint of the smaller degree
+                int x = deg[sources[e]] <= deg[targets[e]] ? sources[e] : targets[e];
+                int y = sources[e] + targets[e] - x;
+                int nn = 0;
+                for (int nx = off[x]; nx < off[x + 1]; nx++) {
+                    int z = nbr[nx];
+                    if (z != y && adjacent(y, z)) neigh[nn++] = z;
+                }
+                long cliques = 0;
+                for (int i = 0; i < nn; i++) {
+                    for (int j = i + 1; j < nn; j++) {
+                        if (adjacent(neigh[i], neigh[j])) cliques++;
                     }
                 }
+                C4[e] = cliques;
+            });
+        });
+        return C4;
+    }
+
+    /**
+     * Counts the 4-cycles closing the paths c - x - y of length 2 from every node y to a node c not adjacent
+     * to it, from the paths of length 2 from y to all nodes (common) like the node orbits
+     *
+     * @return cycles[2 * e + s] - sum of common(y, c) - 1 over the paths c - x - y along edge e = (x, y), y
+     * being its source (s = 0) or its target (s = 1)
+     */
+    private long[ ] countEdgeCycles() {
+        long[ ] cycles = new long[2 * m];
+        int[ ] sources = graph.getEdgeSources();
+        parallelFor(n, y -> nodeWorkEstimate(y), reusable(Scratch.class, scratch -> scratch.common.length >= n, () -> new Scratch(n)), (y, scratch) -> {
+            int[ ] common = scratch.common;
+            int[ ] common_list = scratch.commonList;
+            for (int i = 0; i < scratch.nc; i++) common[common_list[i]] = 0;
+            int nc = 0;
+            for (int ny = off[y]; ny < off[y + 1]; ny++) {
+                int x = nbr[ny];
+                for (int nx = off[x]; nx < off[x + 1]; nx++) {
+                    int c = nbr[nx];
+                    if (c == y || adjacent(y, c)) continue;
+                    if (common[c] == 0) common_list[nc++] = c;
+                    common[c]++;
+                }
+            }
+            scratch.nc = nc;
+
+            for (int ny = off[y]; ny < off[y + 1]; ny++) {
+                int x = nbr[ny], e = eid[ny];
+                long paths = 0;
+                for (int nx = off[x]; nx < off[x + 1]; nx++) {
+                    int c = nbr[nx];
+                    if (c == y || adjacent(y, c)) continue;
+                    paths += common[c] - 1;
+                }
+                cycles[2 * e + (sources[e] == y ? 0 : 1)] = paths;
             }
+        });
+        return cycles;
+    }
 
-            // solve system of equations
-            orbit[x][14] = (f_14);
-            orbit[x][13] = (f_13_14 - 6 * f_14) / 2;
-            orbit[x][12] = (f_12_14 - 3 * f_14);
-            orbit[x][11] = (f_11_13 - f_13_14 + 6 * f_14) / 2;
-            orbit[x][10] = (f_10_13 - f_13_14 + 6 * f_14);
-            orbit[x][9]  = (f_9_12 - 2 * f_12_14 + 6 * f_14) / 2;
-            orbit[x][8]  = (f_8_12 - 2 * f_12_14 + 6 * f_14) / 2;
-            orbit[x][7]  = (f_13_14 + f_7_11 - f_11_13 - 6 * f_14) / 6;
-            orbit[x][6]  = (2 * f_12_14 + f_6_9 - f_9_12 - 6 * f_14) / 2;
-            orbit[x][5]  = (2 * f_12_14 + f_5_8 - f_8_12 - 6 * f_14);
-            orbit[x][4]  = (2 * f_12_14 + f_4_8 - f_8_12 - 6 * f_14);
+    /**
+     * Adds the graphlets on 3 nodes containing edge e = (x, y), found by merging the neighbours of x and y:
+     * orbits 0 - 1 are counted in f[0] - f[1], the sums of the equations of orbits 2 - 10 in f[2] - f[10]
+     * except for the 4-cycles (f[5])
+     */
+    private void countEdge(int e, int x, int y, int[ ] tri, long[ ] f) {
+        int nx = off[x], ny = off[y];
+        while (nx < off[x + 1] || ny < off[y + 1]) {
+            int a = nx < off[x + 1] ? nbr[nx] : Integer.MAX_VALUE;
+            int b = ny < off[y + 1] ? nbr[ny] : Integer.MAX_VALUE;
+            if (a == b) { // triangle
+                int xc = eid[nx++], yc = eid[ny++];
+                f[1]++;
+                f[7] += deg[a] - 2;
+                f[8] += deg[x] - 2 + deg[y] - 2;
+                f[9] += tri[xc] - 1 + tri[yc] - 1;
+                f[10] += tri[e] - 1;
+            } else if (a < b) { // path a - x - y
+                if (a != y) countPath(x, y, a, eid[nx], tri, f);
+                nx++;
+            } else { // path b - y - x
+                if (b != x) countPath(y, x, b, eid[ny], tri, f);
+                ny++;
+            }
         }
+    }
 
-        return orbit;
+    /**
+     * adds the path c - x - y with c not adjacent to y
+     */
+    private void countPath(int x, int y, int c, int xc, int[ ] tri, long[ ] f) {
+        f[0]++;
+        f[2] += deg[c] - 1;
+        f[3] += deg[y] - 1;
+        f[4] += deg[x] - 2;
+        f[6] += tri[xc];
+    }
+
+    /**
+     * solve the system of equations relating edge orbit counts
+     *
+     * @param f f[0] - f[1] counts of orbits 0 - 1, f[2] - f[10] sums of the equations
+     * @param C4 number of 4-cliques containing the edge
+     * @param orbit orbit[o] - set to the count of edge orbit o
+     */
+    private static void solveEdge(long[ ] f, long C4, long[ ] orbit) {
+        orbit[0] = f[0];
+        orbit[1] = f[1];
+        orbit[11] = C4;
+        orbit[10] = (f[10] - 2 * orbit[11]) / 2;
+        orbit[9] = (f[9] - 4 * orbit[11]);
+        orbit[8] = (f[8] - 4 * orbit[11] - 4 * orbit[10] - 1 * orbit[9]);
+        orbit[7] = (f[7] - 2 * orbit[11] - 1 * orbit[9]);
+        orbit[6] = (f[6] - 1 * orbit[9]) / 2;
+        orbit[5] = (f[5] - 1 * orbit[9]) / 2;
+        orbit[4] = (f[4] - 1 * orbit[9] - 1 * orbit[8] - 2 * orbit[6]) / 2;
+        orbit[3] = (f[3] - 1 * orbit[9] - 1 * orbit[8] - 2 * orbit[5]) / 2;
+        orbit[2] = (f[2] - 1 * orbit[9] - 2 * orbit[6] - 2 * orbit[5]);
+    }
+
+    /**
+     * per worker buffers of the equation phase
+     */
+    private static final class Scratch {
+        final long[ ] row = new long[ORBITS];
+        final int[ ] common;
+        final int[ ] commonList;
+        int nc = 0;
+
+        /**
+         * @param capacity number of nodes of the largest graph the scratch is used for
+         */
+        Scratch(int capacity) {
+            common = new int[capacity];
+            commonList = new int[capacity];
+        }
     }
 
 }
@@ -0,0 +1,77 @@
+package edu.orca.algorithm;
+
+import edu.orca.utils.PairCountMap;
+import edu.orca.utils.TripleCountMap;
+
+/**
+ * A graph together with the data every count of it precomputes: the triangles over every edge and,
+ * optionally, the common neighbour tables of 5-node counts. Built once and saved with
+ * {@link edu.orca.io.GraphIndexFile}, it lets repeated counts of the same graph skip those phases.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class GraphIndex {
+    private final CsrGraph graph;
+    private final int[ ] triangles; // triangles[e] - number of triangles containing edge e
+    private final PairCountMap common2; // common neighbours of node pairs, null if not precomputed
+    private final TripleCountMap common3; // common neighbours of connected node triples, null if not precomputed
+
+    public GraphIndex(CsrGraph graph, int[ ] triangles, PairCountMap common2, TripleCountMap common3) {
+        if (triangles.length != graph.getEdgesCount()) {
+            throw new IllegalArgumentException("Incorrect triangles count " + triangles.length + ". Should be "
+                    + graph.getEdgesCount() + ".");
+        }
+        if ((common2 == null) != (common3 == null)) {
+            throw new IllegalArgumentException("Common neighbours of pairs and of triples should be given together");
+        }
+        this.graph = graph;
+        this.triangles = triangles;
+        this.common2 = common2;
+        this.common3 = common3;
+    }
+
+    /**
+     * @param commonNodes whether to precompute the common neighbour tables, only 5-node counts use them
+     * @param parallelism number of worker threads
+     * @return index of graph
+     */
+    public static GraphIndex build(CsrGraph graph, boolean commonNodes, int parallelism) {
+        FiveNodeGraphletOrbitCounter orbitCounter = new FiveNodeGraphletOrbitCounter(graph);
+        orbitCounter.setParallelism(parallelism);
+        int[ ] triangles = orbitCounter.countTriangles();
+        if (!commonNodes) {
+            return new GraphIndex(graph, triangles, null, null);
+        }
+        orbitCounter.precomputeCommonNodes();
+        return new GraphIndex(graph, triangles, orbitCounter.getCommonPairs(), orbitCounter.getCommonTriples());
+    }
+
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return triangles[e] - number of triangles containing edge e
+     */
+    public int[ ] getTriangles() {
+        return triangles;
+    }
+
+    public boolean hasCommonNodes() {
+        return common2 != null;
+    }
+
+    /**
+     * @return common neighbours of node pairs, null if not precomputed
+     */
+    public PairCountMap getCommonPairs() {
+        return common2;
+    }
+
+    /**
+     * @return common neighbours of connected node triples, null if not precomputed
+     */
+    public TripleCountMap getCommonTriples() {
+        return common3;
+    }
+}
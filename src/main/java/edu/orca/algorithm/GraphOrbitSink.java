@@ -0,0 +1,18 @@
+package edu.orca.algorithm;
+
+/**
+ * Receives the orbits of the graphs of a batch, see {@link OrcaBatch}. Calls never overlap, but may come from
+ * different threads.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+@FunctionalInterface
+public interface GraphOrbitSink {
+
+    /**
+     * @param index position of graph in the input of the batch
+     * @param graph counted graph
+     * @param orbit orbit[x][o] - how many times does node x of graph participate in orbit o
+     */
+    void accept(long index, CsrGraph graph, long[ ][ ] orbit);
+}
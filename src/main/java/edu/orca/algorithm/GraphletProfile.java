@@ -0,0 +1,238 @@
+package edu.orca.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Graph-level summary of the orbits of all nodes: the number of every graphlet type (9 types of at most 4 nodes,
+ * 30 of at most 5) and the graphlet degree distribution (GDD) of every orbit, i.e. how many nodes touch the
+ * orbit k times. Built while counting without keeping the orbits of the nodes, see {@link Orca#countProfile()},
+ * it is all that is needed to compare whole networks, e.g. by {@link #agreement}.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class GraphletProfile {
+    // GRAPHLET[o] - graphlet type orbit o belongs to
+    private static final int[ ] GRAPHLET = {
+            0, 1, 1, 2, 3, 3, 4, 4, 5, 6, 6, 6, 7, 7, 8,
+            9, 9, 9, 10, 10, 10, 10, 11, 11, 12, 12, 12, 13, 13, 13, 13, 14, 14, 14, 15, 16, 16, 16, 16,
+            17, 17, 17, 17, 18, 18, 19, 19, 19, 19, 20, 20, 21, 21, 21, 22, 22, 23, 23, 23, 24, 24, 24,
+            25, 25, 25, 26, 26, 26, 27, 27, 28, 28, 29
+    };
+    // SIZE[g] - number of nodes of graphlet type g
+    private static final int[ ] SIZE = {
+            2, 3, 3, 4, 4, 4, 4, 4, 4,
+            5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5
+    };
+
+    private final long[ ] graphletCounts; // graphletCounts[g] - number of induced graphlets of type g
+    private final long[ ][ ] degrees; // degrees[o] - ascending orbit degrees k > 0 some node touches orbit o k times
+    private final long[ ][ ] nodes; // nodes[o][i] - number of nodes touching orbit o degrees[o][i] times
+
+    private GraphletProfile(long[ ] graphletCounts, long[ ][ ] degrees, long[ ][ ] nodes) {
+        this.graphletCounts = graphletCounts;
+        this.degrees = degrees;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @param orbit orbit[x][o] - how many times does node x participate in orbit o, 15 or 73 orbits per node
+     * @return profile of the orbits
+     */
+    public static GraphletProfile of(long[ ][ ] orbit) {
+        Builder builder = new Builder(orbit.length == 0 ? OrbitEquations.ORBITS : orbit[0].length);
+        for (int x = 0; x < orbit.length; x++) builder.accept(x, orbit[x]);
+        return builder.build();
+    }
+
+    public int getOrbitsCount() {
+        return degrees.length;
+    }
+
+    /**
+     * @return graphletCounts[g] - number of induced graphlets of type g
+     */
+    public long[ ] getGraphletCounts() {
+        return graphletCounts.clone();
+    }
+
+    public long getGraphletCount(int graphlet) {
+        return graphletCounts[graphlet];
+    }
+
+    /**
+     * @return ascending orbit degrees k > 0 for which some node touches orbit k times
+     */
+    public long[ ] getDegrees(int orbit) {
+        return degrees[orbit].clone();
+    }
+
+    /**
+     * @return nodes[i] - number of nodes touching orbit getDegrees(orbit)[i] times
+     */
+    public long[ ] getNodes(int orbit) {
+        return nodes[orbit].clone();
+    }
+
+    /**
+     * @return number of nodes touching orbit degree times
+     */
+    public long getNodes(int orbit, long degree) {
+        int i = Arrays.binarySearch(degrees[orbit], degree);
+        return i >= 0 ? nodes[orbit][i] : 0;
+    }
+
+    /**
+     * GDD agreement (Przulj, Bioinformatics 2007) of two profiles: the arithmetic mean over all orbits of
+     * {@link #orbitAgreements}
+     *
+     * @return agreement between 0 (disjoint distributions) and 1 (equal distributions)
+     */
+    public double agreement(GraphletProfile other) {
+        double sum = 0;
+        for (double a : orbitAgreements(other)) sum += a;
+        return sum / getOrbitsCount();
+    }
+
+    /**
+     * @return geometric mean over all orbits of {@link #orbitAgreements}
+     */
+    public double geometricAgreement(GraphletProfile other) {
+        double logSum = 0;
+        for (double a : orbitAgreements(other)) logSum += Math.log(a);
+        return Math.exp(logSum / getOrbitsCount());
+    }
+
+    /**
+     * Agreement of the distributions of every orbit o: both distributions are scaled down by the degree,
+     * N(k) = (d(k) / k) / sum d(j) / j, and compared by 1 - sqrt(sum (N1(k) - N2(k))^2) / sqrt(2). Distributions
+     * empty in both profiles agree completely.
+     *
+     * @return agreements[o] - agreement of the distributions of orbit o, between 0 and 1
+     */
+    public double[ ] orbitAgreements(GraphletProfile other) {
+        if (other.getOrbitsCount() != getOrbitsCount()) {
+            throw new IllegalArgumentException("Incorrect orbits count " + other.getOrbitsCount() + ". Should be "
+                    + getOrbitsCount() + ".");
+        }
+        double[ ] agreements = new double[getOrbitsCount()];
+        for (int o = 0; o < agreements.length; o++) {
+            long[ ] k1 = degrees[o], k2 = other.degrees[o];
+            long[ ] d1 = nodes[o], d2 = other.nodes[o];
+            double t1 = scaledTotal(k1, d1), t2 = scaledTotal(k2, d2);
+            double distance = 0;
+            int i = 0, j = 0;
+            while (i < k1.length || j < k2.length) {
+                long k = Math.min(i < k1.length ? k1[i] : Long.MAX_VALUE, j < k2.length ? k2[j] : Long.MAX_VALUE);
+                double n1 = i < k1.length && k1[i] == k ? d1[i++] / (double) k / t1 : 0;
+                double n2 = j < k2.length && k2[j] == k ? d2[j++] / (double) k / t2 : 0;
+                distance += (n1 - n2) * (n1 - n2);
+            }
+            agreements[o] = 1 - Math.sqrt(distance / 2);
+        }
+        return agreements;
+    }
+
+    /**
+     * @return sum of d[i] / k[i]
+     */
+    private static double scaledTotal(long[ ] k, long[ ] d) {
+        double total = 0;
+        for (int i = 0; i < k.length; i++) total += d[i] / (double) k[i];
+        return total;
+    }
+
+    /**
+     * Collects the profile from the orbits of every node. Accepting is thread-safe: every thread collects into
+     * its own distributions, which are merged by {@link #build()}.
+     */
+    public static final class Builder implements OrbitSink {
+        private final int orbitsCount;
+        private final List<Distributions> all = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<Distributions> local;
+
+        /**
+         * @param orbitsCount number of orbits per node, 15 (4 node graphlets) or 73 (5 node graphlets)
+         */
+        public Builder(int orbitsCount) {
+            if (orbitsCount != 15 && orbitsCount != OrbitEquations.ORBITS) {
+                throw new IllegalArgumentException("Incorrect orbits count " + orbitsCount + ". Should be 15 or 73.");
+            }
+            this.orbitsCount = orbitsCount;
+            this.local = ThreadLocal.withInitial(() -> {
+                Distributions d = new Distributions(orbitsCount);
+                all.add(d);
+                return d;
+            });
+        }
+
+        @Override
+        public void accept(int node, long[ ] orbits) {
+            local.get().add(orbits);
+        }
+
+        public GraphletProfile build() {
+            Distributions merged = new Distributions(orbitsCount);
+            for (Distributions d : all) merged.add(d);
+
+            int graphlets = GRAPHLET[orbitsCount - 1] + 1;
+            long[ ] graphletCounts = new long[graphlets];
+            for (int o = 0; o < orbitsCount; o++) graphletCounts[GRAPHLET[o]] += merged.totals[o];
+            // a graphlet of g nodes is counted once from each of its nodes
+            for (int g = 0; g < graphlets; g++) graphletCounts[g] /= SIZE[g];
+
+            long[ ][ ] degrees = new long[orbitsCount][ ];
+            long[ ][ ] nodes = new long[orbitsCount][ ];
+            for (int o = 0; o < orbitsCount; o++) {
+                Map<Long, Long> distribution = new HashMap<>(merged.large.get(o));
+                for (int k = 1; k < Distributions.SMALL; k++) {
+                    if (merged.small[o][k] > 0) distribution.put((long) k, merged.small[o][k]);
+                }
+                degrees[o] = distribution.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+                nodes[o] = new long[degrees[o].length];
+                for (int i = 0; i < degrees[o].length; i++) nodes[o][i] = distribution.get(degrees[o][i]);
+            }
+            return new GraphletProfile(graphletCounts, degrees, nodes);
+        }
+    }
+
+    /**
+     * orbit totals and degree distributions, dense for small degrees and hashed for the long tail
+     */
+    private static final class Distributions {
+        static final int SMALL = 1 << 10;
+
+        final long[ ] totals;
+        final long[ ][ ] small; // small[o][k] - number of nodes touching orbit o k < SMALL times
+        final List<Map<Long, Long>> large; // large.get(o).get(k) - number of nodes touching orbit o k >= SMALL times
+
+        Distributions(int orbitsCount) {
+            totals = new long[orbitsCount];
+            small = new long[orbitsCount][SMALL];
+            large = new ArrayList<>(orbitsCount);
+            for (int o = 0; o < orbitsCount; o++) large.add(new HashMap<>());
+        }
+
+        void add(long[ ] orbits) {
+            for (int o = 0; o < totals.length; o++) {
+                long k = orbits[o];
+                totals[o] += k;
+                if (k < SMALL) small[o][(int) k]++;
+                else large.get(o).merge(k, 1L, Long::sum);
+            }
+        }
+
+        void add(Distributions other) {
+            for (int o = 0; o < totals.length; o++) {
+                totals[o] += other.totals[o];
+                for (int k = 0; k < SMALL; k++) small[o][k] += other.small[o][k];
+                Map<Long, Long> tail = large.get(o);
+                other.large.get(o).forEach((k, count) -> tail.merge(k, count, Long::sum));
+            }
+        }
+    }
+}
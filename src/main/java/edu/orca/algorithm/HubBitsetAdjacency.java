@@ -0,0 +1,105 @@
+package edu.orca.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency test for skewed graphs: the highest degree nodes (hubs) get a bitset over all nodes, which answers
+ * every query touching a hub with a single lookup. Queries between two ordinary nodes fall back to binary
+ * search in the shorter neighbour list, which is short by construction.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class HubBitsetAdjacency implements AdjacencyIndex {
+    // nodes of smaller degree are answered quickly enough by binary search
+    static final int HUB_MIN_DEGREE = 64;
+
+    private final int[ ] deg;
+    private final int[ ] off;
+    private final int[ ] nbr;
+    private final int[ ] hub; // hub[x] - index of the bitset of node x or -1 if x is not a hub
+    private final long[ ][ ] hubBits; // hubBits[h] - neighbours of hub h as a bitset
+
+    private HubBitsetAdjacency(CsrGraph graph, int minHubDegree, int maxHubs) {
+        int n = graph.getNodesCount();
+        this.deg = graph.getDegrees();
+        this.off = graph.getOffsets();
+        this.nbr = graph.getNeighbors();
+        this.hub = new int[n];
+        Arrays.fill(hub, -1);
+
+        int hubs = 0;
+        for (int x = 0; x < n; x++) {
+            if (deg[x] > minHubDegree) hubs++;
+        }
+        // nodes of exactly the minimum degree fill the remaining budget
+        int ties = maxHubs - hubs;
+        this.hubBits = new long[Math.min(maxHubs, hubs + countDegree(deg, minHubDegree))][ ];
+        int h = 0;
+        for (int x = 0; x < n; x++) {
+            if (deg[x] < minHubDegree || (deg[x] == minHubDegree && ties-- <= 0)) continue;
+            long[ ] bits = new long[(n + 63) >>> 6];
+            for (int i = off[x]; i < off[x + 1]; i++) {
+                bits[nbr[i] >>> 6] |= 1L << nbr[i];
+            }
+            hub[x] = h;
+            hubBits[h++] = bits;
+        }
+    }
+
+    /**
+     * @return index with bitsets for the highest degree nodes fitting into memoryBudget, or null if no node
+     * qualifies as a hub
+     */
+    public static HubBitsetAdjacency of(CsrGraph graph, long memoryBudget) {
+        int n = graph.getNodesCount();
+        int[ ] deg = graph.getDegrees();
+        long bytesPerHub = (long) ((n + 63) >>> 6) * Long.BYTES + Integer.BYTES;
+        long maxHubs = Math.min(n, (memoryBudget - (long) n * Integer.BYTES) / bytesPerHub);
+        if (maxHubs <= 0) return null;
+
+        // find the smallest degree still getting a bitset with a degree histogram
+        int maxDegree = 0;
+        for (int d : deg) maxDegree = Math.max(maxDegree, d);
+        if (maxDegree < HUB_MIN_DEGREE) return null;
+        long[ ] histogram = new long[maxDegree + 1];
+        for (int d : deg) histogram[d]++;
+        int minHubDegree = maxDegree;
+        long selected = histogram[maxDegree];
+        while (minHubDegree > HUB_MIN_DEGREE && selected + histogram[minHubDegree - 1] <= maxHubs) {
+            selected += histogram[--minHubDegree];
+        }
+
+        return new HubBitsetAdjacency(graph, minHubDegree, (int) maxHubs);
+    }
+
+    private static int countDegree(int[ ] deg, int degree) {
+        int count = 0;
+        for (int d : deg) {
+            if (d == degree) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean adjacent(int x, int y) {
+        int h = hub[x];
+        if (h >= 0) return (hubBits[h][y >>> 6] & (1L << y)) != 0;
+        h = hub[y];
+        if (h >= 0) return (hubBits[h][x >>> 6] & (1L << x)) != 0;
+        if (deg[x] > deg[y]) {
+            return Arrays.binarySearch(nbr, off[y], off[y + 1], x) >= 0;
+        }
+        return Arrays.binarySearch(nbr, off[x], off[x + 1], y) >= 0;
+    }
+
+    @Override
+    public long memoryUsage() {
+        long words = 0;
+        for (long[ ] bits : hubBits) words += bits.length;
+        return (long) hub.length * Integer.BYTES + words * Long.BYTES;
+    }
+
+    public int getHubsCount() {
+        return hubBits.length;
+    }
+}
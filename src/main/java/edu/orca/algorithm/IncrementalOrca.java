@@ -0,0 +1,207 @@
+package edu.orca.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the orbit counts of a changing graph up to date. Edge batches only recount the nodes whose orbits
+ * can change: a graphlet on k nodes that contains node x and a changed edge keeps x within distance k - 2 of
+ * an endpoint of that edge, either in the old or in the new graph. Those nodes are recounted on the subgraph
+ * induced by their (k - 1)-hop neighbourhood, which holds every graphlet and every precomputed quantity
+ * their equations use.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class IncrementalOrca {
+    private final int graphletSize;
+    private CsrGraph graph;
+    private long[ ][ ] orbit; // orbit[x][o] - how many times does node x participate in orbit o
+    private int parallelism = 1;
+    private long adjacencyMemoryBudget = AdjacencyIndex.DEFAULT_MEMORY_BUDGET;
+
+    /**
+     * Counts the orbits of the whole graph once
+     *
+     * @param graphletSize size of graphlets over which signature of a node needs to be calculated (either 4 or 5)
+     * @param graph undirected simple graph
+     */
+    public IncrementalOrca(int graphletSize, CsrGraph graph) {
+        this(graphletSize, graph, OrbitCounter.of(graphletSize, graph).count());
+    }
+
+    /**
+     * Continues from orbits counted earlier, e.g. by {@link Orca#count()}
+     *
+     * @param graphletSize size of graphlets the orbits were counted for (either 4 or 5)
+     * @param graph undirected simple graph
+     * @param orbit orbit[x][o] - orbits of graph
+     */
+    public IncrementalOrca(int graphletSize, CsrGraph graph, long[ ][ ] orbit) {
+        if (graphletSize != 4 && graphletSize != 5) {
+            throw new IllegalArgumentException("Incorrect graphlet size " + graphletSize + ". Should be 4 or 5.");
+        }
+        if (orbit.length != graph.getNodesCount()) {
+            throw new IllegalArgumentException("Incorrect orbits count " + orbit.length + ". Should be "
+                    + graph.getNodesCount() + ".");
+        }
+        this.graphletSize = graphletSize;
+        this.graph = graph;
+        this.orbit = orbit;
+    }
+
+    /**
+     * Applies the batch to the graph and recounts the orbits of the affected nodes. Removals refer to the
+     * current graph, additions may introduce new nodes.
+     *
+     * @param batch edge additions and removals
+     * @return sorted ids of the nodes whose orbits were recounted
+     */
+    public int[ ] apply(EdgeBatch batch) {
+        if (batch.isEmpty()) {
+            return new int[0];
+        }
+        int[ ] added = batch.getAdded();
+        int[ ] removed = batch.getRemoved();
+        CsrGraph oldGraph = graph;
+        CsrGraph newGraph = update(oldGraph, added, removed);
+
+        int oldSeedsCount = 0;
+        int[ ] oldSeeds = new int[added.length + removed.length];
+        int[ ] seeds = new int[added.length + removed.length];
+        for (int i = 0; i < added.length; i++) {
+            seeds[i] = added[i];
+            if (added[i] < oldGraph.getNodesCount()) oldSeeds[oldSeedsCount++] = added[i];
+        }
+        for (int i = 0; i < removed.length; i++) {
+            seeds[added.length + i] = removed[i];
+            oldSeeds[oldSeedsCount++] = removed[i];
+        }
+
+        // nodes within distance k - 2 of a changed edge in either graph
+        int[ ] oldAffected = oldGraph.neighborhood(Arrays.copyOf(oldSeeds, oldSeedsCount), graphletSize - 2);
+        int[ ] newAffected = newGraph.neighborhood(seeds, graphletSize - 2);
+        int[ ] affected = union(oldAffected, newAffected);
+
+        int[ ] ball = newGraph.neighborhood(affected, graphletSize - 1);
+        int[ ] local = new int[affected.length];
+        for (int i = 0; i < affected.length; i++) {
+            local[i] = Arrays.binarySearch(ball, affected[i]);
+        }
+        OrbitCounter orbitCounter = OrbitCounter.of(graphletSize, newGraph.inducedSubgraph(ball));
+        orbitCounter.setParallelism(parallelism);
+        orbitCounter.setAdjacencyMemoryBudget(adjacencyMemoryBudget);
+        long[ ][ ] counts = orbitCounter.count(local);
+
+        if (newGraph.getNodesCount() > orbit.length) {
+            int orbitsCount = orbitCounter.getOrbitsCount();
+            long[ ][ ] grown = Arrays.copyOf(orbit, newGraph.getNodesCount());
+            for (int x = orbit.length; x < grown.length; x++) {
+                grown[x] = new long[orbitsCount];
+            }
+            orbit = grown;
+        }
+        for (int i = 0; i < affected.length; i++) {
+            orbit[affected[i]] = counts[i];
+        }
+        graph = newGraph;
+        return affected;
+    }
+
+    /**
+     * @return orbit[x][o] - how many times does node x participate in orbit o in the current graph
+     */
+    public long[ ][ ] getOrbits() {
+        return orbit;
+    }
+
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    public int getGraphletSize() {
+        return graphletSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism number of worker threads used to recount affected nodes
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Incorrect parallelism " + parallelism + ". Should be at least 1.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public long getAdjacencyMemoryBudget() {
+        return adjacencyMemoryBudget;
+    }
+
+    /**
+     * @param adjacencyMemoryBudget number of bytes, see {@link Orca#setAdjacencyMemoryBudget(long)}
+     */
+    public void setAdjacencyMemoryBudget(long adjacencyMemoryBudget) {
+        if (adjacencyMemoryBudget < 0) {
+            throw new IllegalArgumentException("Incorrect memory budget " + adjacencyMemoryBudget + ". Should not be negative.");
+        }
+        this.adjacencyMemoryBudget = adjacencyMemoryBudget;
+    }
+
+    /**
+     * @return graph with the removed edges dropped and the added edges appended
+     */
+    private static CsrGraph update(CsrGraph graph, int[ ] added, int[ ] removed) {
+        int n = graph.getNodesCount();
+        int m = graph.getEdgesCount();
+        int[ ] offsets = graph.getOffsets();
+        int[ ] neighbors = graph.getNeighbors();
+        int[ ] edgeIds = graph.getEdgeIds();
+
+        boolean[ ] dropped = new boolean[m];
+        for (int i = 0; i < removed.length; i += 2) {
+            int a = removed[i], b = removed[i + 1];
+            int pos = a < n && b < n ? Arrays.binarySearch(neighbors, offsets[a], offsets[a + 1], b) : -1;
+            if (pos < 0 || dropped[edgeIds[pos]]) {
+                throw new IllegalArgumentException("Incorrect removed edge (" + a + ", " + b + "). Should be in the graph.");
+            }
+            dropped[edgeIds[pos]] = true;
+        }
+
+        int newM = m - removed.length / 2 + added.length / 2;
+        int[ ] sources = new int[newM];
+        int[ ] targets = new int[newM];
+        int e = 0;
+        for (int old = 0; old < m; old++) {
+            if (dropped[old]) continue;
+            sources[e] = graph.getEdgeSources()[old];
+            targets[e++] = graph.getEdgeTargets()[old];
+        }
+        for (int i = 0; i < added.length; i += 2) {
+            n = Math.max(n, Math.max(added[i], added[i + 1]) + 1);
+            sources[e] = added[i];
+            targets[e++] = added[i + 1];
+        }
+        return CsrGraph.of(n, sources, targets);
+    }
+
+    /**
+     * @return sorted union of two sorted arrays of distinct values
+     */
+    private static int[ ] union(int[ ] a, int[ ] b) {
+        int[ ] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[k++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[k++] = b[j++];
+            } else {
+                result[k++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+}
@@ -0,0 +1,23 @@
+package edu.orca.algorithm;
+
+/**
+ * Order in which nodes are numbered before counting. Clique enumeration only extends an edge (x, y) with
+ * neighbours of smaller id, so giving hubs small ids bounds the candidate lists on skewed graphs.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public enum NodeOrdering {
+    /**
+     * keep the node ids of the input graph
+     */
+    INPUT,
+    /**
+     * number nodes by decreasing degree, no node has more than sqrt(2m) neighbours of smaller id
+     */
+    DEGREE,
+    /**
+     * number nodes by reversed smallest-last (degeneracy) order, no node has more neighbours of smaller id
+     * than the degeneracy of the graph
+     */
+    DEGENERACY
+}
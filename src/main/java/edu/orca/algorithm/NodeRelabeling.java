@@ -0,0 +1,152 @@
+package edu.orca.algorithm;
+
+/**
+ * Permutation of the node ids of a graph. Counting on the relabeled graph gives the same orbit counts per node,
+ * {@link #restore(long[ ][ ])} puts the rows back in the order of the original ids.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class NodeRelabeling {
+    private final int[ ] newIds; // newIds[x] - id of original node x in the relabeled graph
+    private final int[ ] oldIds; // oldIds[x] - original id of node x of the relabeled graph
+
+    private NodeRelabeling(int[ ] newIds) {
+        this.newIds = newIds;
+        this.oldIds = new int[newIds.length];
+        for (int x = 0; x < newIds.length; x++) {
+            oldIds[newIds[x]] = x;
+        }
+    }
+
+    /**
+     * @return relabeling of graph nodes in the given order
+     */
+    public static NodeRelabeling of(CsrGraph graph, NodeOrdering ordering) {
+        switch (ordering) {
+            case DEGREE:
+                return byDegree(graph);
+            case DEGENERACY:
+                return byDegeneracy(graph);
+            default:
+                int[ ] identity = new int[graph.getNodesCount()];
+                for (int x = 0; x < identity.length; x++) identity[x] = x;
+                return new NodeRelabeling(identity);
+        }
+    }
+
+    private static NodeRelabeling byDegree(CsrGraph graph) {
+        int n = graph.getNodesCount();
+        int[ ] deg = graph.getDegrees();
+        int maxDegree = 0;
+        for (int d : deg) maxDegree = Math.max(maxDegree, d);
+
+        // counting sort by decreasing degree, ties keep their original order
+        int[ ] start = new int[maxDegree + 2];
+        for (int d : deg) start[maxDegree - d + 1]++;
+        for (int i = 1; i < start.length; i++) start[i] += start[i - 1];
+        int[ ] newIds = new int[n];
+        for (int x = 0; x < n; x++) {
+            newIds[x] = start[maxDegree - deg[x]]++;
+        }
+        return new NodeRelabeling(newIds);
+    }
+
+    private static NodeRelabeling byDegeneracy(CsrGraph graph) {
+        int n = graph.getNodesCount();
+        int[ ] off = graph.getOffsets();
+        int[ ] nbr = graph.getNeighbors();
+        int[ ] deg = graph.getDegrees().clone();
+        int maxDegree = 0;
+        for (int d : deg) maxDegree = Math.max(maxDegree, d);
+
+        // bucket queue of nodes by remaining degree (Matula and Beck): nodes sorted by degree with bucket starts
+        int[ ] bucket = new int[maxDegree + 1];
+        for (int d : deg) bucket[d]++;
+        for (int d = 0, start = 0; d <= maxDegree; d++) {
+            int size = bucket[d];
+            bucket[d] = start;
+            start += size;
+        }
+        int[ ] order = new int[n];
+        int[ ] position = new int[n];
+        for (int x = 0; x < n; x++) {
+            position[x] = bucket[deg[x]]++;
+            order[position[x]] = x;
+        }
+        for (int d = maxDegree; d > 0; d--) bucket[d] = bucket[d - 1];
+        bucket[0] = 0;
+
+        // remove nodes of smallest remaining degree, nodes removed last get the smallest ids
+        int[ ] newIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            int x = order[i];
+            newIds[x] = n - 1 - i;
+            for (int j = off[x]; j < off[x + 1]; j++) {
+                int y = nbr[j];
+                if (deg[y] > deg[x]) {
+                    // move y to the front of its bucket and shrink the bucket by one
+                    int dy = deg[y], py = position[y], pw = bucket[dy], w = order[pw];
+                    if (y != w) {
+                        order[py] = w;
+                        position[w] = py;
+                        order[pw] = y;
+                        position[y] = pw;
+                    }
+                    bucket[dy]++;
+                    deg[y]--;
+                }
+            }
+        }
+        return new NodeRelabeling(newIds);
+    }
+
+    /**
+     * @return copy of graph with every node x renamed to newId(x), edge ids are kept
+     */
+    public CsrGraph apply(CsrGraph graph) {
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        int m = graph.getEdgesCount();
+        int[ ] newSources = new int[m];
+        int[ ] newTargets = new int[m];
+        for (int e = 0; e < m; e++) {
+            newSources[e] = newIds[sources[e]];
+            newTargets[e] = newIds[targets[e]];
+        }
+        return CsrGraph.of(graph.getNodesCount(), newSources, newTargets);
+    }
+
+    /**
+     * @return rows of orbit counted on the relabeled graph, ordered by original node id
+     */
+    public long[ ][ ] restore(long[ ][ ] orbit) {
+        long[ ][ ] restored = new long[orbit.length][ ];
+        for (int x = 0; x < orbit.length; x++) {
+            restored[x] = orbit[newIds[x]];
+        }
+        return restored;
+    }
+
+    /**
+     * @return estimates made on the relabeled graph, ordered by original node id
+     */
+    public OrbitEstimates restore(OrbitEstimates estimates) {
+        double[ ][ ] estimate = estimates.getEstimates();
+        double[ ][ ] variance = estimates.getVariances();
+        double[ ][ ] restoredEstimate = new double[estimate.length][ ];
+        double[ ][ ] restoredVariance = new double[variance.length][ ];
+        for (int x = 0; x < estimate.length; x++) {
+            restoredEstimate[x] = estimate[newIds[x]];
+            restoredVariance[x] = variance[newIds[x]];
+        }
+        return new OrbitEstimates(restoredEstimate, restoredVariance);
+    }
+
+    public int newId(int x) {
+        return newIds[x];
+    }
+
+    public int oldId(int x) {
+        return oldIds[x];
+    }
+}
@@ -0,0 +1,18 @@
+package edu.orca.algorithm;
+
+/**
+ * Receives the orbits of nodes in batches collected by every worker thread. With parallelism above 1 accept is
+ * called from several worker threads at once, always for different nodes.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+@FunctionalInterface
+public interface OrbitBatchSink {
+
+    /**
+     * @param nodes nodes[i] - id of the i-th node of the batch
+     * @param orbits orbits[i * orbitsCount + o] - how many times does node nodes[i] participate in orbit o
+     * @param count number of nodes in the batch; both buffers are reused for the next batch once accept returns
+     */
+    void accept(int[ ] nodes, long[ ] orbits, int count);
+}
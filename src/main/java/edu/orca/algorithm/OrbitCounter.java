@@ -1,54 +1,585 @@
 package edu.orca.algorithm;
 
-import edu.jgraphtsupport.AbstractEdge;
-import javaslang.Tuple2;
-import javaslang.collection.Array;
+import edu.orca.utils.Intersections;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntToLongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Created by KanthKumar on 2/22/17.
  */
 public abstract class OrbitCounter {
-    protected final OrcaGraph hostGraph;
+    // number of chunks handed to each worker, more chunks give better balancing on skewed graphs
+    private static final int CHUNKS_PER_WORKER = 16;
+    static final int DEFAULT_CHECKPOINT_BLOCK_SIZE = 1 << 16;
+
+    protected final CsrGraph graph;
     protected final int m; //edges count
     protected final int n; //nodes count
     protected final int[ ] deg; //deg[x] - degree of node x
-    protected Array<AbstractEdge> edges;
 
-    protected final int[ ][ ] adj; // adj[x] - adjacency list of node x
-    protected final Tuple2<Integer, Integer>[ ][ ] inc; // inc[x] - incidence list of node x: (y, edge id)
+    protected final int[ ] off; // off[x] .. off[x + 1] - 1 - positions of the neighbours of node x in nbr and eid
+    protected final int[ ] nbr; // nbr[i] - neighbour, sorted within every node
+    protected final int[ ] eid; // eid[i] - id of the edge to neighbour nbr[i]
 
-    protected long[ ][ ] orbit; // orbit[x][o] - how many times does node x participate in orbit o
+    protected int parallelism = 1; // number of worker threads used by the parallel phases
+    protected long adjacencyMemoryBudget = AdjacencyIndex.DEFAULT_MEMORY_BUDGET;
+    protected AdjacencyIndex adjacency; // answers adjacent(x, y), built at the start of a count
+    protected OrbitSelection orbitSelection; // orbits to count, null counts all of them
+    protected Path checkpointDirectory; // directory of the checkpoint of a count, null counts without checkpoints
+    protected int checkpointBlockSize = DEFAULT_CHECKPOINT_BLOCK_SIZE; // nodes per checkpoint of the equation phase
+    protected CountMetrics metrics = new CountMetrics(); // timers and counters of the counts
+    protected int[ ] triangles; // triangles[e] - taken from a graph index, null counts them
+    private Map<Class<?>, Object> scratchCache; // scratch kept across counts of a batch worker, null allocates it
+    private ForkJoinPool pool; // workers shared by the blocks of the equation phase, null starts a pool per phase
+    private ThreadLocal<Map<Class<?>, Object>> workerScratch; // scratch of every worker kept across the blocks
+
+    /**
+     * @return counter of orbits of graphlets on max graphletSize nodes (either 4 or 5)
+     */
+    public static OrbitCounter of(int graphletSize, CsrGraph graph) {
+        if (graphletSize == 4) {
+            return new FourNodeGraphletOrbitCounter(graph);
+        } else if (graphletSize == 5) {
+            return new FiveNodeGraphletOrbitCounter(graph);
+        }
+        throw new IllegalArgumentException("Incorrect graphlet size " + graphletSize + ". Should be 4 or 5.");
+    }
 
     public OrbitCounter(OrcaGraph graph) {
-        this.hostGraph = graph;
+        this(graph.getCsrGraph());
+    }
+
+    public OrbitCounter(CsrGraph graph) {
+        this.graph = graph;
         this.n = graph.getNodesCount();
         this.m = graph.getEdgesCount();
-        this.deg = graph.getNodesDegree();
-        this.edges = graph.getEdges();
-        this.adj = graph.getAdjacencyList();
-        this.inc = graph.getIncidentList();
+        this.deg = graph.getDegrees();
+        this.off = graph.getOffsets();
+        this.nbr = graph.getNeighbors();
+        this.eid = graph.getEdgeIds();
     }
 
-    public abstract long[ ][ ] count();
+    /**
+     * @return number of orbits counted for every node
+     */
+    public abstract int getOrbitsCount();
 
-    public int[ ] countTriangles() {
-        int[ ] tri = new int[m];
-        edges.zipWithIndex().forEach(edgeIndexTuple -> {
-            int x = edgeIndexTuple._1.getSourceVertexId();
-            int y = edgeIndexTuple._1.getTargetVertexId();
-            for (int xi = 0, yi = 0; xi < deg[x] && yi < deg[y];) {
-                if (adj[x][xi] == adj[y][yi]) {
-                    tri[edgeIndexTuple._2]++;
-                    xi++;
-                    yi++;
-                } else if (adj[x][xi] < adj[y][yi]) {
-                    xi++;
+    /**
+     * @return orbit[x][o] - how many times does node x participate in orbit o
+     */
+    public long[ ][ ] count() {
+        return count(allNodes());
+    }
+
+    /**
+     * Counts orbits of the given nodes only. Common nodes are precomputed for the neighbourhood of the nodes,
+     * triangles and cliques still cover the whole graph; restrict the graph first to save that work as well.
+     *
+     * @param nodes nodes whose orbits are counted
+     * @return orbit[i][o] - how many times does node nodes[i] participate in orbit o
+     */
+    public long[ ][ ] count(int[ ] nodes) {
+        long[ ][ ] orbit = new long[nodes.length][];
+        count(nodes, (i, row) -> orbit[i] = row.clone());
+        return orbit;
+    }
+
+    /**
+     * counts orbits of all nodes straight into result, without a long[ ][ ] copy on the heap
+     *
+     * @param result matrix of n rows and getOrbitsCount() columns, row x receives the orbits of node x
+     * @return result
+     */
+    public OrbitMatrix count(OrbitMatrix result) {
+        if (result.getNodesCount() != n || result.getOrbitsCount() != getOrbitsCount()) {
+            throw new IllegalArgumentException("Incorrect matrix size " + result.getNodesCount() + " x "
+                    + result.getOrbitsCount() + ". Should be " + n + " x " + getOrbitsCount() + ".");
+        }
+        count((OrbitSink) result);
+        return result;
+    }
+
+    /**
+     * counts orbits of all nodes and hands every node to sink as soon as it is solved
+     */
+    public void count(OrbitSink sink) {
+        int[ ] nodes = allNodes();
+        count(nodes, (i, row) -> sink.accept(nodes[i], row));
+    }
+
+    /**
+     * Counts orbits of all nodes and hands them to sink in batches. Every worker fills its own batch, the last
+     * partial batches are delivered after all nodes are solved.
+     *
+     * @param sink receives the batches
+     * @param batchSize maximum number of nodes in a batch
+     */
+    public void count(OrbitBatchSink sink, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Incorrect batch size " + batchSize + ". Should be at least 1.");
+        }
+        int[ ] nodes = allNodes();
+        int orbitsCount = getOrbitsCount();
+        List<Batch> batches = new CopyOnWriteArrayList<>();
+        ThreadLocal<Batch> batch = ThreadLocal.withInitial(() -> {
+            Batch b = new Batch(batchSize, orbitsCount);
+            batches.add(b);
+            return b;
+        });
+        count(nodes, (i, row) -> {
+            Batch b = batch.get();
+            b.nodes[b.count] = nodes[i];
+            System.arraycopy(row, 0, b.orbits, b.count * orbitsCount, orbitsCount);
+            if (++b.count == batchSize) {
+                sink.accept(b.nodes, b.orbits, b.count);
+                b.count = 0;
+            }
+        });
+        for (Batch b : batches) {
+            if (b.count > 0) sink.accept(b.nodes, b.orbits, b.count);
+            b.count = 0;
+        }
+    }
+
+    /**
+     * Counts orbits of the given nodes and hands every row to writer, possibly from several threads at once.
+     * The row buffer is reused after write returns.
+     *
+     * @param nodes nodes whose orbits are counted
+     * @param writer receives the index into nodes and the orbits of that node
+     */
+    protected abstract void count(int[ ] nodes, RowWriter writer);
+
+    /**
+     * @return number of edge orbits counted for every edge, see {@link EdgeOrbits}
+     */
+    public abstract int getEdgeOrbitsCount();
+
+    /**
+     * Counts the edge orbits of all edges. Uses the same triangles (and common nodes for 5-node graphlets) as
+     * the node orbits; the orbit selection and checkpoints of node counts do not apply.
+     *
+     * @return orbit[e][o] - how many times does edge e participate in edge orbit o, e being the edge ids of the
+     * graph
+     */
+    public abstract long[ ][ ] countEdges();
+
+    /**
+     * @return ids of all nodes in increasing order
+     */
+    protected int[ ] allNodes() {
+        int[ ] nodes = new int[n];
+        for (int x = 0; x < n; x++) nodes[x] = x;
+        return nodes;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism number of worker threads, 1 runs every phase on the calling thread
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Incorrect parallelism " + parallelism + ". Should be at least 1.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public long getAdjacencyMemoryBudget() {
+        return adjacencyMemoryBudget;
+    }
+
+    /**
+     * @param adjacencyMemoryBudget number of bytes the adjacency index may use, see {@link AdjacencyIndex#create}
+     */
+    public void setAdjacencyMemoryBudget(long adjacencyMemoryBudget) {
+        if (adjacencyMemoryBudget < 0) {
+            throw new IllegalArgumentException("Incorrect memory budget " + adjacencyMemoryBudget + ". Should not be negative.");
+        }
+        if (this.adjacencyMemoryBudget != adjacencyMemoryBudget) {
+            this.adjacencyMemoryBudget = adjacencyMemoryBudget;
+            this.adjacency = null;
+        }
+    }
+
+    public OrbitSelection getOrbitSelection() {
+        return orbitSelection;
+    }
+
+    /**
+     * @param orbitSelection orbits to count, null counts all of them; other orbits are left 0
+     */
+    public void setOrbitSelection(OrbitSelection orbitSelection) {
+        if (orbitSelection != null && orbitSelection.getOrbitsCount() != getOrbitsCount()) {
+            throw new IllegalArgumentException("Incorrect orbit selection for graphlets on max "
+                    + orbitSelection.getGraphletSize() + " nodes. Should have " + getOrbitsCount() + " orbits.");
+        }
+        this.orbitSelection = orbitSelection;
+    }
+
+    /**
+     * Takes the precomputed data of index instead of computing it in every count
+     *
+     * @param index index built for the graph of this counter
+     */
+    public void setGraphIndex(GraphIndex index) {
+        if (index.getGraph() != graph) {
+            throw new IllegalArgumentException("Incorrect graph index. Should be built for the counted graph.");
+        }
+        this.triangles = index.getTriangles();
+    }
+
+    /**
+     * @return timers and counters of the counts of this counter, updated while a count runs
+     */
+    public CountMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics receives the timers and counters of the following counts
+     */
+    public void setMetrics(CountMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics should not be null");
+        }
+        this.metrics = metrics;
+    }
+
+    public Path getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    /**
+     * Keeps the completed phases of every count in directory and resumes from the phases found there. The
+     * directory may only be reused for the same graph, nodes, orbit selection and block size.
+     *
+     * @param checkpointDirectory local directory of the checkpoint, null counts without checkpoints
+     */
+    public void setCheckpointDirectory(Path checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    public int getCheckpointBlockSize() {
+        return checkpointBlockSize;
+    }
+
+    /**
+     * @param checkpointBlockSize number of nodes whose orbits are stored together, a crash loses at most one block
+     */
+    public void setCheckpointBlockSize(int checkpointBlockSize) {
+        if (checkpointBlockSize < 1) {
+            throw new IllegalArgumentException("Incorrect checkpoint block size " + checkpointBlockSize
+                    + ". Should be at least 1.");
+        }
+        this.checkpointBlockSize = checkpointBlockSize;
+    }
+
+    /**
+     * @return checkpoint of counting the given nodes, null if no checkpoint directory is set
+     */
+    protected Checkpoint openCheckpoint(int[ ] nodes) {
+        if (checkpointDirectory == null) return null;
+        long fingerprint = Checkpoint.fingerprint(graph, getOrbitsCount(), nodes, orbitSelection, checkpointBlockSize);
+        return new Checkpoint(checkpointDirectory, fingerprint, checkpointBlockSize);
+    }
+
+    /**
+     * Runs the equation phase of the given nodes with solver, block by block through checkpoint unless it is
+     * null. The blocks share one worker pool, and scratch of {@link #reusable} stays with its worker across them.
+     */
+    protected void solveNodes(int[ ] nodes, Checkpoint checkpoint, RowWriter writer, Checkpoint.BlockSolver solver) {
+        metrics.startEquations(nodes.length);
+        RowWriter counted = (i, row) -> {
+            writer.write(i, row);
+            metrics.nodesDone(1);
+        };
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        workerScratch = ThreadLocal.withInitial(HashMap::new);
+        try {
+            timePhase(CountPhase.EQUATIONS, () -> {
+                if (checkpoint == null) {
+                    solver.solve(0, nodes.length, counted);
                 } else {
-                    yi++;
+                    checkpoint.solve(nodes.length, getOrbitsCount(), counted, solver);
                 }
-            }
+            });
+        } finally {
+            // the calling thread may have solved nodes as well, the pool threads end with the pool
+            workerScratch.remove();
+            workerScratch = null;
+            if (pool != null) pool.shutdown();
+            pool = null;
+        }
+        metrics.finishEquations();
+    }
+
+    /**
+     * @return true if orbit o has to be counted
+     */
+    protected boolean isRequired(int o) {
+        return orbitSelection == null || orbitSelection.isRequired(o);
+    }
+
+    /**
+     * zeroes the orbits which are not required, their equations were solved from partial sums
+     */
+    protected void clearUnrequired(long[ ] orbit) {
+        if (orbitSelection == null) return;
+        for (int o = 0; o < orbit.length; o++) {
+            if (!orbitSelection.isRequired(o)) orbit[o] = 0;
+        }
+    }
+
+    /**
+     * builds the adjacency index within the memory budget unless it is already built
+     */
+    protected void buildAdjacencyIndex() {
+        if (adjacency == null) {
+            timePhase(CountPhase.ADJACENCY_INDEX, () -> {
+                adjacency = AdjacencyIndex.create(graph, adjacencyMemoryBudget);
+            });
+        }
+    }
+
+    /**
+     * starts timing a run of phase, the phase ends when the returned timer is closed
+     */
+    protected PhaseTimer startPhase(CountPhase phase) {
+        return metrics.startPhase(phase, n, m);
+    }
+
+    /**
+     * runs action as a run of phase, the phase ends when action returns or throws
+     */
+    protected void timePhase(CountPhase phase, Runnable action) {
+        PhaseTimer timer = startPhase(phase);
+        try {
+            action.run();
+        } finally {
+            timer.close();
+        }
+    }
+
+    /**
+     * Precompute triangles that span over edges. Edges are split across the workers by the estimated cost of
+     * intersecting the neighbour lists of their endpoints, see {@link Intersections}.
+     *
+     * @return tri[e] - number of triangles containing edge e
+     */
+    public int[ ] countTriangles() {
+        if (triangles != null) return triangles;
+        int[ ] tri = new int[m];
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        timePhase(CountPhase.TRIANGLES, () -> {
+            parallelFor(m, e -> Intersections.cost(deg[sources[e]], deg[targets[e]]), () -> null, (e, scratch) -> {
+                int x = sources[e];
+                int y = targets[e];
+                tri[e] = Intersections.count(nbr, off[x], off[x + 1], nbr, off[y], off[y + 1]);
+            });
         });
+        // one intersection per edge
+        metrics.addIntersections(m);
         return tri;
     }
 
+    /**
+     * @return largest degree of a node, 0 for a graph without nodes
+     */
+    protected int maxDegree() {
+        int max = 0;
+        for (int x = 0; x < n; x++) max = Math.max(max, deg[x]);
+        return max;
+    }
+
+    /**
+     * @return true if there is an edge between nodes x and y
+     */
+    protected final boolean adjacent(int x, int y) {
+        return adjacency.adjacent(x, y);
+    }
+
+    /**
+     * estimated cost of solving the equations of node x, used to balance the parallel equation phase
+     */
+    protected long nodeWorkEstimate(int x) {
+        long work = 1;
+        for (int nx = off[x]; nx < off[x + 1]; nx++) {
+            work += deg[x] + deg[nbr[nx]];
+        }
+        return work;
+    }
+
+    /**
+     * Lets serial counts keep their scratch buffers in cache, so that the counts of many graphs on one thread
+     * allocate them only when a graph is larger than every graph before
+     *
+     * @param scratchCache scratch by type, owned by a single thread; null allocates fresh scratch for every phase
+     */
+    void setScratchCache(Map<Class<?>, Object> scratchCache) {
+        this.scratchCache = scratchCache;
+    }
+
+    /**
+     * @return scratch factory handing out the cached scratch of type if fits accepts it, otherwise a new one
+     * which replaces it in the cache. Serial counts of a batch worker use its cache, the blocks of the equation
+     * phase a cache per worker thread; elsewhere it is factory itself.
+     */
+    protected <S> Supplier<S> reusable(Class<S> type, Predicate<S> fits, Supplier<S> factory) {
+        Map<Class<?>, Object> cache = scratchCache;
+        if (cache != null && parallelism == 1) return () -> cached(cache, type, fits, factory);
+        ThreadLocal<Map<Class<?>, Object>> workers = workerScratch;
+        if (workers != null) return () -> cached(workers.get(), type, fits, factory);
+        return factory;
+    }
+
+    private static <S> S cached(Map<Class<?>, Object> cache, Class<S> type, Predicate<S> fits, Supplier<S> factory) {
+        S scratch = type.cast(cache.get(type));
+        if (scratch == null || !fits.test(scratch)) {
+            scratch = factory.get();
+            cache.put(type, scratch);
+        }
+        return scratch;
+    }
+
+    /**
+     * Runs task for every index in [0, count). With parallelism 1 the indices are processed in order on the
+     * calling thread, otherwise they are split into contiguous chunks of similar total weight which are executed
+     * on a fork-join pool, heaviest chunks first. Every worker gets its own scratch object. The pool is the one
+     * shared by the blocks of the equation phase when it runs, a new one otherwise.
+     *
+     * @param count number of indices
+     * @param weight estimated work of an index
+     * @param scratchFactory creates the scratch buffers of a worker
+     * @param task work done for a single index
+     * @param <S> scratch type
+     */
+    protected <S> void parallelFor(int count, IntToLongFunction weight, Supplier<S> scratchFactory, IndexTask<S> task) {
+        if (parallelism == 1 || count < 2) {
+            S scratch = scratchFactory.get();
+            for (int i = 0; i < count; i++) {
+                task.run(i, scratch);
+            }
+            return;
+        }
+
+        ThreadLocal<S> scratch = ThreadLocal.withInitial(scratchFactory);
+        List<Callable<Void>> chunks = new ArrayList<>();
+        List<Long> chunkWeights = new ArrayList<>();
+        long total = 0;
+        long[ ] weights = new long[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = Math.max(1, weight.applyAsLong(i));
+            total += weights[i];
+        }
+        long target = Math.max(1, total / ((long) parallelism * CHUNKS_PER_WORKER));
+        for (int from = 0; from < count;) {
+            int to = from;
+            long chunkWeight = 0;
+            while (to < count && (to == from || chunkWeight + weights[to] <= target)) {
+                chunkWeight += weights[to++];
+            }
+            int lo = from, hi = to;
+            chunks.add(() -> {
+                S s = scratch.get();
+                for (int i = lo; i < hi; i++) {
+                    task.run(i, s);
+                }
+                return null;
+            });
+            chunkWeights.add(chunkWeight);
+            from = to;
+        }
+
+        // start the heaviest chunks (typically single hub nodes) first so they do not delay the tail of the run
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) order.add(i);
+        order.sort((a, b) -> Long.compare(chunkWeights.get(b), chunkWeights.get(a)));
+        List<Callable<Void>> ordered = new ArrayList<>();
+        order.forEach(i -> ordered.add(chunks.get(i)));
+
+        ForkJoinPool shared = this.pool;
+        ForkJoinPool pool = shared != null ? shared : new ForkJoinPool(parallelism);
+        try {
+            for (Future<Void> future : pool.invokeAll(ordered)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Orbit counting was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (pool != shared) pool.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    protected interface IndexTask<S> {
+        void run(int index, S scratch);
+    }
+
+    /**
+     * Per node counters shared by the workers of a parallel phase: a plain array when the phase runs on the
+     * calling thread, an atomic array otherwise.
+     */
+    protected static final class NodeCounts {
+        private final long[ ] plain;
+        private final AtomicLongArray atomic;
+
+        NodeCounts(int n, int parallelism) {
+            plain = parallelism == 1 ? new long[n] : null;
+            atomic = parallelism == 1 ? null : new AtomicLongArray(n);
+        }
+
+        void increment(int x) {
+            if (plain != null) plain[x]++;
+            else atomic.incrementAndGet(x);
+        }
+
+        long[ ] toArray() {
+            if (plain != null) return plain;
+            long[ ] counts = new long[atomic.length()];
+            for (int x = 0; x < counts.length; x++) counts[x] = atomic.get(x);
+            return counts;
+        }
+    }
+
+    /**
+     * rows collected by one worker for an OrbitBatchSink
+     */
+    private static final class Batch {
+        final int[ ] nodes;
+        final long[ ] orbits;
+        int count;
+
+        Batch(int batchSize, int orbitsCount) {
+            nodes = new int[batchSize];
+            orbits = new long[batchSize * orbitsCount];
+        }
+    }
+
+    @FunctionalInterface
+    protected interface RowWriter {
+        void write(int index, long[ ] row);
+    }
+
 }
@@ -0,0 +1,109 @@
+package edu.orca.algorithm;
+
+/**
+ * The system of equations of 5-node orbits 15 - 71 as data, mirroring the hand written solver of
+ * {@link FiveNodeGraphletOrbitCounter}. Used where the equations are needed as a whole: dependency closures of
+ * orbit selections and solving estimated (fractional) sums.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+final class OrbitEquations {
+    static final int ORBITS = 73;
+
+    // EQUATIONS[o - 15] = {d, c1, o1, c2, o2, ...} - orbit[o] = (f_o - c1 * orbit[o1] - c2 * orbit[o2] - ...) / d
+    private static final int[ ][ ] EQUATIONS = {
+            {1, 1, 59, 2, 52, 1, 51, 2, 45, 2, 35, 2, 34, 2, 27}, // 15
+            {1, 1, 59, 2, 52, 1, 51, 2, 46, 2, 36, 2, 34, 1, 29}, // 16
+            {2, 1, 60, 1, 53, 1, 51, 1, 48, 1, 37, 2, 34, 2, 30}, // 17
+            {2, 1, 59, 1, 51, 2, 46, 2, 45, 2, 36, 2, 27, 1, 24}, // 18
+            {1, 4, 54, 4, 49, 1, 40, 2, 39, 1, 37, 2, 35, 2, 31}, // 19
+            {1, 2, 54, 2, 49, 1, 40, 1, 37, 1, 32}, // 20
+            {1, 3, 55, 3, 50, 2, 42, 2, 38, 2, 33}, // 21
+            {3, 2, 54, 1, 40, 1, 39, 1, 32, 2, 31}, // 22
+            {4, 1, 55, 1, 42, 2, 33}, // 23
+            {1, 4, 65, 4, 62, 1, 59, 6, 56, 1, 51, 2, 45, 2, 39}, // 24
+            {2, 2, 66, 2, 64, 1, 59, 2, 57, 2, 52, 1, 48, 1, 40}, // 25
+            {1, 2, 67, 2, 63, 2, 61, 6, 58, 1, 53, 2, 47, 2, 42}, // 26
+            {2, 1, 59, 1, 51, 2, 45}, // 27
+            {1, 2, 65, 2, 62, 1, 59, 1, 51, 1, 43}, // 28
+            {1, 2, 66, 2, 64, 1, 60, 1, 59, 1, 53, 2, 52, 2, 43}, // 29
+            {1, 1, 67, 1, 63, 2, 61, 1, 53, 4, 44}, // 30
+            {1, 2, 65, 1, 59, 3, 56, 1, 43, 2, 39}, // 31
+            {2, 2, 66, 1, 60, 1, 59, 2, 57, 2, 43, 2, 41, 1, 40}, // 32
+            {2, 1, 67, 2, 61, 3, 58, 4, 44, 2, 42}, // 33
+            {2, 1, 59, 2, 52, 1, 51}, // 34
+            {2, 1, 59, 2, 52, 2, 45}, // 35
+            {1, 1, 68, 2, 63, 2, 62, 1, 51, 3, 50}, // 36
+            {1, 2, 68, 2, 64, 2, 63, 4, 62, 1, 53, 1, 51, 4, 49}, // 37
+            {1, 1, 68, 1, 64, 2, 63, 1, 53, 3, 50}, // 38
+            {2, 4, 65, 1, 59, 6, 56}, // 39
+            {1, 6, 70, 2, 68, 2, 66, 4, 65, 1, 60, 1, 59, 4, 54}, // 40
+            {1, 2, 71, 1, 68, 2, 67, 1, 60, 3, 55}, // 41
+            {1, 2, 71, 4, 69, 2, 67, 2, 61, 3, 55}, // 42
+            {2, 2, 66, 1, 60, 1, 59}, // 43
+            {4, 1, 67, 2, 61}, // 44
+            {1, 2, 65, 2, 62, 3, 56}, // 45
+            {1, 3, 70, 2, 68, 2, 65, 1, 63, 1, 59}, // 46
+            {1, 3, 70, 2, 68, 1, 66, 1, 63, 1, 60}, // 47
+            {1, 4, 71, 8, 69, 2, 68, 2, 67, 2, 64, 2, 61, 1, 60}, // 48
+            {2, 1, 68, 1, 64, 2, 62}, // 49
+            {3, 1, 68, 2, 63}, // 50
+            {1, 2, 68, 2, 63, 4, 62}, // 51
+            {2, 2, 66, 2, 64, 1, 59}, // 52
+            {1, 2, 68, 2, 64, 2, 63}, // 53
+            {2, 3, 70, 1, 66, 2, 65}, // 54
+            {3, 2, 71, 2, 67}, // 55
+            {3, 2, 65}, // 56
+            {1, 12, 72, 4, 71, 3, 70, 1, 67, 2, 66}, // 57
+            {1, 4, 72, 2, 71, 1, 67}, // 58
+            {1, 6, 70, 2, 68, 4, 65}, // 59
+            {1, 4, 71, 2, 68, 2, 67}, // 60
+            {2, 4, 71, 8, 69, 2, 67}, // 61
+            {2, 1, 68}, // 62
+            {1, 3, 70, 2, 68}, // 63
+            {1, 2, 71, 4, 69, 1, 68}, // 64
+            {2, 3, 70}, // 65
+            {1, 12, 72, 2, 71, 3, 70}, // 66
+            {1, 12, 72, 4, 71}, // 67
+            {1, 2, 71}, // 68
+            {4, 2, 71}, // 69
+            {1, 4, 72}, // 70
+            {2, 12, 72}, // 71
+    };
+
+    private OrbitEquations() {
+    }
+
+    /**
+     * @return orbits used by the equation of orbit o, empty for orbits without an equation
+     */
+    static int[ ] dependencies(int o) {
+        if (o < 15 || o > 71) return new int[0];
+        int[ ] equation = EQUATIONS[o - 15];
+        int[ ] dependencies = new int[equation.length / 2];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = equation[2 + 2 * i];
+        }
+        return dependencies;
+    }
+
+    /**
+     * solves the equations over real numbers, the solution is linear in f and C5
+     *
+     * @param f f[4] - f[14] counts of orbits 4 - 14, f[15] - f[71] sums of the equations
+     * @param C5 number of 5-cliques containing the node
+     * @param orbit orbit[o] - set to the count of orbit o for o = 4 .. 72
+     */
+    static void solve(double[ ] f, double C5, double[ ] orbit) {
+        System.arraycopy(f, 4, orbit, 4, 11);
+        orbit[72] = C5;
+        for (int o = 71; o >= 15; o--) {
+            int[ ] equation = EQUATIONS[o - 15];
+            double value = f[o];
+            for (int i = 1; i < equation.length; i += 2) {
+                value -= equation[i] * orbit[equation[i + 1]];
+            }
+            orbit[o] = value / equation[0];
+        }
+    }
+}
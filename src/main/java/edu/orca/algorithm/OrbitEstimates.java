@@ -0,0 +1,81 @@
+package edu.orca.algorithm;
+
+/**
+ * Estimated orbit counts of all nodes with the variance of every estimate, see
+ * {@link FiveNodeGraphletOrbitCounter#estimate(int, long)}
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class OrbitEstimates {
+    private final double[ ][ ] estimates; // estimates[x][o] - estimated count of orbit o of node x
+    private final double[ ][ ] variances; // variances[x][o] - estimated variance of estimates[x][o]
+
+    public OrbitEstimates(double[ ][ ] estimates, double[ ][ ] variances) {
+        this.estimates = estimates;
+        this.variances = variances;
+    }
+
+    /**
+     * @return estimates of exact counts, with zero variance
+     */
+    public static OrbitEstimates exact(long[ ][ ] orbit) {
+        double[ ][ ] estimates = new double[orbit.length][ ];
+        double[ ][ ] variances = new double[orbit.length][ ];
+        for (int x = 0; x < orbit.length; x++) {
+            estimates[x] = new double[orbit[x].length];
+            variances[x] = new double[orbit[x].length];
+            for (int o = 0; o < orbit[x].length; o++) estimates[x][o] = orbit[x][o];
+        }
+        return new OrbitEstimates(estimates, variances);
+    }
+
+    public int getNodesCount() {
+        return estimates.length;
+    }
+
+    /**
+     * @return estimates[x][o] - estimated count of orbit o of node x
+     */
+    public double[ ][ ] getEstimates() {
+        return estimates;
+    }
+
+    /**
+     * @return variances[x][o] - estimated variance of the count of orbit o of node x
+     */
+    public double[ ][ ] getVariances() {
+        return variances;
+    }
+
+    public double getEstimate(int x, int o) {
+        return estimates[x][o];
+    }
+
+    public double getStandardError(int x, int o) {
+        return Math.sqrt(variances[x][o]);
+    }
+
+    /**
+     * @param confidence confidence level between 0 and 1, e.g. 0.95
+     * @return {lower, upper} - normal approximation confidence interval of the count of orbit o of node x,
+     * clipped at 0
+     */
+    public double[ ] getConfidenceInterval(int x, int o, double confidence) {
+        double halfWidth = zScore(confidence) * getStandardError(x, o);
+        return new double[ ] {Math.max(0, estimates[x][o] - halfWidth), estimates[x][o] + halfWidth};
+    }
+
+    /**
+     * @return z such that a standard normal variable lies within [-z, z] with probability confidence
+     */
+    static double zScore(double confidence) {
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Incorrect confidence " + confidence + ". Should be between 0 and 1.");
+        }
+        // rational approximation of the normal quantile, Abramowitz & Stegun 26.2.23 (error below 4.5e-4)
+        double p = (1 - confidence) / 2;
+        double t = Math.sqrt(-2 * Math.log(p));
+        return t - (2.515517 + 0.802853 * t + 0.010328 * t * t)
+                / (1 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t);
+    }
+}
@@ -0,0 +1,222 @@
+package edu.orca.algorithm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Orbit counts of all nodes in one flat column major store of 32 bit cells, kept on the heap, in direct memory
+ * or in a memory mapped file. Almost all counts fit into 32 bits; the few that do not are marked in their cell
+ * and kept at full width in a side table. Rows of different nodes may be written concurrently.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class OrbitMatrix implements OrbitSink, Closeable {
+    // cells per segment, a single buffer is limited to 2 GB
+    private static final int SEGMENT_BITS = 28;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    // cell value marking a count kept in the overflow table, counts are never negative
+    private static final int OVERFLOW = -1;
+    private static final long MAX_CELL = 0xFFFFFFFEL;
+
+    private final int nodesCount;
+    private final int orbitsCount;
+    private final IntBuffer[ ] segments;
+    private final Map<Long, Long> overflow = new ConcurrentHashMap<>(); // cell index -> count above MAX_CELL
+    private final MappedByteBuffer[ ] mappedSegments; // mappings of a file backed matrix, null otherwise
+
+    private OrbitMatrix(int nodesCount, int orbitsCount, IntBuffer[ ] segments, MappedByteBuffer[ ] mappedSegments) {
+        this.nodesCount = nodesCount;
+        this.orbitsCount = orbitsCount;
+        this.segments = segments;
+        this.mappedSegments = mappedSegments;
+    }
+
+    /**
+     * @return zero matrix on the heap
+     */
+    public static OrbitMatrix onHeap(int nodesCount, int orbitsCount) {
+        IntBuffer[ ] segments = new IntBuffer[segmentsCount(nodesCount, orbitsCount)];
+        for (int s = 0; s < segments.length; s++) {
+            segments[s] = IntBuffer.wrap(new int[segmentSize(nodesCount, orbitsCount, s)]);
+        }
+        return new OrbitMatrix(nodesCount, orbitsCount, segments, null);
+    }
+
+    /**
+     * @return zero matrix in direct memory outside of the heap
+     */
+    public static OrbitMatrix offHeap(int nodesCount, int orbitsCount) {
+        IntBuffer[ ] segments = new IntBuffer[segmentsCount(nodesCount, orbitsCount)];
+        for (int s = 0; s < segments.length; s++) {
+            segments[s] = ByteBuffer.allocateDirect(segmentSize(nodesCount, orbitsCount, s) * Integer.BYTES)
+                    .order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return new OrbitMatrix(nodesCount, orbitsCount, segments, null);
+    }
+
+    /**
+     * Creates a zero matrix in a memory mapped file. The file is working storage of this matrix only, use
+     * {@link edu.orca.io.OrbitMatrixFile} to persist the counts.
+     *
+     * @param file file to create or overwrite
+     * @return zero matrix paged in and out of file by the operating system
+     */
+    public static OrbitMatrix mapped(Path file, int nodesCount, int orbitsCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            IntBuffer[ ] segments = new IntBuffer[segmentsCount(nodesCount, orbitsCount)];
+            MappedByteBuffer[ ] mappedSegments = new MappedByteBuffer[segments.length];
+            for (int s = 0; s < segments.length; s++) {
+                // a mapping stays valid after its channel is closed
+                mappedSegments[s] = channel.map(FileChannel.MapMode.READ_WRITE, (long) s * SEGMENT_SIZE * Integer.BYTES,
+                        (long) segmentSize(nodesCount, orbitsCount, s) * Integer.BYTES);
+                segments[s] = mappedSegments[s].order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+            return new OrbitMatrix(nodesCount, orbitsCount, segments, mappedSegments);
+        }
+    }
+
+    /**
+     * @param orbit orbit[x][o] - how many times does node x participate in orbit o
+     * @return heap matrix with the same counts
+     */
+    public static OrbitMatrix of(long[ ][ ] orbit) {
+        int orbitsCount = orbit.length == 0 ? 0 : orbit[0].length;
+        OrbitMatrix matrix = onHeap(orbit.length, orbitsCount);
+        for (int x = 0; x < orbit.length; x++) {
+            matrix.setRow(x, orbit[x]);
+        }
+        return matrix;
+    }
+
+    public int getNodesCount() {
+        return nodesCount;
+    }
+
+    public int getOrbitsCount() {
+        return orbitsCount;
+    }
+
+    /**
+     * @return how many times does node x participate in orbit o
+     */
+    public long get(int x, int o) {
+        long cell = cell(x, o);
+        int value = segments[(int) (cell >>> SEGMENT_BITS)].get((int) (cell & (SEGMENT_SIZE - 1)));
+        return value == OVERFLOW ? overflow.get(cell) : value & 0xFFFFFFFFL;
+    }
+
+    public void set(int x, int o, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Incorrect count " + count + " of orbit " + o + " of node " + x
+                    + ". Should not be negative.");
+        }
+        long cell = cell(x, o);
+        IntBuffer segment = segments[(int) (cell >>> SEGMENT_BITS)];
+        int index = (int) (cell & (SEGMENT_SIZE - 1));
+        if (count > MAX_CELL) {
+            overflow.put(cell, count);
+            segment.put(index, OVERFLOW);
+        } else {
+            if (segment.get(index) == OVERFLOW) overflow.remove(cell);
+            segment.put(index, (int) count);
+        }
+    }
+
+    /**
+     * @param row row[o] - set to the count of orbit o of node x
+     */
+    public void getRow(int x, long[ ] row) {
+        for (int o = 0; o < orbitsCount; o++) {
+            row[o] = get(x, o);
+        }
+    }
+
+    /**
+     * @param row row[o] - count of orbit o of node x
+     */
+    public void setRow(int x, long[ ] row) {
+        for (int o = 0; o < orbitsCount; o++) {
+            set(x, o, row[o]);
+        }
+    }
+
+    /**
+     * stores the orbits of node as row node
+     */
+    @Override
+    public void accept(int node, long[ ] orbits) {
+        setRow(node, orbits);
+    }
+
+    /**
+     * @return largest count of orbit o
+     */
+    public long columnMax(int o) {
+        long max = 0;
+        for (int x = 0; x < nodesCount; x++) {
+            max = Math.max(max, get(x, o));
+        }
+        return max;
+    }
+
+    /**
+     * @return number of counts that do not fit into 32 bits
+     */
+    public int getOverflowCount() {
+        return overflow.size();
+    }
+
+    /**
+     * @return orbit[x][o] - copy of the counts on the heap
+     */
+    public long[ ][ ] toArray() {
+        long[ ][ ] orbit = new long[nodesCount][orbitsCount];
+        for (int x = 0; x < nodesCount; x++) {
+            getRow(x, orbit[x]);
+        }
+        return orbit;
+    }
+
+    /**
+     * flushes the cells of a mapped matrix to its file
+     */
+    @Override
+    public void close() {
+        if (mappedSegments == null) return;
+        for (MappedByteBuffer segment : mappedSegments) {
+            segment.force();
+        }
+    }
+
+    private long cell(int x, int o) {
+        if (x < 0 || x >= nodesCount || o < 0 || o >= orbitsCount) {
+            throw new IndexOutOfBoundsException("Node " + x + ", orbit " + o + " out of a " + nodesCount + " x "
+                    + orbitsCount + " matrix");
+        }
+        return (long) o * nodesCount + x;
+    }
+
+    private static int segmentsCount(int nodesCount, int orbitsCount) {
+        if (nodesCount < 0 || orbitsCount < 0) {
+            throw new IllegalArgumentException("Incorrect matrix size " + nodesCount + " x " + orbitsCount
+                    + ". Should not be negative.");
+        }
+        long cells = (long) nodesCount * orbitsCount;
+        return (int) ((cells + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+    }
+
+    private static int segmentSize(int nodesCount, int orbitsCount, int segment) {
+        long cells = (long) nodesCount * orbitsCount;
+        return (int) Math.min(SEGMENT_SIZE, cells - ((long) segment << SEGMENT_BITS));
+    }
+}
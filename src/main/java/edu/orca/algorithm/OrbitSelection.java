@@ -0,0 +1,116 @@
+package edu.orca.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Orbits requested from a count together with every orbit their equations depend on. Orbits outside of the
+ * dependency closure are not solved, and the graphlet enumerations that only feed them are skipped.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class OrbitSelection {
+    private static final int FOUR_NODE_ORBITS = 15;
+    private static final int FIVE_NODE_ORBITS = OrbitEquations.ORBITS;
+
+    private final int graphletSize;
+    private final int[ ] orbits; // requested orbits in the order of the result columns
+    private final boolean[ ] required; // required[o] - orbit o is requested or needed by a requested orbit
+
+    private OrbitSelection(int graphletSize, int[ ] orbits, boolean[ ] required) {
+        this.graphletSize = graphletSize;
+        this.orbits = orbits;
+        this.required = required;
+    }
+
+    /**
+     * @param graphletSize size of graphlets the orbits belong to (either 4 or 5)
+     * @param orbits distinct requested orbits, the result columns follow this order
+     * @return selection of the orbits and their dependency closure
+     */
+    public static OrbitSelection of(int graphletSize, int... orbits) {
+        int orbitsCount = orbitsCount(graphletSize);
+        boolean[ ] required = new boolean[orbitsCount];
+        for (int o : orbits) {
+            if (o < 0 || o >= orbitsCount) {
+                throw new IllegalArgumentException("Incorrect orbit " + o + ". Should be between 0 and " + (orbitsCount - 1) + ".");
+            }
+            if (required[o]) {
+                throw new IllegalArgumentException("Orbit " + o + " is selected more than once");
+            }
+            required[o] = true;
+        }
+
+        if (graphletSize == 4) {
+            // every 4-node orbit is solved relative to the 4-cliques
+            for (int o = 4; o < orbitsCount; o++) {
+                if (required[o]) required[14] = true;
+            }
+        } else {
+            // equations only refer to higher orbits, so one upward pass closes the set
+            for (int o = 15; o < 72; o++) {
+                if (!required[o]) continue;
+                for (int d : OrbitEquations.dependencies(o)) required[d] = true;
+            }
+        }
+        return new OrbitSelection(graphletSize, orbits.clone(), required);
+    }
+
+    /**
+     * @return selection of every orbit of graphlets on max graphletSize nodes
+     */
+    public static OrbitSelection all(int graphletSize) {
+        int[ ] orbits = new int[orbitsCount(graphletSize)];
+        for (int o = 0; o < orbits.length; o++) orbits[o] = o;
+        return of(graphletSize, orbits);
+    }
+
+    public int getGraphletSize() {
+        return graphletSize;
+    }
+
+    /**
+     * @return number of orbits of graphlets on max graphletSize nodes
+     */
+    public int getOrbitsCount() {
+        return required.length;
+    }
+
+    /**
+     * @return requested orbits in the order of the result columns
+     */
+    public int[ ] getOrbits() {
+        return orbits.clone();
+    }
+
+    /**
+     * @return true if orbit o is requested or needed to solve a requested orbit
+     */
+    public boolean isRequired(int o) {
+        return required[o];
+    }
+
+    /**
+     * @param orbit orbit[x][o] - counts of all orbits as returned by {@link OrbitCounter#count()}
+     * @return result[x][i] - count of orbit getOrbits()[i] of node x
+     */
+    public long[ ][ ] project(long[ ][ ] orbit) {
+        long[ ][ ] result = new long[orbit.length][orbits.length];
+        for (int x = 0; x < orbit.length; x++) {
+            for (int i = 0; i < orbits.length; i++) {
+                result[x][i] = orbit[x][orbits[i]];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "OrbitSelection" + Arrays.toString(orbits);
+    }
+
+    private static int orbitsCount(int graphletSize) {
+        if (graphletSize == 4) return FOUR_NODE_ORBITS;
+        if (graphletSize == 5) return FIVE_NODE_ORBITS;
+        throw new IllegalArgumentException("Incorrect graphlet size " + graphletSize + ". Should be 4 or 5.");
+    }
+}
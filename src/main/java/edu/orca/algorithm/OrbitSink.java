@@ -0,0 +1,18 @@
+package edu.orca.algorithm;
+
+/**
+ * Receives the orbits of every node as soon as its equations are solved. With parallelism above 1 accept is
+ * called from several worker threads at once, always for different nodes.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+@FunctionalInterface
+public interface OrbitSink {
+
+    /**
+     * @param node node id
+     * @param orbits orbits[o] - how many times does node participate in orbit o; the buffer is reused for the
+     *               next node once accept returns
+     */
+    void accept(int node, long[ ] orbits);
+}
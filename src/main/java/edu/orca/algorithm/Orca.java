@@ -8,6 +8,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jgrapht.UndirectedGraph;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 /**
@@ -19,7 +21,18 @@ import java.util.stream.IntStream;
 public class Orca {
 
     private static final Logger LOGGER = LogManager.getLogger(Orca.class);
-    private OrbitCounter orbitCounter;
+    private int graphletSize;
+    private CsrGraph graph;
+    private GraphIndex graphIndex; // precomputed data of graph, may be null
+    private int parallelism = 1;
+    private NodeOrdering nodeOrdering = NodeOrdering.INPUT;
+    private long adjacencyMemoryBudget = AdjacencyIndex.DEFAULT_MEMORY_BUDGET;
+    private Path checkpointDirectory;
+    private int checkpointBlockSize = OrbitCounter.DEFAULT_CHECKPOINT_BLOCK_SIZE;
+    private long commonNodesMemoryBudget = Long.MAX_VALUE;
+    private Path spillDirectory;
+    private CountListener countListener;
+    private volatile CountMetrics metrics = new CountMetrics();
 
     /**
      * Initializer method
@@ -50,20 +63,382 @@ public class Orca {
                 .edges(edges)
                 .nodesDegree(deg).build();
 
-        int maxDegree = IntStream.of(deg).max().orElse(0);
-        LOGGER.debug("nodes: " + n);
-        LOGGER.debug("edges: " + m);
+        init(graphletSize, immutableGraph.getCsrGraph());
+    }
+
+    /**
+     * Initializer method for graphs loaded directly into compressed sparse row form,
+     * e.g. by {@link edu.orca.io.EdgeListLoader}
+     *
+     * @param graphletSize size of graphlets over which signature of a node needs to be calculated (either 4 or 5)
+     * @param graph undirected simple graph
+     */
+    public void init(int graphletSize, CsrGraph graph) {
+        if (graphletSize != 4 && graphletSize != 5) {
+            throw new IllegalArgumentException("Incorrect graphlet size " + graphletSize + ". Should be 4 or 5.");
+        }
+
+        int maxDegree = IntStream.of(graph.getDegrees()).max().orElse(0);
+        LOGGER.debug("nodes: " + graph.getNodesCount());
+        LOGGER.debug("edges: " + graph.getEdgesCount());
         LOGGER.debug("max degree: " + maxDegree);
 
-        if(graphletSize == 4) {
-            this.orbitCounter = new FourNodeGraphletOrbitCounter(immutableGraph);
+        this.graphletSize = graphletSize;
+        this.graph = graph;
+        this.graphIndex = null;
+    }
+
+    /**
+     * Initializer method for a graph with precomputed data, e.g. read by {@link edu.orca.io.GraphIndexFile}.
+     * Counts on the input node ids take the triangles and common neighbours of the index instead of computing
+     * them; node orderings other than INPUT and node queries count on other graphs and cannot use it.
+     *
+     * @param graphletSize size of graphlets over which signature of a node needs to be calculated (either 4 or 5)
+     * @param graphIndex graph with its precomputed data
+     */
+    public void init(int graphletSize, GraphIndex graphIndex) {
+        init(graphletSize, graphIndex.getGraph());
+        this.graphIndex = graphIndex;
+    }
+
+    public long[ ][ ] count() {
+        requireInitialized();
+        return count(graph, null);
+    }
+
+    /**
+     * Counts only the selected orbits and the orbits their equations depend on, skipping graphlet
+     * enumerations that no selected orbit needs
+     *
+     * @param orbitSelection orbits to count, created for the graphlet size given to init
+     * @return vector[x][i] - count of orbit orbitSelection.getOrbits()[i] of node x
+     */
+    public long[ ][ ] count(OrbitSelection orbitSelection) {
+        requireInitialized();
+        if (orbitSelection.getGraphletSize() != graphletSize) {
+            throw new IllegalArgumentException("Incorrect orbit selection for graphlets on max "
+                    + orbitSelection.getGraphletSize() + " nodes. Should be " + graphletSize + ".");
+        }
+        return orbitSelection.project(count(graph, orbitSelection));
+    }
+
+    /**
+     * Counts the orbits straight into result, which may live outside of the heap, e.g.
+     * {@link OrbitMatrix#mapped}; rows stay in the order of the input node ids.
+     *
+     * @param result matrix of n rows and 15 (4 node graphlets) or 73 (5 node graphlets) columns
+     * @return result
+     */
+    public OrbitMatrix count(OrbitMatrix result) {
+        requireInitialized();
+        int orbitsCount = graphletSize == 4 ? 15 : 73;
+        if (result.getNodesCount() != graph.getNodesCount() || result.getOrbitsCount() != orbitsCount) {
+            throw new IllegalArgumentException("Incorrect matrix size " + result.getNodesCount() + " x "
+                    + result.getOrbitsCount() + ". Should be " + graph.getNodesCount() + " x " + orbitsCount + ".");
+        }
+        count((OrbitSink) result);
+        return result;
+    }
+
+    /**
+     * Streams the orbits of every node to sink as soon as they are solved, nothing is kept once sink returns.
+     * Node ids passed to sink are the input node ids regardless of the node ordering.
+     *
+     * @param sink receives the orbits of every node
+     */
+    public void count(OrbitSink sink) {
+        requireInitialized();
+        if (nodeOrdering == NodeOrdering.INPUT) {
+            createOrbitCounter(graph, null).count(sink);
+            return;
+        }
+        NodeRelabeling relabeling = NodeRelabeling.of(graph, nodeOrdering);
+        createOrbitCounter(relabeling.apply(graph), null)
+                .count((OrbitSink) (x, orbits) -> sink.accept(relabeling.oldId(x), orbits));
+    }
+
+    /**
+     * Counts the graphlets of every type and the graphlet degree distributions of the whole graph. The orbits
+     * of every node are folded into the profile as soon as they are solved, no orbit matrix is kept.
+     *
+     * @return graph-level profile, e.g. to compare networks by {@link GraphletProfile#agreement}
+     */
+    public GraphletProfile countProfile() {
+        requireInitialized();
+        GraphletProfile.Builder profile = new GraphletProfile.Builder(graphletSize == 4 ? 15 : 73);
+        count(profile);
+        return profile.build();
+    }
+
+    /**
+     * Counts how often every edge appears in every edge orbit, e.g. as edge features for link prediction. Rows
+     * stay in the order of the input edge ids regardless of the node ordering.
+     *
+     * @return orbit[e][o] - how many times does edge e participate in edge orbit o, 12 (4 node graphlets) or
+     * 68 (5 node graphlets) orbits per edge, see {@link EdgeOrbits}
+     */
+    public long[ ][ ] countEdges() {
+        requireInitialized();
+        long[ ][ ] orbit;
+        if (nodeOrdering == NodeOrdering.INPUT) {
+            orbit = createOrbitCounter(graph, null).countEdges();
         } else {
-            this.orbitCounter = new FiveNodeGraphletOrbitCounter(immutableGraph);
+            // relabeling keeps the edge ids
+            orbit = createOrbitCounter(NodeRelabeling.of(graph, nodeOrdering).apply(graph), null).countEdges();
         }
+        LOGGER.debug("count metrics: " + metrics);
+        return orbit;
     }
 
-    public long[ ][ ] count() {
-        return orbitCounter.count();
+    /**
+     * Streams the orbits to sink in batches of up to batchSize nodes collected by every worker thread.
+     * Node ids passed to sink are the input node ids regardless of the node ordering.
+     *
+     * @param sink receives the batches
+     * @param batchSize maximum number of nodes in a batch
+     */
+    public void count(OrbitBatchSink sink, int batchSize) {
+        requireInitialized();
+        if (nodeOrdering == NodeOrdering.INPUT) {
+            createOrbitCounter(graph, null).count(sink, batchSize);
+            return;
+        }
+        NodeRelabeling relabeling = NodeRelabeling.of(graph, nodeOrdering);
+        createOrbitCounter(relabeling.apply(graph), null).count((nodes, orbits, count) -> {
+            for (int i = 0; i < count; i++) nodes[i] = relabeling.oldId(nodes[i]);
+            sink.accept(nodes, orbits, count);
+        }, batchSize);
+    }
+
+    /**
+     * Counts the orbits of the given nodes only. Every graphlet touching a node lies within graphletSize - 1 hops
+     * of it, so triangles, cliques and common nodes are computed on the subgraph induced by that neighbourhood
+     * instead of the whole graph.
+     *
+     * @param nodes query node ids
+     * @return vector[i][o] - how many times does node nodes[i] participate in orbit o
+     */
+    public long[ ][ ] countNodes(int[ ] nodes) {
+        requireInitialized();
+        for (int x : nodes) {
+            if (x < 0 || x >= graph.getNodesCount()) {
+                throw new IllegalArgumentException("Incorrect node " + x + ". Should be between 0 and "
+                        + (graph.getNodesCount() - 1) + ".");
+            }
+        }
+        int[ ] ball = graph.neighborhood(nodes, graphletSize - 1);
+        CsrGraph subgraph = graph.inducedSubgraph(ball);
+        LOGGER.debug("query neighbourhood: " + subgraph.getNodesCount() + " nodes, " + subgraph.getEdgesCount() + " edges");
+
+        int[ ] local = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            local[i] = Arrays.binarySearch(ball, nodes[i]);
+        }
+        CsrGraph countedGraph = subgraph;
+        if (nodeOrdering != NodeOrdering.INPUT) {
+            NodeRelabeling relabeling = NodeRelabeling.of(subgraph, nodeOrdering);
+            for (int i = 0; i < local.length; i++) {
+                local[i] = relabeling.newId(local[i]);
+            }
+            countedGraph = relabeling.apply(subgraph);
+        }
+        // queries are short, they are not checkpointed
+        OrbitCounter orbitCounter = createOrbitCounter(countedGraph, null);
+        orbitCounter.setCheckpointDirectory(null);
+        return orbitCounter.count(local);
+    }
+
+    /**
+     * Estimates the orbits from a sample of every node's neighbours, see
+     * {@link FiveNodeGraphletOrbitCounter#estimate(int, long)}. Counting 4 node graphlets is cheap, so their
+     * orbits are counted exactly.
+     *
+     * @param sampleBudget expected number of neighbours sampled per node, larger budgets give smaller errors
+     * @param seed seed of the sampling
+     * @return estimated orbit counts with their standard errors
+     */
+    public OrbitEstimates estimate(int sampleBudget, long seed) {
+        requireInitialized();
+        if (graphletSize == 4) {
+            return OrbitEstimates.exact(count());
+        }
+        if (nodeOrdering == NodeOrdering.INPUT) {
+            return ((FiveNodeGraphletOrbitCounter) createOrbitCounter(graph, null)).estimate(sampleBudget, seed);
+        }
+        NodeRelabeling relabeling = NodeRelabeling.of(graph, nodeOrdering);
+        FiveNodeGraphletOrbitCounter orbitCounter =
+                (FiveNodeGraphletOrbitCounter) createOrbitCounter(relabeling.apply(graph), null);
+        return relabeling.restore(orbitCounter.estimate(sampleBudget, seed));
+    }
+
+    private long[ ][ ] count(CsrGraph graph, OrbitSelection orbitSelection) {
+        long[ ][ ] orbit;
+        if (nodeOrdering == NodeOrdering.INPUT) {
+            orbit = createOrbitCounter(graph, orbitSelection).count();
+        } else {
+            NodeRelabeling relabeling = NodeRelabeling.of(graph, nodeOrdering);
+            orbit = relabeling.restore(createOrbitCounter(relabeling.apply(graph), orbitSelection).count());
+        }
+        LOGGER.debug("count metrics: " + metrics);
+        return orbit;
+    }
+
+    /**
+     * @throws IllegalStateException if no graph was given to init
+     */
+    private void requireInitialized() {
+        if (graph == null) {
+            throw new IllegalStateException("Orca is not initialized");
+        }
+    }
+
+    private OrbitCounter createOrbitCounter(CsrGraph graph, OrbitSelection orbitSelection) {
+        OrbitCounter orbitCounter = OrbitCounter.of(graphletSize, graph);
+        orbitCounter.setParallelism(parallelism);
+        orbitCounter.setAdjacencyMemoryBudget(adjacencyMemoryBudget);
+        orbitCounter.setOrbitSelection(orbitSelection);
+        if (graphIndex != null && graphIndex.getGraph() == graph) {
+            orbitCounter.setGraphIndex(graphIndex);
+        }
+        orbitCounter.setCheckpointDirectory(checkpointDirectory);
+        orbitCounter.setCheckpointBlockSize(checkpointBlockSize);
+        if (orbitCounter instanceof FiveNodeGraphletOrbitCounter) {
+            ((FiveNodeGraphletOrbitCounter) orbitCounter).setCommonNodesMemoryBudget(commonNodesMemoryBudget);
+            ((FiveNodeGraphletOrbitCounter) orbitCounter).setSpillDirectory(spillDirectory);
+        }
+        metrics = new CountMetrics();
+        metrics.setListener(countListener);
+        orbitCounter.setMetrics(metrics);
+        return orbitCounter;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of worker threads used while counting. Nodes are partitioned across a fork-join pool
+     * and the result is identical to the serial run.
+     *
+     * @param parallelism number of worker threads, 1 (default) counts on the calling thread
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Incorrect parallelism " + parallelism + ". Should be at least 1.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public long getAdjacencyMemoryBudget() {
+        return adjacencyMemoryBudget;
+    }
+
+    /**
+     * Sets how much memory may be spent on speeding up adjacency tests. Graphs whose adjacency bit matrix fits
+     * into the budget use it, otherwise bitsets are built for the highest degree nodes.
+     *
+     * @param adjacencyMemoryBudget number of bytes, 0 disables the bit matrix and hub bitsets
+     */
+    public void setAdjacencyMemoryBudget(long adjacencyMemoryBudget) {
+        if (adjacencyMemoryBudget < 0) {
+            throw new IllegalArgumentException("Incorrect memory budget " + adjacencyMemoryBudget + ". Should not be negative.");
+        }
+        this.adjacencyMemoryBudget = adjacencyMemoryBudget;
+    }
+
+    public long getCommonNodesMemoryBudget() {
+        return commonNodesMemoryBudget;
+    }
+
+    /**
+     * Limits the memory of the common node tables of 5-node counts. On graphs whose tables would exceed it, the
+     * common neighbours of high degree nodes are counted on demand, or spilled to the spill directory if one is
+     * set, so the count completes within the budget regardless of the degree skew.
+     *
+     * @param commonNodesMemoryBudget number of bytes, Long.MAX_VALUE (default) tabulates all common nodes
+     */
+    public void setCommonNodesMemoryBudget(long commonNodesMemoryBudget) {
+        if (commonNodesMemoryBudget < 0) {
+            throw new IllegalArgumentException("Incorrect memory budget " + commonNodesMemoryBudget + ". Should not be negative.");
+        }
+        this.commonNodesMemoryBudget = commonNodesMemoryBudget;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
     }
 
+    /**
+     * @param spillDirectory local directory common nodes exceeding their memory budget are spilled to, null
+     *                       (default) counts them on demand
+     */
+    public void setSpillDirectory(Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public NodeOrdering getNodeOrdering() {
+        return nodeOrdering;
+    }
+
+    /**
+     * Sets the order in which nodes are numbered while counting. DEGREE or DEGENERACY relabel the graph before
+     * counting, which bounds the clique enumeration on skewed graphs; the result rows stay in the order of the
+     * input node ids.
+     *
+     * @param nodeOrdering node ordering, INPUT (default) counts on the input ids
+     */
+    public void setNodeOrdering(NodeOrdering nodeOrdering) {
+        if (nodeOrdering == null) {
+            throw new IllegalArgumentException("Node ordering should not be null");
+        }
+        this.nodeOrdering = nodeOrdering;
+    }
+
+    public Path getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    /**
+     * Makes counts checkpoint their completed phases (triangles, cliques, common nodes and blocks of solved
+     * nodes) to a local directory. A count started again with the same directory, graph and settings, e.g. after
+     * a crash, skips the phases found there. A directory holding the checkpoint of a different graph is rejected.
+     *
+     * @param checkpointDirectory local directory, null (default) counts without checkpoints
+     */
+    public void setCheckpointDirectory(Path checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    public int getCheckpointBlockSize() {
+        return checkpointBlockSize;
+    }
+
+    /**
+     * @param checkpointBlockSize number of nodes solved between two checkpoints of the equation phase
+     */
+    public void setCheckpointBlockSize(int checkpointBlockSize) {
+        if (checkpointBlockSize < 1) {
+            throw new IllegalArgumentException("Incorrect checkpoint block size " + checkpointBlockSize
+                    + ". Should be at least 1.");
+        }
+        this.checkpointBlockSize = checkpointBlockSize;
+    }
+
+    /**
+     * @return timers and counters of the current or last count, updated while the count runs
+     */
+    public CountMetrics getMetrics() {
+        return metrics;
+    }
+
+    public CountListener getCountListener() {
+        return countListener;
+    }
+
+    /**
+     * @param countListener notified of the phases and the progress of every following count, null for none
+     */
+    public void setCountListener(CountListener countListener) {
+        this.countListener = countListener;
+    }
 }
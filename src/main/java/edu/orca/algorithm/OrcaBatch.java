@@ -0,0 +1,171 @@
+package edu.orca.algorithm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Counts the orbits of many small graphs, e.g. ego networks or molecules. Every graph is counted on a single
+ * worker thread, the workers process different graphs at once. A worker keeps its scratch buffers between
+ * graphs and only replaces them when a graph is larger than all graphs it counted before. At most a few
+ * graphs per worker are read ahead of the slowest unfinished one, so the input may be a stream of any length.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class OrcaBatch {
+    // graphs taken from the input per worker before their results are delivered
+    private static final int IN_FLIGHT_PER_WORKER = 4;
+
+    private final int graphletSize;
+    private int parallelism = 1;
+    private boolean ordered = true;
+
+    /**
+     * @param graphletSize size of graphlets over which signature of a node needs to be calculated (either 4 or 5)
+     */
+    public OrcaBatch(int graphletSize) {
+        if (graphletSize != 4 && graphletSize != 5) {
+            throw new IllegalArgumentException("Incorrect graphlet size " + graphletSize + ". Should be 4 or 5.");
+        }
+        this.graphletSize = graphletSize;
+    }
+
+    /**
+     * counts every graph of graphs and hands its orbits to sink
+     */
+    public void count(Stream<CsrGraph> graphs, GraphOrbitSink sink) {
+        count(graphs.iterator(), sink);
+    }
+
+    /**
+     * @return orbit[i] - orbits of graphs.get(i)
+     */
+    public List<long[ ][ ]> count(List<CsrGraph> graphs) {
+        List<long[ ][ ]> orbits = new ArrayList<>(graphs.size());
+        for (int i = 0; i < graphs.size(); i++) orbits.add(null);
+        count(graphs.iterator(), (index, graph, orbit) -> orbits.set((int) index, orbit));
+        return orbits;
+    }
+
+    /**
+     * Counts every graph of graphs and hands its orbits to sink, in input order if the batch is ordered and
+     * as soon as they are counted otherwise. Stops reading graphs after the first failure, which is rethrown
+     * once the running graphs are finished.
+     */
+    public void count(Iterator<CsrGraph> graphs, GraphOrbitSink sink) {
+        Delivery delivery = new Delivery(sink);
+        Semaphore inFlight = new Semaphore(parallelism * IN_FLIGHT_PER_WORKER);
+        ThreadLocal<Map<Class<?>, Object>> scratchCache = ThreadLocal.withInitial(HashMap::new);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        try {
+            long index = 0;
+            while (graphs.hasNext() && delivery.failure == null) {
+                inFlight.acquireUninterruptibly();
+                CsrGraph graph = graphs.next();
+                long graphIndex = index++;
+                workers.execute(() -> {
+                    try {
+                        OrbitCounter orbitCounter = OrbitCounter.of(graphletSize, graph);
+                        orbitCounter.setScratchCache(scratchCache.get());
+                        delivery.deliver(graphIndex, graph, orbitCounter.count(), inFlight);
+                    } catch (RuntimeException | Error e) {
+                        delivery.fail(e, inFlight);
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            awaitTermination(workers);
+        }
+        if (delivery.failure instanceof RuntimeException) throw (RuntimeException) delivery.failure;
+        if (delivery.failure instanceof Error) throw (Error) delivery.failure;
+    }
+
+    public int getGraphletSize() {
+        return graphletSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism number of graphs counted at once, each on its own worker thread
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Incorrect parallelism " + parallelism + ". Should be at least 1.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * @param ordered true (default) delivers results in input order, false as soon as each graph is counted
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    private static void awaitTermination(ExecutorService workers) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (workers.awaitTermination(1, TimeUnit.MINUTES)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Hands results to the sink one at a time. Ordered batches park results until all earlier graphs are
+     * delivered; a graph leaves the in-flight window only once it is delivered.
+     */
+    private final class Delivery {
+        private final GraphOrbitSink sink;
+        private final Map<Long, Object[ ]> parked = new HashMap<>(); // index -> {graph, orbit}
+        private long next = 0; // index of the next graph to deliver in order
+        private volatile Throwable failure;
+
+        Delivery(GraphOrbitSink sink) {
+            this.sink = sink;
+        }
+
+        synchronized void deliver(long index, CsrGraph graph, long[ ][ ] orbit, Semaphore inFlight) {
+            if (failure != null) {
+                inFlight.release();
+                return;
+            }
+            if (!ordered) {
+                sink.accept(index, graph, orbit);
+                inFlight.release();
+                return;
+            }
+            parked.put(index, new Object[ ] {graph, orbit});
+            Object[ ] result;
+            while ((result = parked.remove(next)) != null) {
+                sink.accept(next++, (CsrGraph) result[0], (long[ ][ ]) result[1]);
+                inFlight.release();
+            }
+        }
+
+        synchronized void fail(Throwable e, Semaphore inFlight) {
+            if (failure == null) failure = e;
+            // parked results are never delivered, free their slots for the reader to notice the failure
+            inFlight.release(parked.size() + 1);
+            parked.clear();
+        }
+    }
+}
@@ -21,7 +21,20 @@ public abstract class OrcaGraph {
     public abstract int[ ] getNodesDegree();
     public abstract Array<AbstractEdge> getEdges();
 
-    @Value.Derived
+    @Value.Lazy
+    public CsrGraph getCsrGraph() {
+        int m = getEdgesCount();
+        int[ ] sources = new int[m];
+        int[ ] targets = new int[m];
+        getEdges().zipWithIndex().forEach(edgeIndexTuple -> {
+            sources[edgeIndexTuple._2] = edgeIndexTuple._1.getSourceVertexId();
+            targets[edgeIndexTuple._2] = edgeIndexTuple._1.getTargetVertexId();
+        });
+
+        return CsrGraph.of(getNodesCount(), sources, targets);
+    }
+
+    @Value.Lazy
     public int[ ][ ] getAdjacencyList() {
         int n = getNodesCount();
         int[ ] deg = getNodesDegree();
@@ -44,7 +57,7 @@ public abstract class OrcaGraph {
         return adj;
     }
 
-    @Value.Derived
+    @Value.Lazy
     public Tuple2<Integer, Integer>[ ][ ] getIncidentList() {
         int n = getNodesCount();
         int[ ] deg = getNodesDegree();
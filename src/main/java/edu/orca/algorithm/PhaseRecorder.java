@@ -0,0 +1,42 @@
+package edu.orca.algorithm;
+
+/**
+ * Records runs of count phases as flight recorder events. This recorder drops them; on Java 17 and later the
+ * multi-release jar provides JfrPhaseRecorder, which commits every run as a PhaseEvent.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+class PhaseRecorder {
+    private static final String JFR_RECORDER = "edu.orca.algorithm.JfrPhaseRecorder";
+
+    /**
+     * @return flight recorder backed recorder if the JVM provides it, the dropping recorder otherwise
+     */
+    static PhaseRecorder load() {
+        try {
+            return (PhaseRecorder) Class.forName(JFR_RECORDER).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new PhaseRecorder();
+        }
+    }
+
+    /**
+     * @return whether the runs are recorded
+     */
+    boolean isRecording() {
+        return false;
+    }
+
+    /**
+     * @return event of the run of phase which has just begun, passed to {@link #end}
+     */
+    Object begin(CountPhase phase, int nodes, int edges) {
+        return null;
+    }
+
+    /**
+     * records the run begun with event
+     */
+    void end(Object event) {
+    }
+}
@@ -0,0 +1,30 @@
+package edu.orca.algorithm;
+
+/**
+ * Measures one run of a count phase into its {@link CountMetrics} and, when the JVM provides flight recorder
+ * events, records it through the {@link PhaseRecorder}
+ *
+ * @author Kanth Kumar Dayanand
+ */
+final class PhaseTimer implements AutoCloseable {
+    private static final PhaseRecorder RECORDER = PhaseRecorder.load();
+
+    private final CountMetrics metrics;
+    private final CountPhase phase;
+    private final long start;
+    private final Object event; // null when the recorder drops the runs
+
+    PhaseTimer(CountMetrics metrics, CountPhase phase, int nodes, int edges) {
+        this.metrics = metrics;
+        this.phase = phase;
+        this.event = RECORDER.begin(phase, nodes, edges);
+        this.start = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+        long nanos = System.nanoTime() - start;
+        RECORDER.end(event);
+        metrics.finishPhase(phase, nanos);
+    }
+}
@@ -0,0 +1,122 @@
+package edu.orca.algorithm;
+
+import edu.orca.io.EdgeListLoader;
+import edu.orca.io.OrbitMatrixFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a count into shards of consecutive node ids that run as separate processes, e.g. on the machines of a
+ * batch scheduler. Every shard loads the same edge list file (binary edge lists written by
+ * {@link EdgeListLoader#writeBinary} load fastest), counts the orbits of its nodes with the common nodes
+ * precomputed for their neighbourhood only, and writes its rows as an {@link OrbitMatrixFile}. The merge step
+ * joins the shard files into the file of the whole graph.
+ * <p>
+ * Usage:
+ * <pre>
+ * ShardedOrca count &lt;graphlet size&gt; &lt;graph file&gt; &lt;shard&gt; &lt;shards&gt; &lt;output file&gt; [parallelism]
+ * ShardedOrca merge &lt;output file&gt; &lt;shard file&gt;...
+ * </pre>
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class ShardedOrca {
+
+    private static final Logger LOGGER = LogManager.getLogger(ShardedOrca.class);
+
+    private ShardedOrca() {
+    }
+
+    /**
+     * Splits the nodes into ranges of similar estimated work. Every process of a sharded run computes the same
+     * ranges from the same graph.
+     *
+     * @return bounds[s] .. bounds[s + 1] - 1 - nodes of shard s
+     */
+    public static int[ ] shardBounds(int graphletSize, CsrGraph graph, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Incorrect shards count " + shards + ". Should be at least 1.");
+        }
+        OrbitCounter orbitCounter = OrbitCounter.of(graphletSize, graph);
+        int n = graph.getNodesCount();
+        long total = 0;
+        for (int x = 0; x < n; x++) total += orbitCounter.nodeWorkEstimate(x);
+
+        int[ ] bounds = new int[shards + 1];
+        long work = 0;
+        int x = 0;
+        for (int s = 1; s < shards; s++) {
+            long target = total * s / shards;
+            while (x < n && work < target) work += orbitCounter.nodeWorkEstimate(x++);
+            bounds[s] = x;
+        }
+        bounds[shards] = n;
+        return bounds;
+    }
+
+    /**
+     * @return rows of nodes firstNode .. lastNode - 1, row i holds node firstNode + i
+     */
+    public static OrbitMatrix countRange(int graphletSize, CsrGraph graph, int firstNode, int lastNode, int parallelism) {
+        if (firstNode < 0 || firstNode > lastNode || lastNode > graph.getNodesCount()) {
+            throw new IllegalArgumentException("Incorrect node range " + firstNode + " .. " + (lastNode - 1)
+                    + ". Should be within 0 .. " + (graph.getNodesCount() - 1) + ".");
+        }
+        OrbitCounter orbitCounter = OrbitCounter.of(graphletSize, graph);
+        orbitCounter.setParallelism(parallelism);
+        int[ ] nodes = new int[lastNode - firstNode];
+        for (int i = 0; i < nodes.length; i++) nodes[i] = firstNode + i;
+
+        OrbitMatrix result = OrbitMatrix.onHeap(nodes.length, orbitCounter.getOrbitsCount());
+        if (nodes.length > 0) orbitCounter.count(nodes, result::setRow);
+        return result;
+    }
+
+    /**
+     * counts shard of shards of the graph in graphFile and writes its rows to output
+     */
+    public static void countShard(int graphletSize, Path graphFile, int shard, int shards, int parallelism, Path output)
+            throws IOException {
+        if (shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("Incorrect shard " + shard + ". Should be between 0 and " + (shards - 1) + ".");
+        }
+        CsrGraph graph = EdgeListLoader.read(graphFile, parallelism);
+        int[ ] bounds = shardBounds(graphletSize, graph, shards);
+        LOGGER.debug("shard " + shard + " of " + shards + ": nodes " + bounds[shard] + " .. " + (bounds[shard + 1] - 1));
+        OrbitMatrix result = countRange(graphletSize, graph, bounds[shard], bounds[shard + 1], parallelism);
+        OrbitMatrixFile.write(result, bounds[shard], output);
+    }
+
+    /**
+     * joins the shard files of one run into output, see {@link OrbitMatrixFile#merge(List, Path)}
+     */
+    public static void merge(List<Path> shardFiles, Path output) throws IOException {
+        List<OrbitMatrixFile> parts = new ArrayList<>();
+        for (Path shardFile : shardFiles) {
+            parts.add(OrbitMatrixFile.open(shardFile));
+        }
+        OrbitMatrixFile.merge(parts, output);
+    }
+
+    public static void main(String[ ] args) throws IOException {
+        if (args.length >= 6 && args.length <= 7 && args[0].equals("count")) {
+            int parallelism = args.length == 7 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+            countShard(Integer.parseInt(args[1]), Paths.get(args[2]), Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]), parallelism, Paths.get(args[5]));
+        } else if (args.length >= 3 && args[0].equals("merge")) {
+            List<Path> shardFiles = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) shardFiles.add(Paths.get(args[i]));
+            merge(shardFiles, Paths.get(args[1]));
+        } else {
+            System.err.println("usage: ShardedOrca count <graphlet size> <graph file> <shard> <shards> <output file> [parallelism]");
+            System.err.println("       ShardedOrca merge <output file> <shard file>...");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package edu.orca.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the nodes of most similar graphlet degree vectors (GDV, the orbit counts of a node). Nodes are compared
+ * by the GDV distance of Milenkovic and Przulj (Cancer Informatics 2008): every orbit o contributes
+ * w(o) |log(u(o) + 1) - log(v(o) + 1)| / log(max(u(o), v(o)) + 2), weighted by w(o) = 1 - log(a(o)) / log(orbits)
+ * for the number a(o) of orbits affecting o, and the sum is divided by the sum of the weights. The distance lies
+ * between 0 and 1, the GDV similarity is 1 minus the distance.
+ * <p>
+ * Exact queries scan all nodes; {@link #allNearest} finds the nearest nodes of every node in blocks of nodes
+ * shared by the worker threads. Approximate queries search a vantage-point tree built on first use under the
+ * L1 distance of w(o) log(1 + log(u(o) + 1)), a metric close to the GDV distance, evaluate at most the search
+ * budget of distances and re-rank the candidates found by the GDV distance.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class SignatureIndex {
+    // AFFECTING[o] - number of orbits affecting orbit o, including o itself
+    private static final int[ ] AFFECTING = {
+            1, 2, 2, 2, 3, 4, 3, 3, 4, 3, 4, 4, 4, 4, 3, 4, 6, 5, 4, 5, 6, 6, 4, 4, 4, 5, 7, 4, 6, 6, 7, 4, 6, 6, 6,
+            5, 6, 7, 7, 5, 7, 6, 7, 6, 5, 5, 6, 8, 7, 6, 6, 8, 6, 9, 5, 6, 4, 6, 6, 7, 8, 6, 6, 8, 7, 6, 7, 7, 8, 5,
+            6, 6, 4
+    };
+    // candidates of an approximate query per requested node, re-ranked by the GDV distance
+    private static final int CANDIDATE_FACTOR = 4;
+    // subtrees of at most this many nodes are scanned instead of split
+    private static final int LEAF_SIZE = 16;
+    // subtrees of more nodes are built by separate tasks
+    private static final int PARALLEL_BUILD_SIZE = 1 << 14;
+    // nodes per block of allNearest, a block of columns is compared with every row of a block of rows
+    private static final int ROW_BLOCK = 64;
+    private static final int COLUMN_BLOCK = 1024;
+    private static final long SEED = 42;
+
+    private final int n;
+    private final int d;
+    private final double[ ] weights;
+    private final double weightSum;
+    private final float[ ] logs; // logs[x * d + o] = log(orbit[x][o] + 1)
+    private final float[ ] shiftedLogs; // shiftedLogs[x * d + o] = log(orbit[x][o] + 2)
+    private final float[ ] proxies; // proxies[x * d + o] = w(o) log(1 + log(orbit[x][o] + 1))
+    private int parallelism = 1;
+    private int searchBudget = 20_000;
+    private VantagePointTree tree;
+
+    /**
+     * @param orbit orbit[x][o] - how many times does node x participate in orbit o, 15 or 73 orbits per node;
+     *              the encoded orbits of all nodes are limited to Integer.MAX_VALUE values per array
+     */
+    public SignatureIndex(long[ ][ ] orbit) {
+        this.n = orbit.length;
+        this.d = n == 0 ? OrbitEquations.ORBITS : orbit[0].length;
+        if (d != 15 && d != OrbitEquations.ORBITS) {
+            throw new IllegalArgumentException("Incorrect orbits count " + d + ". Should be 15 or 73.");
+        }
+        if ((long) n * d > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Incorrect nodes count " + n + ". Should be at most "
+                    + Integer.MAX_VALUE / d + " for " + d + " orbits.");
+        }
+        this.weights = new double[d];
+        double sum = 0;
+        for (int o = 0; o < d; o++) {
+            weights[o] = 1 - Math.log(AFFECTING[o]) / Math.log(d);
+            sum += weights[o];
+        }
+        this.weightSum = sum;
+        this.logs = new float[n * d];
+        this.shiftedLogs = new float[n * d];
+        this.proxies = new float[n * d];
+        for (int x = 0; x < n; x++) {
+            if (orbit[x].length != d) {
+                throw new IllegalArgumentException("Incorrect orbits count " + orbit[x].length + " of node " + x
+                        + ". Should be " + d + ".");
+            }
+            encode(orbit[x], logs, shiftedLogs, proxies, x * d);
+        }
+    }
+
+    public int getNodesCount() {
+        return n;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism number of worker threads of {@link #allNearest} and of building the search tree
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Incorrect parallelism " + parallelism + ". Should be at least 1.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getSearchBudget() {
+        return searchBudget;
+    }
+
+    /**
+     * @param searchBudget maximum number of distances evaluated by an approximate query, larger budgets find
+     *                     more of the exact nearest nodes
+     */
+    public void setSearchBudget(int searchBudget) {
+        if (searchBudget < 1) {
+            throw new IllegalArgumentException("Incorrect search budget " + searchBudget + ". Should be at least 1.");
+        }
+        this.searchBudget = searchBudget;
+    }
+
+    /**
+     * @return GDV distance of nodes x and y, between 0 and 1
+     */
+    public double distance(int x, int y) {
+        checkNode(x);
+        checkNode(y);
+        return distance(logs, shiftedLogs, x * d, y * d);
+    }
+
+    /**
+     * @return GDV similarity of nodes x and y, 1 minus their distance
+     */
+    public double similarity(int x, int y) {
+        return 1 - distance(x, y);
+    }
+
+    /**
+     * @return the k nodes other than x of the smallest GDV distance to x, nearest first
+     */
+    public int[ ] nearest(int x, int k) {
+        checkNode(x);
+        return nearest(logs, shiftedLogs, x * d, x, k);
+    }
+
+    /**
+     * @param gdv orbit counts of a node of another graph, e.g. to align two networks
+     * @return the k nodes of the smallest GDV distance to gdv, nearest first
+     */
+    public int[ ] nearest(long[ ] gdv, int k) {
+        Query query = new Query(gdv);
+        return nearest(query.logs, query.shiftedLogs, 0, -1, k);
+    }
+
+    /**
+     * Finds the k nearest nodes of every node. Rows of nodes are split into blocks handled by the worker threads,
+     * every block compares its rows with one block of columns after the other so the columns stay in cache.
+     *
+     * @return nearest[x] - the k nodes other than x of the smallest GDV distance to x, nearest first
+     */
+    public int[ ][ ] allNearest(int k) {
+        checkCount(k);
+        int[ ][ ] nearest = new int[n][ ];
+        List<Callable<Void>> blocks = new ArrayList<>();
+        for (int from = 0; from < n; from += ROW_BLOCK) {
+            int rowFrom = from, rowTo = Math.min(n, from + ROW_BLOCK);
+            blocks.add(() -> {
+                Neighbors[ ] rows = new Neighbors[rowTo - rowFrom];
+                for (int x = rowFrom; x < rowTo; x++) rows[x - rowFrom] = new Neighbors(Math.min(k, n - 1));
+                for (int columnFrom = 0; columnFrom < n; columnFrom += COLUMN_BLOCK) {
+                    int columnTo = Math.min(n, columnFrom + COLUMN_BLOCK);
+                    for (int x = rowFrom; x < rowTo; x++) {
+                        Neighbors row = rows[x - rowFrom];
+                        for (int y = columnFrom; y < columnTo; y++) {
+                            if (y != x) row.offer(y, distance(logs, shiftedLogs, x * d, y * d));
+                        }
+                    }
+                }
+                for (int x = rowFrom; x < rowTo; x++) nearest[x] = rows[x - rowFrom].sorted();
+                return null;
+            });
+        }
+        run(blocks);
+        return nearest;
+    }
+
+    /**
+     * @return about the k nodes other than x of the smallest GDV distance to x, nearest first
+     */
+    public int[ ] approximateNearest(int x, int k) {
+        checkNode(x);
+        return approximateNearest(logs, shiftedLogs, proxies, x * d, x, k);
+    }
+
+    /**
+     * @param gdv orbit counts of a node of another graph
+     * @return about the k nodes of the smallest GDV distance to gdv, nearest first
+     */
+    public int[ ] approximateNearest(long[ ] gdv, int k) {
+        Query query = new Query(gdv);
+        return approximateNearest(query.logs, query.shiftedLogs, query.proxies, 0, -1, k);
+    }
+
+    private int[ ] nearest(float[ ] qLogs, float[ ] qShiftedLogs, int q, int exclude, int k) {
+        checkCount(k);
+        Neighbors neighbors = new Neighbors(Math.min(k, exclude < 0 ? n : n - 1));
+        for (int y = 0; y < n; y++) {
+            if (y != exclude) neighbors.offer(y, distance(qLogs, qShiftedLogs, q, y * d, logs, shiftedLogs));
+        }
+        return neighbors.sorted();
+    }
+
+    private int[ ] approximateNearest(float[ ] qLogs, float[ ] qShiftedLogs, float[ ] qProxies, int q, int exclude, int k) {
+        checkCount(k);
+        int available = exclude < 0 ? n : n - 1;
+        Neighbors candidates = new Neighbors((int) Math.min(available, (long) k * CANDIDATE_FACTOR));
+        searchTree().search(qProxies, q, exclude, candidates);
+        int[ ] ids = candidates.sorted();
+        Neighbors neighbors = new Neighbors(Math.min(k, ids.length));
+        for (int y : ids) neighbors.offer(y, distance(qLogs, qShiftedLogs, q, y * d, logs, shiftedLogs));
+        return neighbors.sorted();
+    }
+
+    private synchronized VantagePointTree searchTree() {
+        if (tree == null) tree = new VantagePointTree();
+        return tree;
+    }
+
+    private double distance(float[ ] values, float[ ] shifted, int x, int y) {
+        return distance(values, shifted, x, y, values, shifted);
+    }
+
+    /**
+     * GDV distance of the vector at offset x of qLogs / qShiftedLogs and the vector at offset y of yLogs /
+     * yShiftedLogs
+     */
+    private double distance(float[ ] qLogs, float[ ] qShiftedLogs, int x, int y, float[ ] yLogs, float[ ] yShiftedLogs) {
+        double sum = 0;
+        for (int o = 0; o < d; o++) {
+            float a = qLogs[x + o], b = yLogs[y + o];
+            if (a == b) continue;
+            // log(max(u, v) + 2) is the larger of the shifted logarithms
+            sum += weights[o] * Math.abs(a - b) / Math.max(qShiftedLogs[x + o], yShiftedLogs[y + o]);
+        }
+        return sum / weightSum;
+    }
+
+    private double proxyDistance(float[ ] qProxies, int q, int y) {
+        double sum = 0;
+        for (int o = 0; o < d; o++) sum += Math.abs(qProxies[q + o] - proxies[y + o]);
+        return sum;
+    }
+
+    private void encode(long[ ] gdv, float[ ] values, float[ ] shifted, float[ ] proxy, int offset) {
+        for (int o = 0; o < d; o++) {
+            if (gdv[o] < 0) {
+                throw new IllegalArgumentException("Incorrect orbit count " + gdv[o] + ". Should not be negative.");
+            }
+            double log = Math.log1p(gdv[o]);
+            values[offset + o] = (float) log;
+            shifted[offset + o] = (float) Math.log(gdv[o] + 2.0);
+            proxy[offset + o] = (float) (weights[o] * Math.log1p(log));
+        }
+    }
+
+    private void checkNode(int x) {
+        if (x < 0 || x >= n) {
+            throw new IllegalArgumentException("Incorrect node " + x + ". Should be between 0 and " + (n - 1) + ".");
+        }
+    }
+
+    private static void checkCount(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Incorrect number of nodes " + k + ". Should be at least 1.");
+        }
+    }
+
+    private void run(List<Callable<Void>> tasks) {
+        if (parallelism == 1) {
+            try {
+                for (Callable<Void> task : tasks) task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Nearest node search was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * encoded vector of a node of another graph
+     */
+    private final class Query {
+        final float[ ] logs = new float[d];
+        final float[ ] shiftedLogs = new float[d];
+        final float[ ] proxies = new float[d];
+
+        Query(long[ ] gdv) {
+            if (gdv.length != d) {
+                throw new IllegalArgumentException("Incorrect orbits count " + gdv.length + ". Should be " + d + ".");
+            }
+            encode(gdv, logs, shiftedLogs, proxies, 0);
+        }
+    }
+
+    /**
+     * Vantage-point tree over the proxy vectors, laid out in one array: the subtree of items[lo .. hi - 1]
+     * keeps its vantage point at lo, the nodes within radius[lo] of it at lo + 1 .. mid - 1 and the others
+     * at mid .. hi - 1, mid being the middle of lo + 1 .. hi. Subtrees of at most LEAF_SIZE nodes are not split.
+     */
+    private final class VantagePointTree {
+        final int[ ] items = new int[n];
+        final double[ ] radius = new double[n];
+
+        VantagePointTree() {
+            for (int x = 0; x < n; x++) items[x] = x;
+            double[ ] distances = new double[n];
+            Build root = new Build(0, n, distances);
+            if (parallelism == 1 || n <= PARALLEL_BUILD_SIZE) {
+                root.compute();
+                return;
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(root);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        /**
+         * offers the nodes of the tree nearest to the query to neighbours, evaluating at most searchBudget
+         * distances
+         */
+        void search(float[ ] qProxies, int q, int exclude, Neighbors neighbors) {
+            int[ ] budget = {searchBudget};
+            search(0, n, qProxies, q, exclude, neighbors, budget);
+        }
+
+        private void search(int lo, int hi, float[ ] qProxies, int q, int exclude, Neighbors neighbors, int[ ] budget) {
+            if (budget[0] <= 0 || lo >= hi) return;
+            if (hi - lo <= LEAF_SIZE) {
+                for (int i = lo; i < hi && budget[0] > 0; i++) {
+                    if (items[i] == exclude) continue;
+                    budget[0]--;
+                    neighbors.offer(items[i], proxyDistance(qProxies, q, items[i] * d));
+                }
+                return;
+            }
+            int vantage = items[lo];
+            double distance = proxyDistance(qProxies, q, vantage * d);
+            budget[0]--;
+            if (vantage != exclude) neighbors.offer(vantage, distance);
+            int mid = (lo + 1 + hi) >>> 1;
+            double r = radius[lo];
+            // descend first into the side of the query, then into the other if it may hold nearer nodes
+            if (distance <= r) {
+                search(lo + 1, mid, qProxies, q, exclude, neighbors, budget);
+                if (distance + neighbors.bound() >= r) search(mid, hi, qProxies, q, exclude, neighbors, budget);
+            } else {
+                search(mid, hi, qProxies, q, exclude, neighbors, budget);
+                if (distance - neighbors.bound() <= r) search(lo + 1, mid, qProxies, q, exclude, neighbors, budget);
+            }
+        }
+
+        private final class Build extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final int lo;
+            private final int hi;
+            private final double[ ] distances; // distances[i] - distance of items[i] to the vantage point of its subtree
+
+            Build(int lo, int hi, double[ ] distances) {
+                this.lo = lo;
+                this.hi = hi;
+                this.distances = distances;
+            }
+
+            @Override
+            protected void compute() {
+                if (hi - lo <= LEAF_SIZE) return;
+                // a random vantage point, seeded by the subtree so equal inputs give equal trees
+                swap(lo, lo + new SplittableRandom(SEED ^ lo).nextInt(hi - lo));
+                int vantage = items[lo];
+                for (int i = lo + 1; i < hi; i++) distances[i] = proxyDistance(proxies, vantage * d, items[i] * d);
+                int mid = (lo + 1 + hi) >>> 1;
+                select(lo + 1, hi - 1, mid);
+                radius[lo] = distances[mid];
+
+                Build inner = new Build(lo + 1, mid, distances);
+                Build outer = new Build(mid, hi, distances);
+                if (hi - lo > PARALLEL_BUILD_SIZE && getPool() != null) {
+                    invokeAll(inner, outer);
+                } else {
+                    inner.compute();
+                    outer.compute();
+                }
+            }
+
+            /**
+             * reorders items[from .. to] so that position k holds the node of the k-th smallest distance, nodes
+             * before it not farther and nodes after it not nearer
+             */
+            private void select(int from, int to, int k) {
+                while (from < to) {
+                    double pivot = distances[(from + to) >>> 1];
+                    int i = from, j = to;
+                    while (i <= j) {
+                        while (distances[i] < pivot) i++;
+                        while (distances[j] > pivot) j--;
+                        if (i <= j) swap(i++, j--);
+                    }
+                    if (k <= j) to = j;
+                    else if (k >= i) from = i;
+                    else return;
+                }
+            }
+
+            private void swap(int i, int j) {
+                int item = items[i];
+                items[i] = items[j];
+                items[j] = item;
+                double distance = distances[i];
+                distances[i] = distances[j];
+                distances[j] = distance;
+            }
+        }
+    }
+
+    /**
+     * the nodes of the smallest distances offered so far, kept in a max-heap; ties prefer smaller node ids
+     */
+    private static final class Neighbors {
+        private final int[ ] ids;
+        private final double[ ] distances;
+        private int size;
+
+        Neighbors(int capacity) {
+            ids = new int[capacity];
+            distances = new double[capacity];
+        }
+
+        /**
+         * @return distance a node needs to be offered successfully, infinity while there is room
+         */
+        double bound() {
+            return size < ids.length ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(int id, double distance) {
+            if (ids.length == 0) return;
+            if (size < ids.length) {
+                int i = size++;
+                ids[i] = id;
+                distances[i] = distance;
+                siftUp(i);
+            } else if (less(id, distance, ids[0], distances[0])) {
+                ids[0] = id;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * @return ids by ascending distance
+         */
+        int[ ] sorted() {
+            Integer[ ] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> less(ids[a], distances[a], ids[b], distances[b]) ? -1 : a.equals(b) ? 0 : 1);
+            int[ ] sorted = new int[size];
+            for (int i = 0; i < size; i++) sorted[i] = ids[order[i]];
+            return sorted;
+        }
+
+        private static boolean less(int id1, double distance1, int id2, double distance2) {
+            return distance1 < distance2 || (distance1 == distance2 && id1 < id2);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(ids[parent], distances[parent], ids[i], distances[i])) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (less(ids[largest], distances[largest], ids[child], distances[child])) largest = child;
+                }
+                if (largest == i) return;
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            double distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
+}
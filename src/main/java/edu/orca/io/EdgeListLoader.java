@@ -0,0 +1,301 @@
+package edu.orca.io;
+
+import edu.orca.algorithm.CsrGraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Loads edge lists straight into a {@link CsrGraph} from memory mapped files, without building an intermediate
+ * JGraphT graph. Two formats are supported:
+ * <ul>
+ *     <li>ORCA text format: a header line "n m" followed by m lines "a b" with node ids 0 .. n - 1</li>
+ *     <li>binary format: the magic "ORCAEDGE", n and m as ints and m pairs of int endpoints, all little endian</li>
+ * </ul>
+ * Edge ids follow the order of the edges in the file.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class EdgeListLoader {
+    private static final byte[ ] BINARY_MAGIC = "ORCAEDGE".getBytes(StandardCharsets.US_ASCII);
+    private static final int BINARY_HEADER_SIZE = BINARY_MAGIC.length + 2 * Integer.BYTES;
+    // largest region mapped at once, mapped buffers are limited to 2 GB
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    // number of ints copied out of the mapped binary file at once
+    private static final int BINARY_BLOCK_INTS = 1 << 20;
+
+    private EdgeListLoader() {
+    }
+
+    /**
+     * reads a text or binary edge list, the format is detected from the first bytes of the file
+     */
+    public static CsrGraph read(Path file, int parallelism) throws IOException {
+        return isBinary(file) ? readBinary(file) : readText(file, parallelism);
+    }
+
+    public static CsrGraph readText(Path file) throws IOException {
+        return readText(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads a file in the ORCA text format. The body is split into newline aligned chunks which are parsed in
+     * parallel in two passes: the first counts the edges of every chunk, the second parses them into their final
+     * position of the endpoint arrays.
+     *
+     * @param file edge list in ORCA text format
+     * @param parallelism number of threads used for parsing
+     * @return graph with the edges of the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static CsrGraph readText(Path file, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Incorrect parallelism " + parallelism + ". Should be at least 1.");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[ ] header = new long[3]; // n, m, start of the body
+            readHeader(channel, file, header);
+            int n = (int) header[0];
+            int m = (int) header[1];
+            long start = header[2];
+
+            // split the body into chunks starting right after a newline
+            int chunks = (int) Math.max(parallelism, (size - start + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+            long[ ] bounds = new long[chunks + 1];
+            bounds[0] = start;
+            bounds[chunks] = size;
+            for (int i = 1; i < chunks; i++) {
+                long nominal = Math.max(bounds[i - 1], start + (size - start) / chunks * i);
+                bounds[i] = nextLineStart(channel, nominal);
+            }
+
+            MappedByteBuffer[ ] buffers = new MappedByteBuffer[chunks];
+            for (int i = 0; i < chunks; i++) {
+                buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+            }
+
+            long[ ] firstEdge = new long[chunks + 1];
+            runParallel(parallelism, chunks, i -> firstEdge[i + 1] = countTokens(buffers[i]));
+            for (int i = 0; i < chunks; i++) {
+                if (firstEdge[i + 1] % 2 != 0) {
+                    throw new IOException("Odd number of node ids between bytes " + bounds[i] + " and "
+                            + bounds[i + 1] + " of " + file);
+                }
+                firstEdge[i + 1] = firstEdge[i] + firstEdge[i + 1] / 2;
+            }
+            if (firstEdge[chunks] != m) {
+                throw new IOException("Header of " + file + " declares " + m + " edges but " + firstEdge[chunks]
+                        + " were found");
+            }
+
+            int[ ] sources = new int[m];
+            int[ ] targets = new int[m];
+            try {
+                runParallel(parallelism, chunks, i -> parseEdges(buffers[i], n, sources, targets, (int) firstEdge[i]));
+                return CsrGraph.of(n, sources, targets);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed edge list " + file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * reads a file in the binary edge list format
+     */
+    public static CsrGraph readBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            byte[ ] magic = new byte[BINARY_MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, BINARY_MAGIC)) {
+                throw new IOException(file + " is not a binary edge list");
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            if (channel.size() != BINARY_HEADER_SIZE + 8L * m) {
+                throw new IOException("Size of " + file + " does not match its " + m + " edges");
+            }
+
+            int[ ] sources = new int[m];
+            int[ ] targets = new int[m];
+            try {
+                readPairs(channel, n, sources, targets);
+                return CsrGraph.of(n, sources, targets);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed edge list " + file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void readPairs(FileChannel channel, int n, int[ ] sources, int[ ] targets) throws IOException {
+        int m = sources.length;
+        int[ ] pairs = new int[(int) Math.min(2L * m, BINARY_BLOCK_INTS)];
+        for (int e = 0; e < m;) {
+            int count = Math.min(m - e, pairs.length / 2);
+            IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, BINARY_HEADER_SIZE + 8L * e, 8L * count)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            ints.get(pairs, 0, 2 * count);
+            for (int i = 0; i < count; i++, e++) {
+                sources[e] = checkNode(pairs[2 * i], n);
+                targets[e] = checkNode(pairs[2 * i + 1], n);
+            }
+        }
+    }
+
+    /**
+     * writes graph in the binary edge list format, keeping its edge ids
+     */
+    public static void writeBinary(CsrGraph graph, Path file) throws IOException {
+        int m = graph.getEdgesCount();
+        int[ ] sources = graph.getEdgeSources();
+        int[ ] targets = graph.getEdgeTargets();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(BINARY_MAGIC).putInt(graph.getNodesCount()).putInt(m);
+            for (int e = 0; e < m; e++) {
+                if (buffer.remaining() < 8) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                    buffer.clear();
+                }
+                buffer.putInt(sources[e]).putInt(targets[e]);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    public static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < BINARY_MAGIC.length) return false;
+            ByteBuffer magic = ByteBuffer.allocate(BINARY_MAGIC.length);
+            readFully(channel, magic, 0);
+            return Arrays.equals(magic.array(), BINARY_MAGIC);
+        }
+    }
+
+    private static void readHeader(FileChannel channel, Path file, long[ ] header) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 256));
+        readFully(channel, buffer, 0);
+        int tokens = 0;
+        long value = -1;
+        int pos = 0;
+        for (; pos < buffer.limit(); pos++) {
+            byte b = buffer.get(pos);
+            if (b >= '0' && b <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (b - '0');
+            } else if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                if (value >= 0 && tokens < 2) header[tokens++] = value;
+                value = -1;
+                if (b == '\n' && tokens > 0) break;
+            } else {
+                throw new IOException("Unexpected character '" + (char) b + "' in the header of " + file);
+            }
+        }
+        if (value >= 0 && tokens < 2) header[tokens++] = value;
+        if (tokens != 2 || header[0] > Integer.MAX_VALUE || header[1] > Integer.MAX_VALUE / 2) {
+            throw new IOException("Missing or invalid \"n m\" header in " + file);
+        }
+        header[2] = Math.min(pos + 1, channel.size());
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        if (position == 0) return 0;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long pos = position - 1;
+        while (pos < channel.size()) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return pos + i + 1;
+            }
+            pos += read;
+        }
+        return channel.size();
+    }
+
+    private static long countTokens(ByteBuffer buffer) {
+        long tokens = 0;
+        boolean inToken = false;
+        for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+            byte b = buffer.get(i);
+            boolean digit = b >= '0' && b <= '9';
+            if (digit && !inToken) tokens++;
+            inToken = digit;
+        }
+        return tokens;
+    }
+
+    private static void parseEdges(ByteBuffer buffer, int n, int[ ] sources, int[ ] targets, int firstEdge) {
+        int e = firstEdge;
+        boolean second = false;
+        long value = -1;
+        for (int i = 0, limit = buffer.limit(); i <= limit; i++) {
+            byte b = i < limit ? buffer.get(i) : (byte) '\n';
+            if (b >= '0' && b <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (b - '0');
+                if (value > Integer.MAX_VALUE) value = Integer.MAX_VALUE;
+            } else if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                if (value < 0) continue;
+                if (second) {
+                    targets[e++] = checkNode((int) value, n);
+                } else {
+                    sources[e] = checkNode((int) value, n);
+                }
+                second = !second;
+                value = -1;
+            } else {
+                throw new IllegalArgumentException("Unexpected character '" + (char) b + "' in edge " + e);
+            }
+        }
+    }
+
+    private static int checkNode(int node, int n) {
+        if (node < 0 || node >= n) {
+            throw new IllegalArgumentException("Node id " + node + " out of range 0 .. " + (n - 1));
+        }
+        return node;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) break;
+        }
+        buffer.flip();
+    }
+
+    private static void runParallel(int parallelism, int tasks, IntConsumer task) throws IOException {
+        if (parallelism == 1) {
+            IntStream.range(0, tasks).forEach(task);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, tasks).parallel().forEach(task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Loading was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
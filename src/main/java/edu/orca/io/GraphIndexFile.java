@@ -0,0 +1,109 @@
+package edu.orca.io;
+
+import edu.orca.algorithm.CsrGraph;
+import edu.orca.algorithm.GraphIndex;
+import edu.orca.utils.ArrayChannels;
+import edu.orca.utils.PairCountMap;
+import edu.orca.utils.TripleCountMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary file of a {@link GraphIndex}. The file holds the magic "ORCAGIDX", the nodes count, the edges count
+ * and a flag telling whether the common neighbour tables follow, as ints; then the arrays of the graph (offsets,
+ * neighbours, edge ids, edge sources, edge targets), the triangles of every edge and the hash tables of the
+ * common neighbours as they lie in memory, all little endian. Reading maps the file and copies the arrays
+ * without sorting, counting or rehashing anything.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class GraphIndexFile {
+    private static final byte[ ] MAGIC = "ORCAGIDX".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + 3 * Integer.BYTES;
+
+    private GraphIndexFile() {
+    }
+
+    public static void write(GraphIndex index, Path file) throws IOException {
+        CsrGraph graph = index.getGraph();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(graph.getNodesCount()).putInt(graph.getEdgesCount())
+                    .putInt(index.hasCommonNodes() ? 1 : 0);
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+
+            ArrayChannels.writeInts(channel, graph.getOffsets());
+            ArrayChannels.writeInts(channel, graph.getNeighbors());
+            ArrayChannels.writeInts(channel, graph.getEdgeIds());
+            ArrayChannels.writeInts(channel, graph.getEdgeSources());
+            ArrayChannels.writeInts(channel, graph.getEdgeTargets());
+            ArrayChannels.writeInts(channel, index.getTriangles());
+            if (index.hasCommonNodes()) {
+                index.getCommonPairs().writeTable(channel);
+                index.getCommonTriples().writeTable(channel);
+            }
+        }
+    }
+
+    public static GraphIndex read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) break;
+            }
+            header.flip();
+            byte[ ] magic = new byte[MAGIC.length];
+            if (header.remaining() < HEADER_SIZE || !Arrays.equals(readMagic(header, magic), MAGIC)) {
+                throw new IOException(file + " is not a graph index file");
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            boolean commonNodes = header.getInt() != 0;
+            long graphBytes = ((long) n + 1 + 7L * m) * Integer.BYTES;
+            if (n < 0 || m < 0 || channel.size() < HEADER_SIZE + graphBytes) {
+                throw new IOException("Size of " + file + " does not match its " + n + " nodes and " + m + " edges");
+            }
+
+            int[ ] offsets = new int[n + 1];
+            int[ ] neighbors = new int[2 * m];
+            int[ ] edgeIds = new int[2 * m];
+            int[ ] sources = new int[m];
+            int[ ] targets = new int[m];
+            int[ ] triangles = new int[m];
+            long position = HEADER_SIZE;
+            position = ArrayChannels.readInts(channel, position, offsets);
+            position = ArrayChannels.readInts(channel, position, neighbors);
+            position = ArrayChannels.readInts(channel, position, edgeIds);
+            position = ArrayChannels.readInts(channel, position, sources);
+            position = ArrayChannels.readInts(channel, position, targets);
+            position = ArrayChannels.readInts(channel, position, triangles);
+            CsrGraph graph;
+            try {
+                graph = CsrGraph.wrap(n, offsets, neighbors, edgeIds, sources, targets);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid graph in " + file, e);
+            }
+            if (!commonNodes) {
+                return new GraphIndex(graph, triangles, null, null);
+            }
+            PairCountMap common2 = PairCountMap.readTable(channel, position);
+            position += common2.tableBytes();
+            TripleCountMap common3 = TripleCountMap.readTable(channel, position);
+            return new GraphIndex(graph, triangles, common2, common3);
+        }
+    }
+
+    private static byte[ ] readMagic(ByteBuffer buffer, byte[ ] bytes) {
+        buffer.get(bytes);
+        return bytes;
+    }
+}
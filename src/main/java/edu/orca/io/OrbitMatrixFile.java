@@ -0,0 +1,286 @@
+package edu.orca.io;
+
+import edu.orca.algorithm.OrbitMatrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Binary columnar file of orbit counts with random access by node id. The file holds the magic "ORCAORBT",
+ * the nodes count, the orbits count and the id of the first node as ints, one width byte (4 or 8) per orbit
+ * padded to a multiple of 8 bytes, and then every orbit column as unsigned counts of its width, all little
+ * endian. A column uses 4 bytes per count unless one of its counts does not fit into 32 bits.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class OrbitMatrixFile implements Closeable {
+    private static final byte[ ] MAGIC = "ORCAORBT".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + 3 * Integer.BYTES;
+    private static final long MAX_INT_WIDTH = 0xFFFFFFFFL;
+    // counts per mapped chunk of a column, mapped buffers are limited to 2 GB
+    private static final int CHUNK_BITS = 27;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private final int nodesCount;
+    private final int orbitsCount;
+    private final int firstNode;
+    private final byte[ ] widths; // widths[o] - bytes per count of orbit o
+    private final ByteBuffer[ ][ ] columns; // columns[o][c] - mapped chunk c of orbit o
+
+    private OrbitMatrixFile(int nodesCount, int orbitsCount, int firstNode, byte[ ] widths, ByteBuffer[ ][ ] columns) {
+        this.nodesCount = nodesCount;
+        this.orbitsCount = orbitsCount;
+        this.firstNode = firstNode;
+        this.widths = widths;
+        this.columns = columns;
+    }
+
+    public static void write(OrbitMatrix matrix, Path file) throws IOException {
+        write(matrix, 0, file);
+    }
+
+    /**
+     * writes the counts of matrix, row x of the matrix holds node firstNode + x
+     */
+    public static void write(OrbitMatrix matrix, int firstNode, Path file) throws IOException {
+        int orbits = matrix.getOrbitsCount();
+        byte[ ] widths = new byte[orbits];
+        for (int o = 0; o < orbits; o++) {
+            widths[o] = (byte) (matrix.columnMax(o) > MAX_INT_WIDTH ? Long.BYTES : Integer.BYTES);
+        }
+        write(matrix.getNodesCount(), orbits, firstNode, widths, matrix::get, file);
+    }
+
+    /**
+     * Writes the rows of files holding consecutive node ranges, e.g. the shards of one count, into a single
+     * file. The counts are copied column by column without loading the files into memory.
+     *
+     * @param parts files of equal orbits count whose node ranges follow each other without gaps, in any order
+     * @param file file to create or overwrite
+     */
+    public static void merge(List<OrbitMatrixFile> parts, Path file) throws IOException {
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("Incorrect parts count 0. Should be at least 1.");
+        }
+        List<OrbitMatrixFile> sorted = new ArrayList<>(parts);
+        sorted.sort(Comparator.comparingInt(OrbitMatrixFile::getFirstNode));
+        int orbits = sorted.get(0).getOrbitsCount();
+        int firstNode = sorted.get(0).getFirstNode();
+        int[ ] partStarts = new int[sorted.size()]; // partStarts[p] - row of the merged file holding the first node of part p
+        long n = 0;
+        for (int p = 0; p < sorted.size(); p++) {
+            OrbitMatrixFile part = sorted.get(p);
+            if (part.getOrbitsCount() != orbits) {
+                throw new IllegalArgumentException("Incorrect orbits count " + part.getOrbitsCount() + " of " + part
+                        + ". Should be " + orbits + ".");
+            }
+            if (part.getFirstNode() != firstNode + n) {
+                throw new IllegalArgumentException("Incorrect first node " + part.getFirstNode() + " of " + part
+                        + ". Should be " + (firstNode + n) + ".");
+            }
+            partStarts[p] = (int) n;
+            n += part.getNodesCount();
+        }
+        if (n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Incorrect nodes count " + n + ". Should be at most " + Integer.MAX_VALUE + ".");
+        }
+
+        byte[ ] widths = new byte[orbits];
+        for (OrbitMatrixFile part : sorted) {
+            for (int o = 0; o < orbits; o++) widths[o] = (byte) Math.max(widths[o], part.widths[o]);
+        }
+        write((int) n, orbits, firstNode, widths, (x, o) -> {
+            int p = Arrays.binarySearch(partStarts, x);
+            if (p < 0) p = -p - 2;
+            // parts of no nodes share their start with the next part
+            while (p + 1 < partStarts.length && partStarts[p + 1] == x) p++;
+            return sorted.get(p).get(firstNode + x, o);
+        }, file);
+    }
+
+    private static void write(int n, int orbits, int firstNode, byte[ ] widths, Counts counts, Path file)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC).putInt(n).putInt(orbits).putInt(firstNode);
+            for (int o = 0; o < orbits; o++) {
+                flushIfFull(channel, buffer, 1);
+                buffer.put(widths[o]);
+            }
+            for (int i = 0; i < padding(orbits); i++) {
+                flushIfFull(channel, buffer, 1);
+                buffer.put((byte) 0);
+            }
+            for (int o = 0; o < orbits; o++) {
+                for (int x = 0; x < n; x++) {
+                    flushIfFull(channel, buffer, widths[o]);
+                    if (widths[o] == Long.BYTES) {
+                        buffer.putLong(counts.get(x, o));
+                    } else {
+                        buffer.putInt((int) counts.get(x, o));
+                    }
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * maps the file for random access, the mapping stays valid after the file is closed
+     */
+    public static OrbitMatrixFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            byte[ ] magic = new byte[MAGIC.length];
+            if (header.remaining() < HEADER_SIZE || !Arrays.equals(read(header, magic), MAGIC)) {
+                throw new IOException(file + " is not an orbit matrix file");
+            }
+            int n = header.getInt();
+            int orbits = header.getInt();
+            int firstNode = header.getInt();
+            if (n < 0 || orbits < 0) {
+                throw new IOException("Invalid size " + n + " x " + orbits + " in the header of " + file);
+            }
+
+            ByteBuffer widthBuffer = ByteBuffer.allocate(orbits);
+            readFully(channel, widthBuffer, HEADER_SIZE);
+            byte[ ] widths = widthBuffer.array();
+            long position = HEADER_SIZE + orbits + padding(orbits);
+            for (int o = 0; o < orbits; o++) {
+                if (widths[o] != Integer.BYTES && widths[o] != Long.BYTES) {
+                    throw new IOException("Invalid width " + widths[o] + " of orbit " + o + " in " + file);
+                }
+                position += (long) n * widths[o];
+            }
+            if (channel.size() != position) {
+                throw new IOException("Size of " + file + " does not match its " + n + " x " + orbits + " counts");
+            }
+
+            ByteBuffer[ ][ ] columns = new ByteBuffer[orbits][];
+            position = HEADER_SIZE + orbits + padding(orbits);
+            for (int o = 0; o < orbits; o++) {
+                columns[o] = new ByteBuffer[(int) (((long) n + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+                for (int c = 0; c < columns[o].length; c++) {
+                    long counts = Math.min(CHUNK_SIZE, n - ((long) c << CHUNK_BITS));
+                    columns[o][c] = channel.map(FileChannel.MapMode.READ_ONLY, position, counts * widths[o])
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                    position += counts * widths[o];
+                }
+            }
+            return new OrbitMatrixFile(n, orbits, firstNode, widths, columns);
+        }
+    }
+
+    public int getNodesCount() {
+        return nodesCount;
+    }
+
+    public int getOrbitsCount() {
+        return orbitsCount;
+    }
+
+    /**
+     * @return id of the node stored in the first row, rows hold nodes firstNode .. firstNode + nodesCount - 1
+     */
+    public int getFirstNode() {
+        return firstNode;
+    }
+
+    /**
+     * @return bytes per count of orbit o, 4 or 8
+     */
+    public int getWidth(int o) {
+        return widths[o];
+    }
+
+    /**
+     * @param node node id between getFirstNode() and getFirstNode() + getNodesCount() - 1
+     * @return how many times does node participate in orbit o
+     */
+    public long get(int node, int o) {
+        int x = node - firstNode;
+        if (x < 0 || x >= nodesCount || o < 0 || o >= orbitsCount) {
+            throw new IndexOutOfBoundsException("Node " + node + ", orbit " + o + " not in " + this);
+        }
+        ByteBuffer chunk = columns[o][x >>> CHUNK_BITS];
+        int index = (x & (CHUNK_SIZE - 1)) * widths[o];
+        return widths[o] == Long.BYTES ? chunk.getLong(index) : chunk.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param row row[o] - set to the count of orbit o of node
+     */
+    public void getRow(int node, long[ ] row) {
+        for (int o = 0; o < orbitsCount; o++) {
+            row[o] = get(node, o);
+        }
+    }
+
+    /**
+     * @return heap matrix with all counts of the file, row x holds node getFirstNode() + x
+     */
+    public OrbitMatrix toMatrix() {
+        OrbitMatrix matrix = OrbitMatrix.onHeap(nodesCount, orbitsCount);
+        for (int o = 0; o < orbitsCount; o++) {
+            for (int x = 0; x < nodesCount; x++) {
+                matrix.set(x, o, get(firstNode + x, o));
+            }
+        }
+        return matrix;
+    }
+
+    @Override
+    public void close() {
+        // mapped buffers are released by the garbage collector
+    }
+
+    @Override
+    public String toString() {
+        return "OrbitMatrixFile[nodes " + firstNode + " .. " + (firstNode + nodesCount - 1) + ", " + orbitsCount
+                + " orbits]";
+    }
+
+    private static byte[ ] read(ByteBuffer buffer, byte[ ] bytes) {
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) break;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * source of the counts written to a file, row x holds node firstNode + x
+     */
+    private interface Counts {
+        long get(int x, int o);
+    }
+
+    private static int padding(int orbits) {
+        return (Long.BYTES - (HEADER_SIZE + orbits) % Long.BYTES) % Long.BYTES;
+    }
+
+    private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,84 @@
+package edu.orca.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Bulk transfer of primitive arrays to and from file channels, little endian. Reads map the file and copy the
+ * mapped range into the array, which runs at memory speed once the file is in the page cache.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class ArrayChannels {
+    // bytes per mapping while reading, a mapped buffer is limited to 2 GB
+    private static final int MAP_BYTES = 1 << 30;
+    // bytes per write call
+    private static final int WRITE_BYTES = 1 << 20;
+
+    private ArrayChannels() {
+    }
+
+    /**
+     * writes values at the current position of channel
+     */
+    public static void writeInts(FileChannel channel, int[ ] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int step = WRITE_BYTES / Integer.BYTES;
+        for (int from = 0; from < values.length; from += step) {
+            int length = Math.min(step, values.length - from);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, from, length);
+            buffer.limit(length * Integer.BYTES);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * writes values at the current position of channel
+     */
+    public static void writeLongs(FileChannel channel, long[ ] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int step = WRITE_BYTES / Long.BYTES;
+        for (int from = 0; from < values.length; from += step) {
+            int length = Math.min(step, values.length - from);
+            buffer.clear();
+            buffer.asLongBuffer().put(values, from, length);
+            buffer.limit(length * Long.BYTES);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * fills values from the file of channel starting at position
+     *
+     * @return position after the values
+     */
+    public static long readInts(FileChannel channel, long position, int[ ] values) throws IOException {
+        int step = MAP_BYTES / Integer.BYTES;
+        for (int from = 0; from < values.length; from += step) {
+            int length = Math.min(step, values.length - from);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) length * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, from, length);
+            position += (long) length * Integer.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * fills values from the file of channel starting at position
+     *
+     * @return position after the values
+     */
+    public static long readLongs(FileChannel channel, long position, long[ ] values) throws IOException {
+        int step = MAP_BYTES / Long.BYTES;
+        for (int from = 0; from < values.length; from += step) {
+            int length = Math.min(step, values.length - from);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) length * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(values, from, length);
+            position += (long) length * Long.BYTES;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,87 @@
+package edu.orca.utils;
+
+/**
+ * Sizes of intersections of sorted int ranges without duplicates. Ranges of similar length are merged, by a
+ * SIMD kernel where the JVM provides one (see {@link MergeKernel}); very unequal ones are intersected by
+ * galloping through the longer range, which costs O(s log(l / s)) instead of O(s + l) for a short range of
+ * length s and a long range of length l.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class Intersections {
+    // length ratio above which galloping beats merging
+    static final int GALLOP_RATIO = 32;
+    static final MergeKernel KERNEL = MergeKernel.load();
+    private static final MergeKernel SCALAR = new MergeKernel();
+
+    private Intersections() {
+    }
+
+    /**
+     * @return number of values in both a[aFrom .. aTo - 1] and b[bFrom .. bTo - 1]
+     */
+    public static int count(int[ ] a, int aFrom, int aTo, int[ ] b, int bFrom, int bTo) {
+        int aLength = aTo - aFrom, bLength = bTo - bFrom;
+        if (aLength == 0 || bLength == 0) return 0;
+        if (aLength > bLength * GALLOP_RATIO) return gallop(b, bFrom, bTo, a, aFrom, aTo);
+        if (bLength > aLength * GALLOP_RATIO) return gallop(a, aFrom, aTo, b, bFrom, bTo);
+        return KERNEL.count(a, aFrom, aTo, b, bFrom, bTo);
+    }
+
+    /**
+     * @return whether ranges of similar length are merged by a SIMD kernel
+     */
+    public static boolean isVectorized() {
+        return KERNEL.isVectorized();
+    }
+
+    /**
+     * @return estimated number of steps of count for ranges of the given lengths
+     */
+    public static long cost(int aLength, int bLength) {
+        int shorter = Math.min(aLength, bLength), longer = Math.max(aLength, bLength);
+        if (shorter == 0) return 1;
+        if (longer > shorter * GALLOP_RATIO) {
+            return (long) shorter * (2 + 32 - Integer.numberOfLeadingZeros(longer / shorter));
+        }
+        return (long) shorter + longer;
+    }
+
+    /**
+     * scalar merge, regardless of the kernel
+     */
+    static int merge(int[ ] a, int aFrom, int aTo, int[ ] b, int bFrom, int bTo) {
+        return SCALAR.count(a, aFrom, aTo, b, bFrom, bTo);
+    }
+
+    /**
+     * looks up every value of the short range in the long one, searching exponentially from the last match
+     */
+    static int gallop(int[ ] shortRange, int sFrom, int sTo, int[ ] longRange, int lFrom, int lTo) {
+        int count = 0;
+        int lo = lFrom;
+        for (int i = sFrom; i < sTo && lo < lTo; i++) {
+            int value = shortRange[i];
+            // find hi with longRange[hi] >= value, doubling the step
+            int step = 1;
+            int hi = lo;
+            while (hi < lTo && longRange[hi] < value) {
+                lo = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            if (hi >= lTo) hi = lTo - 1;
+            // binary search in longRange[lo .. hi]
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (longRange[mid] < value) lo = mid + 1;
+                else hi = mid;
+            }
+            if (lo < lTo && longRange[lo] == value) {
+                count++;
+                lo++;
+            }
+        }
+        return count;
+    }
+}
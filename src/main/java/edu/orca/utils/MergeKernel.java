@@ -0,0 +1,49 @@
+package edu.orca.utils;
+
+/**
+ * Merge intersection of sorted int ranges of similar length. This is the scalar kernel; on Java 17 and later
+ * with the incubating Vector API enabled (--add-modules jdk.incubator.vector) the multi-release jar provides
+ * VectorMergeKernel, which compares whole blocks of both ranges per step.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+class MergeKernel {
+    private static final String VECTOR_KERNEL = "edu.orca.utils.VectorMergeKernel";
+
+    /**
+     * @return vectorized kernel if the JVM provides the Vector API and the system property orca.vectorize is not
+     * false, the scalar kernel otherwise
+     */
+    static MergeKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty("orca.vectorize", "true"))) return new MergeKernel();
+        try {
+            return (MergeKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new MergeKernel();
+        }
+    }
+
+    /**
+     * @return whether the kernel compares blocks of values per step
+     */
+    boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * merge whose loop advances both ranges by comparisons instead of branches
+     *
+     * @return number of values in both a[aFrom .. aTo - 1] and b[bFrom .. bTo - 1]
+     */
+    int count(int[ ] a, int aFrom, int aTo, int[ ] b, int bFrom, int bTo) {
+        int count = 0;
+        int i = aFrom, j = bFrom;
+        while (i < aTo && j < bTo) {
+            int x = a[i], y = b[j];
+            count += x == y ? 1 : 0;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,176 @@
+package edu.orca.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Counts for unordered node pairs stored in an open addressing hash table.
+ * A pair is packed into a single long key, so neither lookup nor update allocates.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class PairCountMap implements PairCounts {
+    private static final long EMPTY = -1L;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[ ] keys;
+    private int[ ] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * @param expectedSize number of pairs expected to be stored, the table grows when it is exceeded
+     */
+    public PairCountMap(long expectedSize) {
+        allocate(Util.tableCapacity(expectedSize, MAX_CAPACITY));
+    }
+
+    private PairCountMap(long[ ] keys, int[ ] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+        this.mask = keys.length - 1;
+        this.resizeAt = Util.resizeThreshold(keys.length);
+    }
+
+    public static long key(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * increases the count of pair (a, b) by one
+     */
+    public void increment(int a, int b) {
+        long key = key(a, b);
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = 1;
+        if (++size > resizeAt) grow();
+    }
+
+    /**
+     * @return count of pair (a, b) or 0 if the pair was never incremented
+     */
+    @Override
+    public int get(int a, int b) {
+        long key = key(a, b);
+        int slot = slot(key);
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * writes the number of pairs followed by every pair key and its count
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == EMPTY) continue;
+            out.writeLong(keys[slot]);
+            out.writeInt(values[slot]);
+        }
+    }
+
+    /**
+     * @return map with the pairs written by {@link #write(DataOutput)}
+     */
+    public static PairCountMap read(DataInput in) throws IOException {
+        int size = in.readInt();
+        PairCountMap map = new PairCountMap(size);
+        for (int i = 0; i < size; i++) {
+            long key = in.readLong();
+            int slot = map.slot(key);
+            while (map.keys[slot] != EMPTY) slot = (slot + 1) & map.mask;
+            map.keys[slot] = key;
+            map.values[slot] = in.readInt();
+        }
+        map.size = size;
+        return map;
+    }
+
+    /**
+     * writes the whole hash table at the current position of channel, see {@link #readTable}
+     */
+    public void writeTable(FileChannel channel) throws IOException {
+        ArrayChannels.writeInts(channel, new int[ ] {keys.length, size});
+        ArrayChannels.writeLongs(channel, keys);
+        ArrayChannels.writeInts(channel, values);
+    }
+
+    /**
+     * reads a table written by {@link #writeTable} without rehashing its entries
+     *
+     * @return map of the table at position, it spans {@link #tableBytes()} bytes of the file
+     */
+    public static PairCountMap readTable(FileChannel channel, long position) throws IOException {
+        int[ ] header = new int[2];
+        position = ArrayChannels.readInts(channel, position, header);
+        if (Integer.bitCount(header[0]) != 1 || header[0] > MAX_CAPACITY || header[1] < 0 || header[1] > header[0]) {
+            throw new IOException("Invalid pair table of capacity " + header[0] + " and size " + header[1]);
+        }
+        long[ ] keys = new long[header[0]];
+        int[ ] values = new int[header[0]];
+        position = ArrayChannels.readLongs(channel, position, keys);
+        ArrayChannels.readInts(channel, position, values);
+        return new PairCountMap(keys, values, header[1]);
+    }
+
+    /**
+     * @return number of bytes written by {@link #writeTable}
+     */
+    public long tableBytes() {
+        return 2L * Integer.BYTES + (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private int slot(long key) {
+        return (int) Util.mix(key) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        resizeAt = Util.resizeThreshold(capacity);
+    }
+
+    private void grow() {
+        if (keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("Pair count map cannot hold more than " + size + " entries");
+        }
+        long[ ] oldKeys = keys;
+        int[ ] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package edu.orca.utils;
+
+/**
+ * Read access to counts of unordered node pairs
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public interface PairCounts {
+
+    /**
+     * @return count of pair (a, b)
+     */
+    int get(int a, int b);
+}
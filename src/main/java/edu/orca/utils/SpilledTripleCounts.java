@@ -0,0 +1,303 @@
+package edu.orca.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Counts of unordered node triples kept in a sorted file on local disk. Increments are buffered in memory,
+ * sorted and written as runs of (triple, count) records whenever the buffer is full; the runs are finally
+ * merged, at most MAX_FAN_IN at once, into one sorted file which is memory mapped and searched binary for every
+ * lookup. The heap holds only the buffer and the read buffers of the merged runs while building and nothing but
+ * the mappings afterwards.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public final class SpilledTripleCounts implements TripleCounts, Closeable {
+    // record: two smallest nodes packed into a long, largest node, count
+    private static final int RECORD_BYTES = Long.BYTES + 2 * Integer.BYTES;
+    // records per mapped chunk, a mapped buffer is limited to 2 GB
+    private static final int CHUNK_BITS = 26;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    // runs merged at once, each open run holds a file and its read buffer
+    private static final int MAX_FAN_IN = 64;
+
+    private final Path file;
+    private final long size;
+    private final ByteBuffer[ ] chunks;
+
+    private SpilledTripleCounts(Path file, long size, ByteBuffer[ ] chunks) {
+        this.file = file;
+        this.size = size;
+        this.chunks = chunks;
+    }
+
+    /**
+     * @return number of distinct triples
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return count of triple (a, b, c) or 0 if the triple was never incremented
+     */
+    @Override
+    public int get(int a, int b, int c) {
+        int t;
+        if (a > b) { t = a; a = b; b = t; }
+        if (b > c) { t = b; b = c; c = t; }
+        if (a > b) { t = a; a = b; b = t; }
+        long low = ((long) a << 32) | b;
+        long from = 0, to = size - 1;
+        while (from <= to) {
+            long mid = (from + to) >>> 1;
+            ByteBuffer chunk = chunks[(int) (mid >>> CHUNK_BITS)];
+            int index = (int) (mid & (CHUNK_SIZE - 1)) * RECORD_BYTES;
+            int cmp = compare(chunk.getLong(index), chunk.getInt(index + Long.BYTES), low, c);
+            if (cmp == 0) return chunk.getInt(index + Long.BYTES + Integer.BYTES);
+            if (cmp < 0) from = mid + 1;
+            else to = mid - 1;
+        }
+        return 0;
+    }
+
+    /**
+     * deletes the file, the counts must not be used afterwards
+     */
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static int compare(long low1, int high1, long low2, int high2) {
+        int cmp = Long.compare(low1, low2);
+        return cmp != 0 ? cmp : Integer.compare(high1, high2);
+    }
+
+    /**
+     * Collects triple increments of a single thread and spills them to sorted runs in a directory
+     */
+    public static final class Builder implements Closeable {
+        private final Path directory;
+        private final long[ ] lows;
+        private final int[ ] highs;
+        private int buffered;
+        private final List<Path> runs = new ArrayList<>();
+
+        /**
+         * @param directory local directory of the run files and the final file
+         * @param bufferSize number of increments buffered in memory between two runs
+         */
+        public Builder(Path directory, int bufferSize) throws IOException {
+            if (bufferSize < 1) {
+                throw new IllegalArgumentException("Incorrect buffer size " + bufferSize + ". Should be at least 1.");
+            }
+            Files.createDirectories(directory);
+            this.directory = directory;
+            this.lows = new long[bufferSize];
+            this.highs = new int[bufferSize];
+        }
+
+        /**
+         * increases the count of triple (a, b, c) by one
+         */
+        public void increment(int a, int b, int c) throws IOException {
+            int t;
+            if (a > b) { t = a; a = b; b = t; }
+            if (b > c) { t = b; b = c; c = t; }
+            if (a > b) { t = a; a = b; b = t; }
+            lows[buffered] = ((long) a << 32) | b;
+            highs[buffered++] = c;
+            if (buffered == lows.length) spill();
+        }
+
+        /**
+         * merges the runs into the final file, the builder must not be used afterwards
+         */
+        public SpilledTripleCounts build() throws IOException {
+            if (buffered > 0 || runs.isEmpty()) spill();
+            Path merged = Files.createTempFile(directory, "common3-", ".bin");
+            long size = merge(merged);
+            for (Path run : runs) Files.deleteIfExists(run);
+            runs.clear();
+
+            try (FileChannel channel = FileChannel.open(merged, StandardOpenOption.READ)) {
+                ByteBuffer[ ] chunks = new ByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+                for (int i = 0; i < chunks.length; i++) {
+                    long records = Math.min(CHUNK_SIZE, size - ((long) i << CHUNK_BITS));
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, ((long) i << CHUNK_BITS) * RECORD_BYTES,
+                            records * RECORD_BYTES);
+                }
+                return new SpilledTripleCounts(merged, size, chunks);
+            }
+        }
+
+        /**
+         * deletes the runs not merged yet
+         */
+        @Override
+        public void close() throws IOException {
+            for (Path run : runs) Files.deleteIfExists(run);
+            runs.clear();
+        }
+
+        /**
+         * writes the buffered increments as a sorted run of distinct triples with their counts
+         */
+        private void spill() throws IOException {
+            sort(0, buffered - 1);
+            Path run = Files.createTempFile(directory, "common3-run-", ".bin");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+                int i = 0;
+                while (i < buffered) {
+                    int j = i;
+                    while (j < buffered && lows[j] == lows[i] && highs[j] == highs[i]) j++;
+                    out.writeLong(lows[i]);
+                    out.writeInt(highs[i]);
+                    out.writeInt(j - i);
+                    i = j;
+                }
+            }
+            buffered = 0;
+        }
+
+        /**
+         * Merges the runs in passes of at most MAX_FAN_IN runs, each pass replacing its runs by their merged run,
+         * until one pass writes all remaining runs to merged
+         *
+         * @return number of distinct triples written to merged
+         */
+        private long merge(Path merged) throws IOException {
+            while (runs.size() > MAX_FAN_IN) {
+                List<Path> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+                Path run = Files.createTempFile(directory, "common3-run-", ".bin");
+                runs.add(run);
+                merge(group, run);
+                for (Path path : group) Files.deleteIfExists(path);
+                runs.subList(0, MAX_FAN_IN).clear();
+            }
+            return merge(runs, merged);
+        }
+
+        /**
+         * k-way merge of the given runs, adding the counts of equal triples
+         *
+         * @return number of distinct triples written to merged
+         */
+        private static long merge(List<Path> runs, Path merged) throws IOException {
+            PriorityQueue<Run> queue = new PriorityQueue<>((r, s) -> compare(r.low, r.high, s.low, s.high));
+            List<Run> open = new ArrayList<>();
+            long size = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(merged), 1 << 16))) {
+                for (Path path : runs) {
+                    Run run = new Run(path);
+                    open.add(run);
+                    if (run.next()) queue.add(run);
+                }
+                while (!queue.isEmpty()) {
+                    Run first = queue.poll();
+                    long low = first.low;
+                    int high = first.high;
+                    long count = first.count;
+                    if (first.next()) queue.add(first);
+                    while (!queue.isEmpty() && queue.peek().low == low && queue.peek().high == high) {
+                        Run run = queue.poll();
+                        count += run.count;
+                        if (run.next()) queue.add(run);
+                    }
+                    out.writeLong(low);
+                    out.writeInt(high);
+                    out.writeInt((int) count);
+                    size++;
+                }
+            } finally {
+                for (Run run : open) run.in.close();
+            }
+            return size;
+        }
+
+        /**
+         * sorts lows/highs[from .. to] by (low, high)
+         */
+        private void sort(int from, int to) {
+            while (to - from > 16) {
+                int mid = (from + to) >>> 1;
+                // median of three as pivot
+                if (less(mid, from)) swap(mid, from);
+                if (less(to, from)) swap(to, from);
+                if (less(to, mid)) swap(to, mid);
+                long pivotLow = lows[mid];
+                int pivotHigh = highs[mid];
+                int i = from, j = to;
+                while (i <= j) {
+                    while (compare(lows[i], highs[i], pivotLow, pivotHigh) < 0) i++;
+                    while (compare(lows[j], highs[j], pivotLow, pivotHigh) > 0) j--;
+                    if (i <= j) swap(i++, j--);
+                }
+                // recurse into the smaller part to bound the stack depth
+                if (j - from < to - i) {
+                    sort(from, j);
+                    from = i;
+                } else {
+                    sort(i, to);
+                    to = j;
+                }
+            }
+            for (int i = from + 1; i <= to; i++) {
+                for (int j = i; j > from && less(j, j - 1); j--) swap(j, j - 1);
+            }
+        }
+
+        private boolean less(int i, int j) {
+            return compare(lows[i], highs[i], lows[j], highs[j]) < 0;
+        }
+
+        private void swap(int i, int j) {
+            long low = lows[i];
+            lows[i] = lows[j];
+            lows[j] = low;
+            int high = highs[i];
+            highs[i] = highs[j];
+            highs[j] = high;
+        }
+    }
+
+    /**
+     * sequential reader of a run file
+     */
+    private static final class Run {
+        final DataInputStream in;
+        long low;
+        int high;
+        int count;
+
+        Run(Path path) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        }
+
+        boolean next() throws IOException {
+            try {
+                low = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            high = in.readInt();
+            count = in.readInt();
+            return true;
+        }
+    }
+}
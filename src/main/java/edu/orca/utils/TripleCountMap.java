@@ -0,0 +1,194 @@
+package edu.orca.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Counts for unordered node triples stored in an open addressing hash table.
+ * The two smallest nodes of a triple are packed into a long key and the largest one is kept in a parallel
+ * int array, so node ids are not limited in range and neither lookup nor update allocates.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class TripleCountMap implements TripleCounts {
+    private static final long EMPTY = -1L;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[ ] lowKeys;
+    private int[ ] highKeys;
+    private int[ ] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * @param expectedSize number of triples expected to be stored, the table grows when it is exceeded
+     */
+    public TripleCountMap(long expectedSize) {
+        allocate(Util.tableCapacity(expectedSize, MAX_CAPACITY));
+    }
+
+    private TripleCountMap(long[ ] lowKeys, int[ ] highKeys, int[ ] values, int size) {
+        this.lowKeys = lowKeys;
+        this.highKeys = highKeys;
+        this.values = values;
+        this.size = size;
+        this.mask = lowKeys.length - 1;
+        this.resizeAt = Util.resizeThreshold(lowKeys.length);
+    }
+
+    /**
+     * increases the count of triple (a, b, c) by one
+     */
+    public void increment(int a, int b, int c) {
+        // sort a <= b <= c
+        int t;
+        if (a > b) { t = a; a = b; b = t; }
+        if (b > c) { t = b; b = c; c = t; }
+        if (a > b) { t = a; a = b; b = t; }
+        long low = ((long) a << 32) | b;
+        int slot = slot(low, c);
+        while (lowKeys[slot] != EMPTY) {
+            if (lowKeys[slot] == low && highKeys[slot] == c) {
+                values[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        lowKeys[slot] = low;
+        highKeys[slot] = c;
+        values[slot] = 1;
+        if (++size > resizeAt) grow();
+    }
+
+    /**
+     * @return count of triple (a, b, c) or 0 if the triple was never incremented
+     */
+    @Override
+    public int get(int a, int b, int c) {
+        int t;
+        if (a > b) { t = a; a = b; b = t; }
+        if (b > c) { t = b; b = c; c = t; }
+        if (a > b) { t = a; a = b; b = t; }
+        long low = ((long) a << 32) | b;
+        int slot = slot(low, c);
+        long k;
+        while ((k = lowKeys[slot]) != EMPTY) {
+            if (k == low && highKeys[slot] == c) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(lowKeys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * writes the number of triples followed by every triple key and its count
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int slot = 0; slot < lowKeys.length; slot++) {
+            if (lowKeys[slot] == EMPTY) continue;
+            out.writeLong(lowKeys[slot]);
+            out.writeInt(highKeys[slot]);
+            out.writeInt(values[slot]);
+        }
+    }
+
+    /**
+     * @return map with the triples written by {@link #write(DataOutput)}
+     */
+    public static TripleCountMap read(DataInput in) throws IOException {
+        int size = in.readInt();
+        TripleCountMap map = new TripleCountMap(size);
+        for (int i = 0; i < size; i++) {
+            long low = in.readLong();
+            int high = in.readInt();
+            int slot = map.slot(low, high);
+            while (map.lowKeys[slot] != EMPTY) slot = (slot + 1) & map.mask;
+            map.lowKeys[slot] = low;
+            map.highKeys[slot] = high;
+            map.values[slot] = in.readInt();
+        }
+        map.size = size;
+        return map;
+    }
+
+    /**
+     * writes the whole hash table at the current position of channel, see {@link #readTable}
+     */
+    public void writeTable(FileChannel channel) throws IOException {
+        ArrayChannels.writeInts(channel, new int[ ] {lowKeys.length, size});
+        ArrayChannels.writeLongs(channel, lowKeys);
+        ArrayChannels.writeInts(channel, highKeys);
+        ArrayChannels.writeInts(channel, values);
+    }
+
+    /**
+     * reads a table written by {@link #writeTable} without rehashing its entries
+     *
+     * @return map of the table at position, it spans {@link #tableBytes()} bytes of the file
+     */
+    public static TripleCountMap readTable(FileChannel channel, long position) throws IOException {
+        int[ ] header = new int[2];
+        position = ArrayChannels.readInts(channel, position, header);
+        if (Integer.bitCount(header[0]) != 1 || header[0] > MAX_CAPACITY || header[1] < 0 || header[1] > header[0]) {
+            throw new IOException("Invalid triple table of capacity " + header[0] + " and size " + header[1]);
+        }
+        long[ ] lowKeys = new long[header[0]];
+        int[ ] highKeys = new int[header[0]];
+        int[ ] values = new int[header[0]];
+        position = ArrayChannels.readLongs(channel, position, lowKeys);
+        position = ArrayChannels.readInts(channel, position, highKeys);
+        ArrayChannels.readInts(channel, position, values);
+        return new TripleCountMap(lowKeys, highKeys, values, header[1]);
+    }
+
+    /**
+     * @return number of bytes written by {@link #writeTable}
+     */
+    public long tableBytes() {
+        return 2L * Integer.BYTES + (long) lowKeys.length * (Long.BYTES + 2 * Integer.BYTES);
+    }
+
+    private int slot(long low, int high) {
+        return (int) Util.mix(low * 0x9E3779B97F4A7C15L + high) & mask;
+    }
+
+    private void allocate(int capacity) {
+        lowKeys = new long[capacity];
+        highKeys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(lowKeys, EMPTY);
+        mask = capacity - 1;
+        resizeAt = Util.resizeThreshold(capacity);
+    }
+
+    private void grow() {
+        if (lowKeys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("Triple count map cannot hold more than " + size + " entries");
+        }
+        long[ ] oldLowKeys = lowKeys;
+        int[ ] oldHighKeys = highKeys;
+        int[ ] oldValues = values;
+        allocate(lowKeys.length << 1);
+        for (int i = 0; i < oldLowKeys.length; i++) {
+            if (oldLowKeys[i] == EMPTY) continue;
+            int slot = slot(oldLowKeys[i], oldHighKeys[i]);
+            while (lowKeys[slot] != EMPTY) slot = (slot + 1) & mask;
+            lowKeys[slot] = oldLowKeys[i];
+            highKeys[slot] = oldHighKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package edu.orca.utils;
+
+/**
+ * Read access to counts of unordered node triples
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public interface TripleCounts {
+
+    /**
+     * @return count of triple (a, b, c)
+     */
+    int get(int a, int b, int c);
+}
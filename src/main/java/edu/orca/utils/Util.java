@@ -13,6 +13,8 @@ import static java.util.stream.Collectors.toList;
  * Created by KanthKumar on 2/22/17.
  */
 public class Util {
+    // maximum fill ratio of the open addressing tables, in tenths
+    private static final int LOAD_FACTOR_TENTHS = 7;
 
     public static boolean adjacent(int[ ] adj, int y) {
         return Arrays.binarySearch(adj, y) >= 0;
@@ -26,4 +28,31 @@ public class Util {
         return IntStream.of(x, y, z).boxed().sorted()
                 .collect(collectingAndThen(toList(), list -> Tuple.of(list.get(0), list.get(1), list.get(2))));
     }
+
+    /**
+     * @return power of two capacity of an open addressing table able to hold expectedSize entries
+     */
+    public static int tableCapacity(long expectedSize, int maxCapacity) {
+        long required = Math.max(16, Math.min(expectedSize, maxCapacity) * 10 / LOAD_FACTOR_TENTHS + 1);
+        return (int) Math.min(maxCapacity, Long.highestOneBit(required - 1) << 1);
+    }
+
+    /**
+     * @return number of entries an open addressing table of given capacity holds before it has to grow
+     */
+    public static int resizeThreshold(int capacity) {
+        return (int) ((long) capacity * LOAD_FACTOR_TENTHS / 10);
+    }
+
+    /**
+     * finalization step of MurmurHash3, spreads the bits of key over the whole long
+     */
+    public static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
 }
@@ -0,0 +1,29 @@
+package edu.orca.algorithm;
+
+/**
+ * Records every run of a count phase as a {@link PhaseEvent}
+ *
+ * @author Kanth Kumar Dayanand
+ */
+final class JfrPhaseRecorder extends PhaseRecorder {
+
+    @Override
+    boolean isRecording() {
+        return true;
+    }
+
+    @Override
+    Object begin(CountPhase phase, int nodes, int edges) {
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase.name();
+        event.nodes = nodes;
+        event.edges = edges;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void end(Object event) {
+        ((PhaseEvent) event).commit();
+    }
+}
@@ -0,0 +1,27 @@
+package edu.orca.algorithm;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a count phase, recorded by {@link JfrPhaseRecorder}
+ *
+ * @author Kanth Kumar Dayanand
+ */
+@Name("edu.orca.Phase")
+@Label("ORCA Phase")
+@Category("ORCA")
+@Description("Phase of an orbit count")
+final class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Nodes")
+    int nodes;
+
+    @Label("Edges")
+    int edges;
+}
@@ -0,0 +1,47 @@
+package edu.orca.utils;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Merge intersection comparing a block of a with a block of b per step: the block of a is compared for
+ * equality with every value of the block of b broadcast to all lanes, and the block ending at the smaller
+ * value is advanced. Blocks have as many lanes as the preferred vector shape of the CPU; the remaining tails
+ * are merged by the scalar kernel.
+ *
+ * @author Kanth Kumar Dayanand
+ */
+final class VectorMergeKernel extends MergeKernel {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    // fewer lanes do not pay for the block compares
+    private static final int MIN_LANES = 4;
+
+    VectorMergeKernel() {
+        if (SPECIES.length() < MIN_LANES) {
+            throw new UnsupportedOperationException("Vector shape of " + SPECIES.length() + " ints is too small");
+        }
+    }
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    int count(int[ ] a, int aFrom, int aTo, int[ ] b, int bFrom, int bTo) {
+        int lanes = SPECIES.length();
+        int count = 0;
+        int i = aFrom, j = bFrom;
+        while (i + lanes <= aTo && j + lanes <= bTo) {
+            IntVector va = IntVector.fromArray(SPECIES, a, i);
+            VectorMask<Integer> found = va.eq(b[j]);
+            for (int k = 1; k < lanes; k++) found = found.or(va.eq(b[j + k]));
+            count += found.trueCount();
+            int aLast = a[i + lanes - 1], bLast = b[j + lanes - 1];
+            if (aLast <= bLast) i += lanes;
+            if (bLast <= aLast) j += lanes;
+        }
+        return count + super.count(a, i, aTo, b, j, bTo);
+    }
+}
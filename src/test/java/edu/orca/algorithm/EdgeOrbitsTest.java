@@ -0,0 +1,187 @@
+package edu.orca.algorithm;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.io.EdgeListLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for edge orbit counting
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class EdgeOrbitsTest extends TestSetup {
+
+    @Test
+    public void edgeOrbits_RandomGraphs_BruteForce_Test() {
+        Random random = new Random(7);
+        for (double p : new double[ ] {0.15, 0.4, 0.8}) {
+            CsrGraph graph = randomGraph(18, p, random);
+            long[ ][ ] expected = bruteForce(graph);
+
+            long[ ][ ] five = OrbitCounter.of(5, graph).countEdges();
+            long[ ][ ] four = OrbitCounter.of(4, graph).countEdges();
+            for (int e = 0; e < graph.getEdgesCount(); e++) {
+                Assert.assertArrayEquals("edge " + e + " at density " + p, expected[e], five[e]);
+                Assert.assertArrayEquals("edge " + e + " at density " + p,
+                        Arrays.copyOf(expected[e], EdgeOrbits.ORBITS_4), four[e]);
+            }
+        }
+    }
+
+    @Test
+    public void edgeOrbits_1kNodeGraph_Test() throws IOException, URISyntaxException {
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/graph_1k_6k.in"), 1);
+        long[ ][ ] five = OrbitCounter.of(5, graph).countEdges();
+        long[ ][ ] four = OrbitCounter.of(4, graph).countEdges();
+        Assert.assertEquals(graph.getEdgesCount(), five.length);
+        int[ ] tri = OrbitCounter.of(4, graph).countTriangles();
+        for (int e = 0; e < five.length; e++) {
+            Assert.assertArrayEquals(four[e], Arrays.copyOf(five[e], EdgeOrbits.ORBITS_4));
+            Assert.assertEquals(tri[e], five[e][1]);
+        }
+
+        Orca orca = new Orca();
+        orca.init(5, graph);
+        orca.setParallelism(3);
+        orca.setNodeOrdering(NodeOrdering.DEGENERACY);
+        Assert.assertArrayEquals(five, orca.countEdges());
+
+        FiveNodeGraphletOrbitCounter budgeted = new FiveNodeGraphletOrbitCounter(graph);
+        budgeted.setCommonNodesMemoryBudget(1 << 16);
+        Assert.assertArrayEquals(five, budgeted.countEdges());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void edgeOrbits_NotInitialized_Test() {
+        Orca orca = new Orca();
+        orca.setNodeOrdering(NodeOrdering.DEGREE);
+        orca.countEdges();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void orca_NotInitialized_Count_Test() {
+        Orca orca = new Orca();
+        orca.setNodeOrdering(NodeOrdering.DEGREE);
+        orca.count();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void orca_NotInitialized_CountSink_Test() {
+        Orca orca = new Orca();
+        orca.setNodeOrdering(NodeOrdering.DEGREE);
+        orca.count((OrbitSink) (x, orbits) -> {
+        });
+    }
+
+    @Test
+    public void edgeOrbits_EndpointOrbits_Test() {
+        Assert.assertArrayEquals(new int[ ] {1, 2}, EdgeOrbits.getEndpointOrbits(0));
+        Assert.assertArrayEquals(new int[ ] {14, 14}, EdgeOrbits.getEndpointOrbits(EdgeOrbits.ORBITS_4 - 1));
+        Assert.assertArrayEquals(new int[ ] {72, 72}, EdgeOrbits.getEndpointOrbits(EdgeOrbits.ORBITS_5 - 1));
+    }
+
+    private static CsrGraph randomGraph(int n, double p, Random random) {
+        List<Integer> sources = new ArrayList<>();
+        List<Integer> targets = new ArrayList<>();
+        for (int x = 0; x < n; x++) {
+            for (int y = x + 1; y < n; y++) {
+                if (random.nextDouble() < p) {
+                    sources.add(x);
+                    targets.add(y);
+                }
+            }
+        }
+        return CsrGraph.of(n, sources.stream().mapToInt(Integer::intValue).toArray(),
+                targets.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * classifies every edge of every connected induced subgraph on 3 - 5 nodes by the node orbits of its
+     * endpoints, taken from the node orbit count of the subgraph itself
+     */
+    private static long[ ][ ] bruteForce(CsrGraph graph) {
+        int n = graph.getNodesCount();
+        Map<Long, Integer> edgeOrbit = new HashMap<>();
+        for (int o = 0; o < EdgeOrbits.ORBITS_5; o++) {
+            int[ ] endpoints = EdgeOrbits.getEndpointOrbits(o);
+            edgeOrbit.put((long) endpoints[0] << 32 | endpoints[1], o);
+        }
+        Map<Long, int[ ]> nodeOrbits = new HashMap<>();
+        Map<Long, Integer> edgeIds = new HashMap<>();
+        for (int e = 0; e < graph.getEdgesCount(); e++) {
+            int x = graph.getEdgeSources()[e], y = graph.getEdgeTargets()[e];
+            edgeIds.put((long) Math.min(x, y) << 32 | Math.max(x, y), e);
+        }
+
+        long[ ][ ] orbit = new long[graph.getEdgesCount()][EdgeOrbits.ORBITS_5];
+        for (int k = 3; k <= 5; k++) {
+            int[ ] nodes = new int[k];
+            for (int i = 0; i < k; i++) nodes[i] = i;
+            while (true) {
+                List<int[ ]> edges = new ArrayList<>();
+                long pairs = 0;
+                for (int i = 0; i < k; i++) {
+                    for (int j = i + 1; j < k; j++) {
+                        Integer e = edgeIds.get((long) nodes[i] << 32 | nodes[j]);
+                        if (e == null) continue;
+                        edges.add(new int[ ] {i, j, e});
+                        pairs |= 1L << (i * k + j);
+                    }
+                }
+                int size = k;
+                int[ ] orbits = nodeOrbits.computeIfAbsent(pairs << 3 | k, key -> nodeOrbits(size, edges));
+                if (orbits != null) {
+                    for (int[ ] edge : edges) {
+                        int a = Math.min(orbits[edge[0]], orbits[edge[1]]), b = Math.max(orbits[edge[0]], orbits[edge[1]]);
+                        orbit[edge[2]][edgeOrbit.get((long) a << 32 | b)]++;
+                    }
+                }
+                // next subset of k nodes
+                int i = k - 1;
+                while (i >= 0 && nodes[i] == n - k + i) i--;
+                if (i < 0) break;
+                nodes[i]++;
+                for (int j = i + 1; j < k; j++) nodes[j] = nodes[j - 1] + 1;
+            }
+        }
+        return orbit;
+    }
+
+    /**
+     * @return orbits of the nodes of the graph on k nodes within the graphlets on k nodes, null if it is not
+     * connected
+     */
+    private static int[ ] nodeOrbits(int k, List<int[ ]> edges) {
+        int[ ] sources = edges.stream().mapToInt(edge -> edge[0]).toArray();
+        int[ ] targets = edges.stream().mapToInt(edge -> edge[1]).toArray();
+        long[ ][ ] orbit = OrbitCounter.of(5, CsrGraph.of(k, sources, targets)).count();
+        int from = k == 3 ? 1 : k == 4 ? 4 : 15;
+        int to = k == 3 ? 4 : k == 4 ? 15 : 73;
+        int[ ] orbits = new int[k];
+        for (int x = 0; x < k; x++) {
+            orbits[x] = -1;
+            // the graph itself is the only graphlet on k nodes
+            for (int o = from; o < to; o++) {
+                if (orbit[x][o] == 1) orbits[x] = o;
+            }
+            if (orbits[x] < 0) return null;
+        }
+        return orbits;
+    }
+
+    private Path resourcePath(String file) throws URISyntaxException {
+        return Paths.get(EdgeOrbitsTest.class.getResource(file).toURI());
+    }
+}
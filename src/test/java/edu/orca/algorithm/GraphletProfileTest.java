@@ -0,0 +1,85 @@
+package edu.orca.algorithm;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.io.EdgeListLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.junitsupport.TestUtils.getResourceStream;
+import static org.apache.commons.io.IOUtils.readLines;
+
+/**
+ * Unit tests for graph-level graphlet counts and GDD agreement
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class GraphletProfileTest extends TestSetup {
+
+    @Test
+    public void graphletProfile_5NodeGraphlet_1kNodeGraph_Test() throws IOException, URISyntaxException {
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/graph_1k_6k.in"), 1);
+        Orca orca = new Orca();
+        orca.init(5, graph);
+        orca.setParallelism(3);
+        GraphletProfile profile = orca.countProfile();
+
+        GraphletProfile expected = GraphletProfile.of(readSignatures("/signature_vector/graph_1k_6k_5node.out"));
+        Assert.assertArrayEquals(expected.getGraphletCounts(), profile.getGraphletCounts());
+        for (int o = 0; o < 73; o++) {
+            Assert.assertArrayEquals(expected.getDegrees(o), profile.getDegrees(o));
+            Assert.assertArrayEquals(expected.getNodes(o), profile.getNodes(o));
+        }
+        Assert.assertEquals(30, profile.getGraphletCounts().length);
+        Assert.assertEquals(graph.getEdgesCount(), profile.getGraphletCount(0));
+        Assert.assertEquals(Arrays.stream(OrbitCounter.of(4, graph).countTriangles()).sum() / 3, profile.getGraphletCount(2));
+    }
+
+    @Test
+    public void graphletProfile_Agreement_Test() throws IOException, URISyntaxException {
+        GraphletProfile small = profile("/test_graphs/graph_1k_6k.in");
+        GraphletProfile large = profile("/test_graphs/graph_10k_20k.in");
+
+        Assert.assertEquals(1.0, small.agreement(small), 1e-12);
+        Assert.assertEquals(1.0, small.geometricAgreement(small), 1e-12);
+        double agreement = small.agreement(large);
+        Assert.assertEquals(agreement, large.agreement(small), 1e-12);
+        Assert.assertTrue(agreement > 0 && agreement < 1);
+        Assert.assertTrue(small.geometricAgreement(large) <= agreement);
+    }
+
+    @Test
+    public void graphletProfile_4NodeGraphlet_Star_Test() {
+        // star of 4 leaves: 6 paths of 3 nodes and 4 stars of 4 nodes
+        GraphletProfile profile = GraphletProfile.of(OrbitCounter.of(4, CsrGraph.of(5, new int[ ] {0, 0, 0, 0},
+                new int[ ] {1, 2, 3, 4})).count());
+        Assert.assertArrayEquals(new long[ ] {4, 6, 0, 0, 4, 0, 0, 0, 0}, profile.getGraphletCounts());
+        Assert.assertEquals(4, profile.getNodes(0, 1));
+        Assert.assertEquals(1, profile.getNodes(0, 4));
+        Assert.assertEquals(0, profile.getNodes(0, 2));
+    }
+
+    private GraphletProfile profile(String file) throws IOException, URISyntaxException {
+        Orca orca = new Orca();
+        orca.init(5, EdgeListLoader.readText(resourcePath(file), 1));
+        return orca.countProfile();
+    }
+
+    private static long[ ][ ] readSignatures(String file) throws IOException {
+        List<String> lines = readLines(getResourceStream(file), Charset.defaultCharset());
+        return lines.stream()
+                .map(line -> Arrays.stream(line.trim().split(" ")).mapToLong(Long::parseLong).toArray())
+                .toArray(long[ ][ ]::new);
+    }
+
+    private Path resourcePath(String file) throws URISyntaxException {
+        return Paths.get(GraphletProfileTest.class.getResource(file).toURI());
+    }
+}
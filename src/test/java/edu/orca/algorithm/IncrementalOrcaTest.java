@@ -0,0 +1,84 @@
+package edu.orca.algorithm;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.io.EdgeListLoader;
+import javaslang.collection.Array;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static edu.junitsupport.TestUtils.getResourceStream;
+import static org.apache.commons.io.IOUtils.readLines;
+
+/**
+ * Unit tests for incremental orbit counting
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class IncrementalOrcaTest extends TestSetup {
+
+    @Test
+    public void incrementalOrca_4NodeGraphlet_10kNodeGraph_Test() throws IOException, URISyntaxException {
+        verifyRoundTrip(4, "graph_10k_20k");
+    }
+
+    @Test
+    public void incrementalOrca_5NodeGraphlet_10kNodeGraph_Test() throws IOException, URISyntaxException {
+        verifyRoundTrip(5, "graph_10k_20k");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void incrementalOrca_RemoveMissingEdge_Test() throws IOException, URISyntaxException {
+        CsrGraph graph = EdgeListLoader.readText(Paths.get(getClass().getResource("/test_graphs/example.in").toURI()));
+        IncrementalOrca incrementalOrca = new IncrementalOrca(4, graph);
+        int x = 0;
+        int y = 1;
+        while (graph.hasEdge(x, y)) y++;
+        incrementalOrca.apply(new EdgeBatch().remove(x, y));
+    }
+
+    /**
+     * removes some edges and adds new ones (one of them to a new node), checks the orbits against a full
+     * recount, then reverts the batch and checks the orbits against the signature vector of the original graph
+     */
+    private void verifyRoundTrip(int graphletSize, String name) throws IOException, URISyntaxException {
+        CsrGraph graph = EdgeListLoader.readText(Paths.get(getClass().getResource("/test_graphs/" + name + ".in").toURI()));
+        IncrementalOrca incrementalOrca = new IncrementalOrca(graphletSize, graph);
+        int n = graph.getNodesCount();
+
+        EdgeBatch batch = new EdgeBatch();
+        EdgeBatch revert = new EdgeBatch();
+        for (int e = 0; e < 40; e++) {
+            int a = graph.getEdgeSources()[e * 97], b = graph.getEdgeTargets()[e * 97];
+            batch.remove(a, b);
+            revert.add(a, b);
+        }
+        for (int i = 0; i < 40; i++) {
+            int a = i * 211 % n, b = (i * 211 + n / 2 + i) % n;
+            if (a == b || graph.hasEdge(a, b)) continue;
+            batch.add(a, b);
+            revert.remove(a, b);
+        }
+        batch.add(0, n);
+        revert.remove(0, n);
+
+        incrementalOrca.apply(batch);
+        long[ ][ ] expected = OrbitCounter.of(graphletSize, incrementalOrca.getGraph()).count();
+        Assert.assertTrue(Array.of(incrementalOrca.getOrbits()).map(Array::ofAll)
+                .eq(Array.of(expected).map(Array::ofAll)));
+
+        incrementalOrca.apply(revert);
+        Array<String> actualResult = Array.of(incrementalOrca.getOrbits())
+                .take(n)
+                .map(longs -> Array.ofAll(longs).mkString(" "));
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/" + name + "_" + graphletSize + "node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+}
@@ -0,0 +1,89 @@
+package edu.orca.algorithm;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.io.EdgeListLoader;
+import javaslang.collection.Array;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static edu.junitsupport.TestUtils.getResourceStream;
+import static org.apache.commons.io.IOUtils.readLines;
+
+/**
+ * Unit tests for counting batches of graphs
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class OrcaBatchTest extends TestSetup {
+
+    @Test
+    public void orcaBatch_5NodeGraphlet_EgoNetworks_Test() throws IOException, URISyntaxException {
+        CsrGraph example = EdgeListLoader.readText(resourcePath("/test_graphs/example.in"), 1);
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/graph_1k_6k.in"), 1);
+        // ego networks of growing and shrinking size between two copies of the example graph
+        List<CsrGraph> graphs = new ArrayList<>();
+        graphs.add(example);
+        for (int x = 0; x < 300; x += 3) {
+            graphs.add(graph.inducedSubgraph(graph.neighborhood(new int[ ] {x}, 1 + x % 2)));
+        }
+        graphs.add(example);
+
+        OrcaBatch batch = new OrcaBatch(5);
+        batch.setParallelism(3);
+        List<long[ ][ ]> orbits = batch.count(graphs);
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/example_5node.out"),
+                Charset.defaultCharset());
+        Assert.assertTrue(rows(orbits.get(0)).eq(expectedResult));
+        Assert.assertTrue(rows(orbits.get(graphs.size() - 1)).eq(expectedResult));
+        for (int i = 1; i < graphs.size() - 1; i++) {
+            Assert.assertTrue(rows(orbits.get(i)).eq(rows(OrbitCounter.of(5, graphs.get(i)).count())));
+        }
+    }
+
+    @Test
+    public void orcaBatch_4NodeGraphlet_Unordered_Test() throws IOException, URISyntaxException {
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/graph_10k_20k.in"), 1);
+        OrcaBatch batch = new OrcaBatch(4);
+        batch.setParallelism(4);
+        batch.setOrdered(false);
+        Map<Long, long[ ][ ]> orbits = new ConcurrentHashMap<>();
+        batch.count(Array.range(0, 500).toJavaStream()
+                        .map(x -> graph.inducedSubgraph(graph.neighborhood(new int[ ] {x * 20}, 2))),
+                (index, subgraph, orbit) -> orbits.put(index, orbit));
+
+        Assert.assertEquals(500, orbits.size());
+        for (int x = 0; x < 500; x++) {
+            CsrGraph subgraph = graph.inducedSubgraph(graph.neighborhood(new int[ ] {x * 20}, 2));
+            Assert.assertTrue(rows(orbits.get((long) x)).eq(rows(OrbitCounter.of(4, subgraph).count())));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void orcaBatch_FailingSink_Test() throws IOException, URISyntaxException {
+        CsrGraph example = EdgeListLoader.readText(resourcePath("/test_graphs/example.in"), 1);
+        OrcaBatch batch = new OrcaBatch(4);
+        batch.setParallelism(2);
+        batch.count(Array.fill(100, () -> example).toJavaStream(), (index, graph, orbit) -> {
+            if (index == 10) throw new IllegalArgumentException("rejected graph " + index);
+        });
+    }
+
+    private static Array<String> rows(long[ ][ ] orbit) {
+        return Array.of(orbit).map(longs -> Array.ofAll(longs).mkString(" "));
+    }
+
+    private Path resourcePath(String file) throws URISyntaxException {
+        return Paths.get(OrcaBatchTest.class.getResource(file).toURI());
+    }
+}
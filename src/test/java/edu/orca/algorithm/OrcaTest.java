@@ -4,14 +4,25 @@ import edu.jgraphtsupport.Edge;
 import edu.jgraphtsupport.GraphUtils;
 import edu.jgraphtsupport.Vertex;
 import edu.junitsupport.TestSetup;
+import edu.orca.io.EdgeListLoader;
+import edu.orca.io.OrbitMatrixFile;
 import javaslang.collection.Array;
 import org.jgrapht.UndirectedGraph;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
 import static edu.junitsupport.TestUtils.getResourceStream;
 import static org.apache.commons.io.IOUtils.readLines;
@@ -25,6 +36,9 @@ public class OrcaTest extends TestSetup {
 
     private Orca orca = new Orca();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void orca_4NodeGraphlet_100NodeGraph_Test() throws IOException {
         UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/example.in");
@@ -109,6 +123,419 @@ public class OrcaTest extends TestSetup {
         Assert.assertTrue(actualResult.eq(expectedResult));
     }
 
+    @Test
+    public void orca_5NodeGraphlet_Parallel_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        orca.setParallelism(4);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_4NodeGraphlet_Parallel_10kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_10k_60k.in");
+        orca.init(4, graph);
+        orca.setParallelism(4);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_10k_60k_4node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_4NodeGraphlet_HubBitsets_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/p_05.in");
+        orca.init(4, graph);
+        orca.setAdjacencyMemoryBudget(64 << 10);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/p_05_4node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_BinarySearch_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        orca.setAdjacencyMemoryBudget(0);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_TextEdgeList_100NodeGraph_Test() throws IOException, URISyntaxException {
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/example.in"), 3);
+        orca.init(5, graph);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/example_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_4NodeGraphlet_BinaryEdgeList_1kNodeGraph_Test() throws IOException, URISyntaxException {
+        Path binary = temporaryFolder.newFile("p_05.bin").toPath();
+        EdgeListLoader.writeBinary(EdgeListLoader.readText(resourcePath("/test_graphs/p_05.in")), binary);
+        CsrGraph graph = EdgeListLoader.read(binary, 1);
+        orca.init(4, graph);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/p_05_4node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_DegreeOrdering_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        orca.setNodeOrdering(NodeOrdering.DEGREE);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_4NodeGraphlet_DegeneracyOrdering_10kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_10k_60k.in");
+        orca.init(4, graph);
+        orca.setNodeOrdering(NodeOrdering.DEGENERACY);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_10k_60k_4node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void orca_OrbitSelection_NotInitialized_Test() {
+        orca.count(OrbitSelection.of(5, new int[ ] {72}));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_OrbitSelection_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        int[ ] orbits = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 72, 23};
+        long[ ][ ] vector = orca.count(OrbitSelection.of(5, orbits));
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+        Array<String> expectedColumns = Array.ofAll(expectedResult)
+                .map(line -> line.split(" "))
+                .map(counts -> Array.ofAll(orbits).map(o -> counts[o]).mkString(" "));
+
+        Assert.assertTrue(actualResult.eq(expectedColumns));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_SingleOrbitSelection_100NodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/example.in");
+        orca.init(5, graph);
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/example_5node.out"),
+                Charset.defaultCharset());
+        for (int o = 0; o < 73; o++) {
+            int orbit = o;
+            long[ ][ ] vector = orca.count(OrbitSelection.of(5, orbit));
+
+            Array<String> actualResult = Array.of(vector).map(longs -> String.valueOf(longs[0]));
+            Array<String> expectedColumn = Array.ofAll(expectedResult).map(line -> line.split(" ")[orbit]);
+
+            Assert.assertTrue("orbit " + orbit, actualResult.eq(expectedColumn));
+        }
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_MappedOrbitMatrix_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        orca.setNodeOrdering(NodeOrdering.DEGREE);
+        Path cells = temporaryFolder.newFile("graph_1k_6k.cells").toPath();
+        Path counts = temporaryFolder.newFile("graph_1k_6k.orbits").toPath();
+        try (OrbitMatrix matrix = OrbitMatrix.mapped(cells, 1000, 73)) {
+            OrbitMatrixFile.write(orca.count(matrix), counts);
+        }
+
+        Array<String> actualResult;
+        try (OrbitMatrixFile file = OrbitMatrixFile.open(counts)) {
+            actualResult = Array.of(file.toMatrix().toArray()).map(longs -> Array.ofAll(longs).mkString(" "));
+        }
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_OrbitSink_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        orca.setParallelism(3);
+        long[ ][ ] vector = new long[1000][];
+        orca.count((node, orbits) -> vector[node] = orbits.clone());
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_4NodeGraphlet_OrbitBatchSink_10kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_10k_60k.in");
+        orca.init(4, graph);
+        orca.setParallelism(3);
+        orca.setNodeOrdering(NodeOrdering.DEGENERACY);
+        long[ ][ ] vector = new long[10000][];
+        orca.count((nodes, orbits, count) -> {
+            for (int i = 0; i < count; i++) {
+                vector[nodes[i]] = Arrays.copyOfRange(orbits, i * 15, (i + 1) * 15);
+            }
+        }, 97);
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_10k_60k_4node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_CountNodes_10kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_10k_20k.in");
+        orca.init(5, graph);
+        int[ ] nodes = {9999, 0, 4026, 17, 17, 5000, 3930};
+        long[ ][ ] vector = orca.countNodes(nodes);
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_10k_20k_5node.out"),
+                Charset.defaultCharset());
+        Array<String> expectedRows = Array.ofAll(nodes).map(expectedResult::get);
+
+        Assert.assertTrue(actualResult.eq(expectedRows));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_FullBudgetEstimate_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        // every neighbour is sampled, so the estimates are the exact counts
+        double[ ][ ] vector = orca.estimate(Integer.MAX_VALUE, 7).getEstimates();
+
+        Array<String> actualResult = Array.of(vector).map(doubles -> Array.ofAll(doubles).map(Math::round).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_SampledEstimate_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        OrbitEstimates estimates = orca.estimate(6, 7);
+        // the pair lookups of the common neighbours add to the one intersection per edge of the triangles
+        Assert.assertTrue(orca.getMetrics().getIntersections() > graph.edgeSet().size());
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+        long[ ][ ] exact = Array.ofAll(expectedResult)
+                .map(line -> Arrays.stream(line.split(" ")).mapToLong(Long::parseLong).toArray())
+                .toJavaArray(long[ ].class);
+
+        int covered = 0, sampled = 0;
+        double[ ] estimatedTotal = new double[73];
+        double[ ] exactTotal = new double[73];
+        for (int x = 0; x < exact.length; x++) {
+            for (int o = 0; o < 73; o++) {
+                estimatedTotal[o] += estimates.getEstimate(x, o);
+                exactTotal[o] += exact[x][o];
+                if (estimates.getStandardError(x, o) == 0) continue;
+                double[ ] interval = estimates.getConfidenceInterval(x, o, 0.95);
+                sampled++;
+                if (interval[0] <= exact[x][o] && exact[x][o] <= interval[1]) covered++;
+            }
+        }
+        Assert.assertTrue(sampled > 0);
+        Assert.assertTrue("coverage " + covered + " / " + sampled, covered >= 0.8 * sampled);
+        // totals of rare orbits are too noisy to check
+        for (int o = 0; o < 73; o++) {
+            if (exactTotal[o] < 10000) continue;
+            Assert.assertEquals("orbit " + o, exactTotal[o], estimatedTotal[o], 0.1 * exactTotal[o]);
+        }
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_CheckpointResume_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        Path checkpoint = temporaryFolder.newFolder("checkpoint").toPath();
+        orca.init(5, graph);
+        orca.setParallelism(2);
+        orca.setCheckpointDirectory(checkpoint);
+        orca.setCheckpointBlockSize(128);
+        orca.count();
+
+        // a crash while solving the block of nodes 512 .. 639, before common3 was stored
+        Files.delete(checkpoint.resolve("rows-512"));
+        Files.delete(checkpoint.resolve("common3"));
+        Assert.assertTrue(Files.exists(checkpoint.resolve("rows-640")));
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+
+        // the common node tables stored by the resumed count are read back by the next one
+        Files.delete(checkpoint.resolve("rows-512"));
+        orca.count();
+        Assert.assertTrue(orca.getMetrics().getCommonPairs() > 0 && orca.getMetrics().getCommonTriples() > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void orca_5NodeGraphlet_CheckpointOfOtherGraph_Test() throws IOException {
+        Path checkpoint = temporaryFolder.newFolder("checkpoint").toPath();
+        orca.init(5, generateGraph("/test_graphs/example.in"));
+        orca.setCheckpointDirectory(checkpoint);
+        orca.count();
+
+        orca.init(5, generateGraph("/test_graphs/graphlet9.in"));
+        orca.count();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void orca_5NodeGraphlet_CheckpointOfOtherBlockSize_Test() throws IOException {
+        Path checkpoint = temporaryFolder.newFolder("checkpoint").toPath();
+        orca.init(5, generateGraph("/test_graphs/example.in"));
+        orca.setCheckpointDirectory(checkpoint);
+        orca.setCheckpointBlockSize(16);
+        orca.count();
+
+        orca.setCheckpointBlockSize(32);
+        orca.count();
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_CommonNodesBudget_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        orca.init(5, graph);
+        orca.setParallelism(2);
+        orca.setCommonNodesMemoryBudget(1 << 16);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_CommonNodesSpill_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        Path spill = temporaryFolder.newFolder("spill").toPath();
+        orca.init(5, graph);
+        orca.setParallelism(2);
+        orca.setCommonNodesMemoryBudget(1 << 16);
+        orca.setSpillDirectory(spill);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+        Assert.assertTrue(orca.getMetrics().getCommonTriples() > 0);
+        try (Stream<Path> files = Files.list(spill)) {
+            Assert.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void orca_5NodeGraphlet_Metrics_1kNodeGraph_Test() throws IOException {
+        UndirectedGraph<Vertex, Edge> graph = generateGraph("/test_graphs/graph_1k_6k.in");
+        List<CountPhase> phases = new CopyOnWriteArrayList<>();
+        long[ ] lastProgress = new long[2];
+        orca.init(5, graph);
+        orca.setParallelism(2);
+        orca.setCountListener(new CountListener() {
+            @Override
+            public void phaseFinished(CountPhase phase, long nanos) {
+                phases.add(phase);
+            }
+
+            @Override
+            public void progress(long nodesDone, long nodesTotal, long etaNanos) {
+                lastProgress[0] = nodesDone;
+                lastProgress[1] = nodesTotal;
+            }
+        });
+
+        orca.count();
+
+        Assert.assertEquals(Arrays.asList(CountPhase.ADJACENCY_INDEX, CountPhase.COMMON_NODES, CountPhase.TRIANGLES,
+                CountPhase.FULL_GRAPHLETS, CountPhase.EQUATIONS), phases);
+        Assert.assertArrayEquals(new long[ ] {1000, 1000}, lastProgress);
+        CountMetrics metrics = orca.getMetrics();
+        Assert.assertEquals(1000, metrics.getNodesDone());
+        Assert.assertEquals(0, metrics.getEtaNanos());
+        Assert.assertTrue(metrics.getCommonPairs() > 0 && metrics.getCommonTriples() > 0);
+        Assert.assertTrue(metrics.getPhaseNanos(CountPhase.EQUATIONS) > 0);
+    }
+
+    private Path resourcePath(String file) throws URISyntaxException {
+        return Paths.get(OrcaTest.class.getResource(file).toURI());
+    }
+
     private UndirectedGraph<Vertex, Edge> generateGraph(String file) throws IOException {
         List<String> edgeList = readLines(getResourceStream(file), Charset.defaultCharset());
         edgeList.remove(0);
@@ -0,0 +1,52 @@
+package edu.orca.algorithm;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.io.EdgeListLoader;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Unit tests for the flight recorder events of count phases, skipped on JVMs without the Java 17 recorder
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class PhaseEventTest extends TestSetup {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void phaseEvent_5NodeGraphlet_1kNodeGraph_Test() throws IOException, URISyntaxException {
+        Assume.assumeTrue(PhaseRecorder.load().isRecording());
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/graph_1k_6k.in"), 1);
+        Orca orca = new Orca();
+        orca.init(5, graph);
+        orca.setParallelism(2);
+
+        Path events = temporaryFolder.newFile("count.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable("edu.orca.Phase");
+            recording.start();
+            orca.count();
+            recording.stop();
+            recording.dump(events);
+        }
+
+        Assert.assertEquals(5, RecordingFile.readAllEvents(events).stream()
+                .filter(event -> event.getEventType().getName().equals("edu.orca.Phase")).count());
+    }
+
+    private Path resourcePath(String file) throws URISyntaxException {
+        return Paths.get(PhaseEventTest.class.getResource(file).toURI());
+    }
+}
@@ -0,0 +1,81 @@
+package edu.orca.algorithm;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.io.EdgeListLoader;
+import edu.orca.io.OrbitMatrixFile;
+import javaslang.collection.Array;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.junitsupport.TestUtils.getResourceStream;
+import static org.apache.commons.io.IOUtils.readLines;
+
+/**
+ * Unit tests for sharded counting
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class ShardedOrcaTest extends TestSetup {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shardedOrca_5NodeGraphlet_ShardProcesses_1kNodeGraph_Test() throws Exception {
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/graph_1k_6k.in"), 1);
+        Path graphFile = temporaryFolder.newFile("graph_1k_6k.bin").toPath();
+        EdgeListLoader.writeBinary(graph, graphFile);
+
+        // every shard runs in its own JVM, merged in reverse order
+        int shards = 3;
+        List<Path> shardFiles = new ArrayList<>();
+        for (int s = shards - 1; s >= 0; s--) {
+            Path shardFile = temporaryFolder.getRoot().toPath().resolve("shard" + s + ".orbits");
+            Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"), ShardedOrca.class.getName(), "count", "5",
+                    graphFile.toString(), String.valueOf(s), String.valueOf(shards), shardFile.toString(), "2")
+                    .inheritIO().start();
+            Assert.assertEquals(0, process.waitFor());
+            shardFiles.add(shardFile);
+        }
+        Path merged = temporaryFolder.newFile("graph_1k_6k.orbits").toPath();
+        ShardedOrca.merge(shardFiles, merged);
+
+        long[ ][ ] vector;
+        try (OrbitMatrixFile orbits = OrbitMatrixFile.open(merged)) {
+            Assert.assertEquals(0, orbits.getFirstNode());
+            vector = orbits.toMatrix().toArray();
+        }
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    @Test
+    public void shardedOrca_ShardBounds_10kNodeGraph_Test() throws Exception {
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/graph_10k_20k.in"), 1);
+        int[ ] bounds = ShardedOrca.shardBounds(5, graph, 7);
+
+        Assert.assertEquals(0, bounds[0]);
+        Assert.assertEquals(graph.getNodesCount(), bounds[7]);
+        for (int s = 0; s < 7; s++) {
+            Assert.assertTrue(bounds[s] < bounds[s + 1]);
+        }
+    }
+
+    private Path resourcePath(String file) throws URISyntaxException {
+        return Paths.get(ShardedOrcaTest.class.getResource(file).toURI());
+    }
+}
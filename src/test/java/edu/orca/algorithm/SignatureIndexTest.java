@@ -0,0 +1,109 @@
+package edu.orca.algorithm;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.io.EdgeListLoader;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Unit tests for nearest neighbour search over node signatures
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class SignatureIndexTest extends TestSetup {
+
+    private static long[ ][ ] orbit;
+
+    @BeforeClass
+    public static void countOrbits() throws IOException, URISyntaxException {
+        Orca orca = new Orca();
+        orca.init(5, EdgeListLoader.readText(Paths.get(SignatureIndexTest.class.getResource(
+                "/test_graphs/graph_1k_6k.in").toURI()), 1));
+        orbit = orca.count();
+    }
+
+    @Test
+    public void signatureIndex_Distance_Test() {
+        SignatureIndex index = new SignatureIndex(orbit);
+        for (int x = 0; x < 50; x++) {
+            Assert.assertEquals(0, index.distance(x, x), 0);
+            for (int y = 0; y < 50; y++) {
+                double distance = index.distance(x, y);
+                Assert.assertEquals(gdvDistance(orbit[x], orbit[y]), distance, 1e-6);
+                Assert.assertEquals(distance, index.distance(y, x), 0);
+                Assert.assertEquals(1 - distance, index.similarity(x, y), 0);
+                Assert.assertTrue(distance >= 0 && distance <= 1);
+            }
+        }
+    }
+
+    @Test
+    public void signatureIndex_ExactNearest_Test() {
+        SignatureIndex index = new SignatureIndex(orbit);
+        index.setParallelism(3);
+        int[ ][ ] all = index.allNearest(20);
+        for (int x = 0; x < orbit.length; x++) {
+            int[ ] nearest = index.nearest(x, 20);
+            Assert.assertArrayEquals(nearest, all[x]);
+            // a query by signature finds x itself among the nodes of distance 0
+            int[ ] bySignature = index.nearest(orbit[x], 21);
+            Assert.assertEquals(0, index.distance(x, bySignature[0]), 0);
+            Assert.assertEquals(index.distance(x, nearest[19]), index.distance(x, bySignature[20]), 0);
+        }
+        // brute force over the distances of every other node
+        for (int x = 0; x < 20; x++) {
+            double[ ] distances = new double[orbit.length - 1];
+            for (int y = 0, i = 0; y < orbit.length; y++) {
+                if (y != x) distances[i++] = index.distance(x, y);
+            }
+            Arrays.sort(distances);
+            int[ ] nearest = all[x];
+            for (int i = 0; i < nearest.length; i++) {
+                Assert.assertEquals(distances[i], index.distance(x, nearest[i]), 0);
+            }
+        }
+    }
+
+    @Test
+    public void signatureIndex_ApproximateNearest_Test() {
+        SignatureIndex index = new SignatureIndex(orbit);
+        index.setParallelism(2);
+        int k = 50;
+        double found = 0;
+        for (int x = 0; x < orbit.length; x += 10) {
+            int[ ] exact = index.nearest(x, k);
+            double kth = index.distance(x, exact[k - 1]);
+            int[ ] approximate = index.approximateNearest(x, k);
+            Assert.assertEquals(k, approximate.length);
+            for (int y : approximate) {
+                Assert.assertNotEquals(x, y);
+                if (index.distance(x, y) <= kth) found++;
+            }
+        }
+        double recall = found / (k * Math.ceil(orbit.length / 10.0));
+        Assert.assertTrue("recall " + recall, recall >= 0.9);
+
+        // a budget below the tree size still answers
+        index.setSearchBudget(100);
+        Assert.assertEquals(10, index.approximateNearest(0, 10).length);
+    }
+
+    private static double gdvDistance(long[ ] u, long[ ] v) {
+        int[ ] affecting = {1, 2, 2, 2, 3, 4, 3, 3, 4, 3, 4, 4, 4, 4, 3, 4, 6, 5, 4, 5, 6, 6, 4, 4, 4, 5, 7, 4, 6, 6,
+                7, 4, 6, 6, 6, 5, 6, 7, 7, 5, 7, 6, 7, 6, 5, 5, 6, 8, 7, 6, 6, 8, 6, 9, 5, 6, 4, 6, 6, 7, 8, 6, 6, 8,
+                7, 6, 7, 7, 8, 5, 6, 6, 4};
+        double sum = 0, weights = 0;
+        for (int o = 0; o < 73; o++) {
+            double w = 1 - Math.log(affecting[o]) / Math.log(73);
+            sum += w * Math.abs(Math.log(u[o] + 1) - Math.log(v[o] + 1)) / Math.log(Math.max(u[o], v[o]) + 2);
+            weights += w;
+        }
+        return sum / weights;
+    }
+}
@@ -0,0 +1,84 @@
+package edu.orca.io;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.algorithm.CsrGraph;
+import edu.orca.algorithm.GraphIndex;
+import edu.orca.algorithm.Orca;
+import javaslang.collection.Array;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static edu.junitsupport.TestUtils.getResourceStream;
+import static org.apache.commons.io.IOUtils.readLines;
+
+/**
+ * Unit tests for the binary graph index file
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class GraphIndexFileTest extends TestSetup {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void graphIndexFile_5NodeGraphlet_1kNodeGraph_Test() throws IOException, URISyntaxException {
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/graph_1k_6k.in"), 1);
+        GraphIndex index = GraphIndex.build(graph, true, 2);
+        Path file = temporaryFolder.newFile("graph_1k_6k.index").toPath();
+        GraphIndexFile.write(index, file);
+
+        GraphIndex read = GraphIndexFile.read(file);
+        Assert.assertArrayEquals(graph.getNeighbors(), read.getGraph().getNeighbors());
+        Assert.assertArrayEquals(graph.getEdgeIds(), read.getGraph().getEdgeIds());
+        Assert.assertArrayEquals(index.getTriangles(), read.getTriangles());
+        Assert.assertEquals(index.getCommonTriples().size(), read.getCommonTriples().size());
+
+        Orca orca = new Orca();
+        orca.init(5, read);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/graph_1k_6k_5node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+        Assert.assertEquals(read.getCommonPairs().size(), orca.getMetrics().getCommonPairs());
+        Assert.assertEquals(read.getCommonTriples().size(), orca.getMetrics().getCommonTriples());
+    }
+
+    @Test
+    public void graphIndexFile_4NodeGraphlet_WithoutCommonNodes_1kNodeGraph_Test() throws IOException, URISyntaxException {
+        CsrGraph graph = EdgeListLoader.readText(resourcePath("/test_graphs/p_05.in"), 1);
+        Path file = temporaryFolder.newFile("p_05.index").toPath();
+        GraphIndexFile.write(GraphIndex.build(graph, false, 1), file);
+
+        GraphIndex read = GraphIndexFile.read(file);
+        Assert.assertFalse(read.hasCommonNodes());
+
+        Orca orca = new Orca();
+        orca.init(4, read);
+        long[ ][ ] vector = orca.count();
+
+        Array<String> actualResult = Array.of(vector).map(longs -> Array.ofAll(longs).mkString(" "));
+
+        List<String> expectedResult = readLines(getResourceStream("/signature_vector/p_05_4node.out"),
+                Charset.defaultCharset());
+
+        Assert.assertTrue(actualResult.eq(expectedResult));
+    }
+
+    private Path resourcePath(String file) throws URISyntaxException {
+        return Paths.get(GraphIndexFileTest.class.getResource(file).toURI());
+    }
+}
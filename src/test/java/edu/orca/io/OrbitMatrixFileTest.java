@@ -0,0 +1,53 @@
+package edu.orca.io;
+
+import edu.junitsupport.TestSetup;
+import edu.orca.algorithm.OrbitMatrix;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Unit tests for the binary orbit matrix file
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class OrbitMatrixFileTest extends TestSetup {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void orbitMatrixFile_WideCounts_Test() throws IOException {
+        OrbitMatrix matrix = OrbitMatrix.offHeap(5, 3);
+        matrix.set(1, 0, 0xFFFFFFFEL);
+        matrix.set(2, 1, 1L << 40);
+        matrix.set(3, 1, 7);
+        matrix.set(4, 2, Long.MAX_VALUE);
+        matrix.set(4, 2, 12);
+        Assert.assertEquals(1, matrix.getOverflowCount());
+        Assert.assertEquals(1L << 40, matrix.get(2, 1));
+
+        Path file = temporaryFolder.newFile("wide.orbits").toPath();
+        OrbitMatrixFile.write(matrix, 100, file);
+        try (OrbitMatrixFile orbits = OrbitMatrixFile.open(file)) {
+            Assert.assertEquals(4, orbits.getWidth(0));
+            Assert.assertEquals(8, orbits.getWidth(1));
+            Assert.assertEquals(4, orbits.getWidth(2));
+            Assert.assertEquals(0xFFFFFFFEL, orbits.get(101, 0));
+            Assert.assertEquals(1L << 40, orbits.get(102, 1));
+            Assert.assertEquals(7, orbits.get(103, 1));
+            Assert.assertEquals(12, orbits.get(104, 2));
+            Assert.assertEquals(0, orbits.get(100, 2));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void orbitMatrixFile_NotAnOrbitFile_Test() throws IOException {
+        Path file = temporaryFolder.newFile("empty.orbits").toPath();
+        OrbitMatrixFile.open(file);
+    }
+}
@@ -0,0 +1,51 @@
+package edu.orca.utils;
+
+import edu.junitsupport.TestSetup;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for sorted range intersections
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class IntersectionsTest extends TestSetup {
+
+    @Test
+    public void intersections_MergeAndGallop_Test() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            int[ ] a = sortedSet(random, 1 + random.nextInt(8), 1 + random.nextInt(5000));
+            int[ ] b = sortedSet(random, 1 + random.nextInt(2000), 1 + random.nextInt(5000));
+            int expected = (int) IntStream.of(a).filter(v -> Arrays.binarySearch(b, v) >= 0).count();
+
+            Assert.assertEquals(expected, Intersections.count(a, 0, a.length, b, 0, b.length));
+            Assert.assertEquals(expected, Intersections.count(b, 0, b.length, a, 0, a.length));
+            Assert.assertEquals(expected, Intersections.merge(a, 0, a.length, b, 0, b.length));
+            Assert.assertEquals(expected, Intersections.gallop(a, 0, a.length, b, 0, b.length));
+        }
+    }
+
+    @Test
+    public void intersections_KernelMatchesScalar_Test() {
+        Random random = new Random(7);
+        MergeKernel scalar = new MergeKernel();
+        for (int round = 0; round < 2000; round++) {
+            int[ ] a = sortedSet(random, random.nextInt(200), 1 + random.nextInt(400));
+            int[ ] b = sortedSet(random, random.nextInt(200), 1 + random.nextInt(400));
+            int aFrom = a.length == 0 ? 0 : random.nextInt(a.length);
+            int bFrom = b.length == 0 ? 0 : random.nextInt(b.length);
+
+            Assert.assertEquals(scalar.count(a, aFrom, a.length, b, bFrom, b.length),
+                    Intersections.KERNEL.count(a, aFrom, a.length, b, bFrom, b.length));
+        }
+    }
+
+    private static int[ ] sortedSet(Random random, int size, int range) {
+        return random.ints(size, 0, range).distinct().sorted().toArray();
+    }
+}
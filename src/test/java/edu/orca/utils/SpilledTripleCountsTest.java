@@ -0,0 +1,56 @@
+package edu.orca.utils;
+
+import edu.junitsupport.TestSetup;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for triple counts spilled to disk
+ *
+ * @author Kanth Kumar Dayanand
+ */
+public class SpilledTripleCountsTest extends TestSetup {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void spilledTripleCounts_MergedRuns_Test() throws IOException {
+        Path directory = temporaryFolder.newFolder("spill").toPath();
+        Random random = new Random(7);
+        TripleCountMap expected = new TripleCountMap(16);
+        SpilledTripleCounts counts;
+        try (SpilledTripleCounts.Builder builder = new SpilledTripleCounts.Builder(directory, 100)) {
+            for (int i = 0; i < 20000; i++) {
+                int a = random.nextInt(30), b = random.nextInt(30), c = random.nextInt(30);
+                expected.increment(a, b, c);
+                builder.increment(a, b, c);
+            }
+            counts = builder.build();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(1, files.count());
+        }
+
+        Assert.assertEquals(expected.size(), counts.size());
+        for (int a = 0; a < 31; a++) {
+            for (int b = 0; b < 31; b++) {
+                for (int c = 0; c < 31; c++) {
+                    Assert.assertEquals(expected.get(a, b, c), counts.get(c, a, b));
+                }
+            }
+        }
+        counts.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(0, files.count());
+        }
+    }
+}